@@ -3,12 +3,12 @@ package org.jpacman.framework.controller;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.List;
-import java.util.Random;
-
-import javax.swing.Timer;
 
+import org.jpacman.framework.model.Direction;
 import org.jpacman.framework.model.Ghost;
 import org.jpacman.framework.model.IGameInteractor;
+import org.jpacman.framework.model.SplitRandom;
+import org.jpacman.framework.model.Tile;
 
 /**
  * A controller which generates a ghost move at regular intervals. The actual
@@ -24,13 +24,15 @@ IController {
 
     /**
      * Randomizer used to pick, e.g., a ghost at random.
+     * Owned by this mover or its game, so never contended.
      */
-    private static Random randomizer = new Random();
+    private final SplitRandom randomizer;
 
     /**
-     * Timer to be used to trigger ghost moves.
+     * Task of the shared scheduler triggering ghost moves,
+     * registered while started only, or null.
      */
-    private final Timer timer;
+    private TickScheduler.Task timer;
 
     /**
      * Vector of ghosts that are to be moved.
@@ -55,8 +57,19 @@ IController {
      * @param game The underlying model of the game.
      */
     public AbstractGhostMover(IGameInteractor game) {
+        this(game, game.getRandom());
+    }
+
+    /**
+     * Create a new ghostcontroller drawing its random
+     * numbers from the given stream.
+     *
+     * @param game The underlying model of the game.
+     * @param random Random stream of this controller.
+     */
+    public AbstractGhostMover(IGameInteractor game, SplitRandom random) {
         theGame = game;
-        timer = new Timer(DELAY, this);
+        randomizer = random;
         assert controllerInvariant();
     }
 
@@ -65,18 +78,32 @@ IController {
      * @return true iff all vars non-null.
      */
     protected final boolean controllerInvariant() {
-        return timer != null && theGame != null;
+        return theGame != null && randomizer != null;
     }
 
     /**
-     * ActionListener event caught when timer ticks.
+     * ActionListener event caught when a timer ticks.
      * @param e Event caught.
      */
     @Override
 	public void actionPerformed(ActionEvent e) {
+        tick();
+    }
+
+    /**
+     * Conduct a timed tick, on the worker of the shared scheduler
+     * running the ticks of this game.
+     * The events of all ghost moves in the tick are delivered at once.
+     */
+    private void tick() {
         assert controllerInvariant();
         synchronized (theGame) {
-            doTick();
+            theGame.beginTick();
+            try {
+                doTick();
+            } finally {
+                theGame.endTick();
+            }
         }
         assert controllerInvariant();
     }
@@ -88,16 +115,40 @@ IController {
         // contained.
         synchronized (theGame) {
             ghosts = theGame.getGhosts();
+            if (timer == null) {
+                timer = register();
+            }
             timer.start();
             assert ghosts != null;
         }
         assert controllerInvariant();
      }
 
+    /**
+     * Register the ticks with the shared scheduler, only once started,
+     * so that movers ticked directly, e.g., by a batch runner,
+     * don't spin up its threads.
+     * @return The task to start.
+     */
+    private TickScheduler.Task register() {
+        return TickScheduler.shared().register(theGame, DELAY, new Runnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        });
+    }
+
     @Override
 	public void stop() {
         assert controllerInvariant();
-        timer.stop();
+        synchronized (theGame) {
+            if (timer != null) {
+                // the scheduler drops the stopped task from its wheel.
+                timer.stop();
+                timer = null;
+            }
+        }
         assert controllerInvariant();
     }
 
@@ -107,19 +158,56 @@ IController {
      * @return Random ghost or null;
      */
     protected Ghost getRandomGhost() {
+        List<Ghost> all = getGhosts();
         Ghost theGhost = null;
-        if (!ghosts.isEmpty()) {
-            final int ghostIndex = randomizer.nextInt(ghosts.size());
-            theGhost = ghosts.get(ghostIndex);
+        if (!all.isEmpty()) {
+            final int ghostIndex = randomizer.nextInt(all.size());
+            theGhost = all.get(ghostIndex);
         } 
         return theGhost;
     }
 
+    /**
+     * Obtain the ghosts to be moved, as found when the timer was
+     * started, or, if it never was, when first asked for.
+     * @return The ghosts of the game.
+     */
+    protected List<Ghost> getGhosts() {
+        if (ghosts == null) {
+            ghosts = theGame.getGhosts();
+        }
+        return ghosts;
+    }
+
+    /**
+     * Pick a random direction among those the ghost can take
+     * without bumping into a wall.
+     * @param theGhost The ghost to be moved.
+     * @return A random open direction, or null if the ghost is walled in.
+     */
+    protected Direction randomLegalDirection(Ghost theGhost) {
+        Tile t = theGhost.getTile();
+        int legal = theGame.getBoardInspector().legalMoves(t.getX(), t.getY());
+        Direction result = null;
+        if (legal != 0) {
+            int pick = randomizer.nextInt(Integer.bitCount(legal));
+            for (Direction d : Direction.values()) {
+                if ((legal & d.bit()) != 0) {
+                    if (pick == 0) {
+                        result = d;
+                    }
+                    pick--;
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Obtain the randomizer used for ghost moves.
      * @return the randomizer.
      */
-    protected static Random getRandomizer() {
+    protected SplitRandom getRandomizer() {
         return randomizer;
     }
     
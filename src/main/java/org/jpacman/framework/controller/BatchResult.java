@@ -0,0 +1,120 @@
+package org.jpacman.framework.controller;
+
+import org.jpacman.framework.model.IGameInteractor;
+
+/**
+ * Statistics on a batch of games played headlessly.
+ */
+public class BatchResult {
+	
+	private static final double NANOS_PER_SECOND = 1e9;
+	
+	private int games;
+	private int wins;
+	private int losses;
+	private long points;
+	private long ticks;
+	private long elapsedNanos;
+	
+	/**
+	 * Record the outcome of a single game.
+	 * @param game The game played
+	 * @param gameTicks Number of ticks the game took.
+	 */
+	void record(IGameInteractor game, long gameTicks) {
+		games++;
+		if (game.won()) {
+			wins++;
+		} else if (game.died()) {
+			losses++;
+		}
+		points += game.getPointManager().getFoodEaten();
+		ticks += gameTicks;
+	}
+	
+	/**
+	 * Add the games recorded in another result to this one.
+	 * @param other The result to be added.
+	 */
+	void add(BatchResult other) {
+		games += other.games;
+		wins += other.wins;
+		losses += other.losses;
+		points += other.points;
+		ticks += other.ticks;
+	}
+	
+	/**
+	 * @param nanos The wall clock time the batch took.
+	 */
+	void setElapsedNanos(long nanos) {
+		elapsedNanos = nanos;
+	}
+
+	/**
+	 * @return Number of games played.
+	 */
+	public int getGames() {
+		return games;
+	}
+
+	/**
+	 * @return Number of games won by the player.
+	 */
+	public int getWins() {
+		return wins;
+	}
+
+	/**
+	 * @return Number of games in which the player died.
+	 */
+	public int getLosses() {
+		return losses;
+	}
+	
+	/**
+	 * @return Number of games neither won nor lost within the tick limit.
+	 */
+	public int getUnfinished() {
+		return games - wins - losses;
+	}
+
+	/**
+	 * @return Total points scored by the players in all games.
+	 */
+	public long getPoints() {
+		return points;
+	}
+
+	/**
+	 * @return Total number of ticks played in all games.
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * @return Wall clock time taken by the batch, in nanoseconds.
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+	
+	/**
+	 * @return Throughput of the batch, in games per second.
+	 */
+	public double gamesPerSecond() {
+		double result = 0;
+		if (elapsedNanos > 0) {
+			result = games * NANOS_PER_SECOND / elapsedNanos;
+		}
+		return result;
+	}
+	
+	@Override
+	public String toString() {
+		return games + " games: " + wins + " won, " + losses + " lost, "
+			+ getUnfinished() + " unfinished, " + points + " points, "
+			+ Math.round(gamesPerSecond()) + " games/sec";
+	}
+}
@@ -0,0 +1,192 @@
+package org.jpacman.framework.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Game;
+import org.jpacman.framework.model.LevelCache;
+import org.jpacman.framework.model.MazeTemplate;
+import org.jpacman.framework.model.SplitRandom;
+
+/**
+ * Play large numbers of games headlessly, spread over all
+ * available cores, for example to evaluate ghost strategies.
+ * <p>
+ * The map is parsed once into a shared maze template. Every worker
+ * thread then repeatedly claims the next game to be played, so that
+ * workers finishing short games early simply take on more games.
+ * Each game is advanced by its own {@link TickEngine}, with fresh
+ * controllers, until it is won, lost, or reaches the tick limit.
+ * <p>
+ * Game factories keep track of the game they are building, so
+ * every worker instantiates its games with a factory of its own.
+ * Every game gets its own random stream, numbered after the game
+ * and derived from a master seed, so that a batch with a given seed
+ * plays the same games no matter how they are spread over threads.
+ */
+public class BatchRunner {
+	
+	/**
+	 * Default maximum number of ticks a single game may take.
+	 */
+	public static final long DEFAULT_MAX_TICKS = 10000;
+	
+	private final String mapFile;
+	private final IGameFactorySupplier factories;
+	private final IControllerFactory ghostControllers;
+	private IControllerFactory playerControllers;
+	
+	private long maxTicks = DEFAULT_MAX_TICKS;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	private LevelCache cache = LevelCache.shared();
+	private long seed = new SplitRandom().getSeed();
+	
+	/**
+	 * Create a runner for games on the given map.
+	 * @param map Resource on the class path containing the map
+	 * @param gameFactories Supplier of the factories creating the games
+	 * @param ghosts Factory creating a ghost controller for every game.
+	 */
+	public BatchRunner(String map, IGameFactorySupplier gameFactories, 
+			IControllerFactory ghosts) {
+		assert map != null && gameFactories != null && ghosts != null;
+		mapFile = map;
+		factories = gameFactories;
+		ghostControllers = ghosts;
+	}
+	
+	/**
+	 * @param players Factory creating a player controller for every game.
+	 * @return Itself, for fluency.
+	 */
+	public BatchRunner withPlayerController(IControllerFactory players) {
+		playerControllers = players;
+		return this;
+	}
+	
+	/**
+	 * @param ticks Maximum number of ticks a single game may take.
+	 * @return Itself, for fluency.
+	 */
+	public BatchRunner withMaxTicks(long ticks) {
+		assert ticks > 0;
+		maxTicks = ticks;
+		return this;
+	}
+	
+	/**
+	 * @param n Number of worker threads to use.
+	 * @return Itself, for fluency.
+	 */
+	public BatchRunner withThreads(int n) {
+		assert n > 0;
+		threads = n;
+		return this;
+	}
+	
+	/**
+	 * @param levelCache Cache providing the maze template.
+	 * @return Itself, for fluency.
+	 */
+	public BatchRunner withCache(LevelCache levelCache) {
+		assert levelCache != null;
+		cache = levelCache;
+		return this;
+	}
+	
+	/**
+	 * @param masterSeed Seed from which the random streams of all
+	 * games are derived.
+	 * @return Itself, for fluency.
+	 */
+	public BatchRunner withSeed(long masterSeed) {
+		seed = masterSeed;
+		return this;
+	}
+	
+	/**
+	 * @return The seed from which the games' random streams are derived.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * Play the given number of games.
+	 * @param games Number of games to be played.
+	 * @return The aggregated outcome of all games.
+	 * @throws FactoryException If the map can't be loaded.
+	 */
+	public BatchResult run(int games) throws FactoryException {
+		assert games >= 0;
+		MazeTemplate maze = cache.get(mapFile, factories.makeFactory());
+		AtomicInteger next = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		BatchResult result = new BatchResult();
+		long start = System.nanoTime();
+		try {
+			List<Future<BatchResult>> parts = new ArrayList<Future<BatchResult>>();
+			for (int i = 0; i < threads; i++) {
+				parts.add(pool.submit(worker(maze, next, games)));
+			}
+			for (Future<BatchResult> part : parts) {
+				result.add(part.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new FactoryException("Interrupted while playing games", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Playing a game failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+		result.setElapsedNanos(System.nanoTime() - start);
+		return result;
+	}
+	
+	/**
+	 * @param maze The maze all games are played on
+	 * @param next Counter handing out the games to be played
+	 * @param games Total number of games to be played
+	 * @return Task playing games until all have been handed out.
+	 */
+	private Callable<BatchResult> worker(final MazeTemplate maze, 
+			final AtomicInteger next, final int games) {
+		return new Callable<BatchResult>() {
+			@Override
+			public BatchResult call() throws FactoryException {
+				BatchResult local = new BatchResult();
+				MapParser parser = new MapParser(factories.makeFactory());
+				for (int i = next.getAndIncrement(); i < games; i = next.getAndIncrement()) {
+					play(parser.instantiate(maze), i, local);
+				}
+				return local;
+			}
+		};
+	}
+	
+	/**
+	 * Play a single game, and record its outcome.
+	 * @param game The game to be played
+	 * @param number Number of the game, identifying its random stream
+	 * @param result Statistics to record the outcome in.
+	 */
+	private void play(Game game, int number, BatchResult result) {
+		game.setRandom(SplitRandom.stream(seed, number));
+		TickEngine engine = new TickEngine(game);
+		if (playerControllers != null) {
+			engine.controlling(playerControllers.makeController(game));
+		}
+		engine.controlling(ghostControllers.makeController(game));
+		engine.runTicks(maxTicks);
+		result.record(game, engine.getTicks());
+	}
+}
@@ -0,0 +1,76 @@
+package org.jpacman.framework.controller;
+
+import java.util.List;
+
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.FlowField;
+import org.jpacman.framework.model.Ghost;
+import org.jpacman.framework.model.IGameInteractor;
+import org.jpacman.framework.model.Player;
+import org.jpacman.framework.model.Tile;
+
+/**
+ * Ghost mover in which all ghosts chase the player.
+ * <p>
+ * Every tick, the ghosts share a single flow field towards the
+ * player's cell, which is only searched anew if the player moved.
+ * Each ghost then takes one step along the field. Ghosts that
+ * can't reach the player wander randomly instead.
+ * Ticks allocate nothing, so the mover scales to many ghosts.
+ */
+public class ChasingGhostMover extends AbstractGhostMover {
+	
+	private final FlowField field;
+	
+	/**
+	 * Create a chasing mover for the given game.
+	 * @param game The game whose ghosts are to be moved.
+	 */
+	public ChasingGhostMover(IGameInteractor game) {
+		super(game);
+		field = new FlowField(game.getBoardInspector());
+	}
+	
+	/**
+	 * @return The flow field the ghosts follow.
+	 */
+	public FlowField getField() {
+		return field;
+	}
+	
+	/**
+	 * Move every ghost one step closer to the player.
+	 */
+	@Override
+	public void doTick() {
+		Player p = gameInteraction().getPlayer();
+		if (p.isAlive()) {
+			field.update(cellOf(p.getTile()));
+			List<Ghost> ghosts = getGhosts();
+			for (int i = 0; i < ghosts.size(); i++) {
+				moveGhost(ghosts.get(i));
+			}
+		}
+	}
+	
+	/**
+	 * @param theGhost The ghost to be moved along the field.
+	 */
+	private void moveGhost(Ghost theGhost) {
+		Direction dir = field.towards(cellOf(theGhost.getTile()));
+		if (dir == null) {
+			dir = randomLegalDirection(theGhost);
+		}
+		if (dir != null) {
+			gameInteraction().moveGhost(theGhost, dir);
+		}
+	}
+	
+	/**
+	 * @param t A tile
+	 * @return The index of its cell in the flow field.
+	 */
+	private int cellOf(Tile t) {
+		return field.cell(t.getX(), t.getY());
+	}
+}
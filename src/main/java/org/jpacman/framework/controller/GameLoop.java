@@ -0,0 +1,291 @@
+package org.jpacman.framework.controller;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.Game;
+import org.jpacman.framework.model.GameSnapshot;
+import org.jpacman.framework.model.Ghost;
+import org.jpacman.framework.model.IGameInteractor;
+import org.jpacman.framework.model.RenderStatePublisher;
+
+/**
+ * Game loop in which a single writer thread owns the game.
+ * <p>
+ * Any thread may submit commands, such as player moves, ghost moves,
+ * or starting and stopping play. Commands are put in a lock-free queue,
+ * which the writer thread drains at the start of every tick, before
+ * advancing the game through its {@link TickEngine}. As only the writer
+ * touches the game, no locks are needed.
+ * <p>
+ * After every tick the writer publishes a snapshot of the game, so
+ * that a reader on another thread can read the latest state without
+ * taking a lock. Like a render state publisher, the snapshots are
+ * triple buffered: the writer fills its back buffer and swaps it with
+ * the shared middle one, and the reader swaps its front buffer with the
+ * middle one once that is newer, so no snapshot is allocated per tick.
+ * The snapshot serves a single reader; renderers should rather use a
+ * render state publisher of their own.
+ * <p>
+ * As a controller, the loop's {@link #start()} and {@link #stop()}
+ * submit commands to start and stop play; the writer thread itself
+ * is started with {@link #launch()} and ended with {@link #shutdown()}.
+ */
+public class GameLoop implements IController {
+	
+	private static final long NANOS_PER_MILLI = 1000000L;
+	
+	/**
+	 * The default time between two ticks.
+	 */
+	public static final long DEFAULT_TICK_NANOS = TickEngine.TICK_MILLIS * NANOS_PER_MILLI;
+	
+	private final Game theGame;
+	private final TickEngine engine;
+	private final long tickNanos;
+	
+	private final Queue<IGameCommand> commands = new ConcurrentLinkedQueue<IGameCommand>();
+	
+	/**
+	 * Whether ticks advance the game; only changed by the writer.
+	 */
+	private volatile boolean playing;
+	
+	private volatile boolean running;
+	private Thread writer;
+	
+	/**
+	 * A snapshot buffer, with the tick it was filled at.
+	 */
+	private static final class Buffer {
+		private final GameSnapshot snapshot = new GameSnapshot();
+		private long tick;
+	}
+	
+	private final AtomicReference<Buffer> middle = new AtomicReference<Buffer>(new Buffer());
+	private Buffer back = new Buffer();
+	private Buffer front = new Buffer();
+	private long published;
+	private volatile long latestTick;
+	
+	private final List<RenderStatePublisher> renderStates =
+		new CopyOnWriteArrayList<RenderStatePublisher>();
+	
+	/**
+	 * Create a loop for the given game.
+	 * @param game The game to be owned by the loop.
+	 * @param nanos Time between two ticks, or 0 to tick as fast as possible.
+	 */
+	public GameLoop(Game game, long nanos) {
+		assert game != null;
+		assert nanos >= 0;
+		theGame = game;
+		engine = new TickEngine(game);
+		tickNanos = nanos;
+		publish();
+		getPublishedState();
+	}
+	
+	/**
+	 * Create a loop ticking at the default rate.
+	 * @param game The game to be owned by the loop.
+	 */
+	public GameLoop(Game game) {
+		this(game, DEFAULT_TICK_NANOS);
+	}
+	
+	/**
+	 * @return The engine advancing the game, to which controllers 
+	 * such as ghost movers can be added before launching.
+	 */
+	public TickEngine getEngine() {
+		return engine;
+	}
+	
+	/**
+	 * Let the writer publish the render state of the game after every tick.
+	 * @param states Publisher, with a single reader of its own.
+	 * @return Itself for fluency.
+	 */
+	public GameLoop publishingTo(RenderStatePublisher states) {
+		assert states != null;
+		renderStates.add(states);
+		return this;
+	}
+	
+	/**
+	 * Submit a command, to be executed by the writer at the next tick.
+	 * @param command The command.
+	 */
+	public void submit(IGameCommand command) {
+		assert command != null;
+		commands.add(command);
+	}
+	
+	/**
+	 * Submit a player move.
+	 * @param dir The direction to move to.
+	 */
+	public void submitPlayerMove(final Direction dir) {
+		submit(new IGameCommand() {
+			@Override
+			public void execute(IGameInteractor game) {
+				if (playing) {
+					game.movePlayer(dir);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Submit a ghost move.
+	 * @param ghost The ghost to be moved
+	 * @param dir The direction to move to.
+	 */
+	public void submitGhostMove(final Ghost ghost, final Direction dir) {
+		submit(new IGameCommand() {
+			@Override
+			public void execute(IGameInteractor game) {
+				if (playing) {
+					game.moveGhost(ghost, dir);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * @param play Whether play should start or stop.
+	 */
+	private void submitPlaying(final boolean play) {
+		submit(new IGameCommand() {
+			@Override
+			public void execute(IGameInteractor game) {
+				playing = play;
+			}
+		});
+	}
+	
+	/**
+	 * Submit a command to start play.
+	 */
+	@Override
+	public void start() {
+		submitPlaying(true);
+	}
+	
+	/**
+	 * Submit a command to stop play.
+	 */
+	@Override
+	public void stop() {
+		submitPlaying(false);
+	}
+	
+	/**
+	 * Conduct a single tick: drain the commands, advance the game if
+	 * playing, and publish the resulting state.
+	 * Should only be called by the owner of the game.
+	 */
+	@Override
+	public void doTick() {
+		theGame.beginTick();
+		try {
+			for (IGameCommand c = commands.poll(); c != null; c = commands.poll()) {
+				c.execute(theGame);
+			}
+			if (playing) {
+				engine.advance();
+			}
+		} finally {
+			theGame.endTick();
+		}
+		publish();
+		for (RenderStatePublisher states : renderStates) {
+			states.publish(theGame);
+		}
+	}
+	
+	/**
+	 * Take a snapshot into the back buffer, and make it the latest.
+	 * Only to be called by the writer.
+	 */
+	private void publish() {
+		published++;
+		theGame.snapshot(back.snapshot);
+		back.tick = published;
+		back = middle.getAndSet(back);
+		latestTick = published;
+	}
+	
+	/**
+	 * Start the writer thread owning the game.
+	 */
+	public synchronized void launch() {
+		assert writer == null : "PRE: loop should not be running";
+		running = true;
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				loop();
+			}
+		}, "jpacman-game-loop");
+		writer.setDaemon(true);
+		writer.start();
+	}
+	
+	/**
+	 * Tick until shut down, keeping the ticks apart by the tick time.
+	 */
+	private void loop() {
+		long next = System.nanoTime();
+		while (running) {
+			doTick();
+			next += tickNanos;
+			for (long wait = next - System.nanoTime(); wait > 0 && running;
+					wait = next - System.nanoTime()) {
+				LockSupport.parkNanos(wait);
+			}
+		}
+	}
+	
+	/**
+	 * End the writer thread, and wait until it is done.
+	 */
+	public synchronized void shutdown() {
+		running = false;
+		if (writer != null && writer != Thread.currentThread()) {
+			LockSupport.unpark(writer);
+			try {
+				writer.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		writer = null;
+	}
+	
+	/**
+	 * @return True iff play has been started and not stopped.
+	 */
+	public boolean isPlaying() {
+		return playing;
+	}
+	
+	/**
+	 * Obtain the state published after the most recent tick, without
+	 * locking. It remains valid and unchanged until the next call of
+	 * this method. Only to be called by a single reading thread.
+	 * @return The latest published state, which can only be read.
+	 */
+	public GameSnapshot getPublishedState() {
+		if (latestTick > front.tick) {
+			front = middle.getAndSet(front);
+		}
+		return front.snapshot;
+	}
+}
@@ -0,0 +1,16 @@
+package org.jpacman.framework.controller;
+
+import org.jpacman.framework.model.IGameInteractor;
+
+/**
+ * Factory creating a fresh controller for every game,
+ * for example when many games are played in a batch.
+ */
+public interface IControllerFactory {
+
+	/**
+	 * @param game The game to be controlled.
+	 * @return A new controller for the given game.
+	 */
+	IController makeController(IGameInteractor game);
+}
@@ -0,0 +1,15 @@
+package org.jpacman.framework.controller;
+
+import org.jpacman.framework.model.IGameInteractor;
+
+/**
+ * A command to be executed on a game by the thread owning it.
+ */
+public interface IGameCommand {
+	
+	/**
+	 * Carry out the command.
+	 * @param game The game to act upon.
+	 */
+	void execute(IGameInteractor game);
+}
@@ -0,0 +1,16 @@
+package org.jpacman.framework.controller;
+
+import org.jpacman.framework.factory.IGameFactory;
+
+/**
+ * Supplier of game factories, so that every thread building games
+ * can use a factory of its own: a factory keeps track of the game
+ * it is building, so it can't build two games at the same time.
+ */
+public interface IGameFactorySupplier {
+
+	/**
+	 * @return A new factory, not shared with any other thread.
+	 */
+	IGameFactory makeFactory();
+}
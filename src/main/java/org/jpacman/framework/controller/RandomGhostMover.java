@@ -3,6 +3,7 @@ package org.jpacman.framework.controller;
 import org.jpacman.framework.model.Ghost;
 import org.jpacman.framework.model.IGameInteractor;
 import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.SplitRandom;
 
 
 /**
@@ -21,17 +22,29 @@ public class RandomGhostMover extends AbstractGhostMover {
         super(theEngine);
     }
 
+    /**
+     * Start a new mover with its own random stream.
+     *
+     * @param theEngine Engine used.
+     * @param random Random stream used to pick moves.
+     */
+    public RandomGhostMover(final IGameInteractor theEngine, SplitRandom random) {
+        super(theEngine, random);
+    }
+
     /**
      * Actually conduct a random move in the underlying engine.
+     * Only directions not blocked by a wall are considered.
+     * The caller owns the game: the timer holds its lock,
+     * and a game loop's writer thread needs none.
      */
     public void doTick() {
-        synchronized (gameInteraction()) {
-            Ghost theGhost = getRandomGhost();
-            if (theGhost == null) {
-                return;
-            }
-            int dirIndex = getRandomizer().nextInt(Direction.values().length);
-            final Direction dir = Direction.values()[dirIndex];
+        Ghost theGhost = getRandomGhost();
+        if (theGhost == null) {
+            return;
+        }
+        final Direction dir = randomLegalDirection(theGhost);
+        if (dir != null) {
             gameInteraction().moveGhost(theGhost, dir);
         }
     }
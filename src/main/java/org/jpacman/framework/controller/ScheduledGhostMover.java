@@ -0,0 +1,186 @@
+package org.jpacman.framework.controller;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.Ghost;
+import org.jpacman.framework.model.IGameInteractor;
+
+/**
+ * Ghost mover advancing every ghost at its own speed, rather than
+ * one randomly chosen ghost per tick, so that ghosts behave the same
+ * no matter how many of them there are.
+ * <p>
+ * The speed of a ghost is given as its period: the number of ticks
+ * between two of its moves. The next move of every ghost is kept in a
+ * timing wheel: an array of slots, one per tick modulo the wheel size,
+ * each holding a list of ghosts threaded through a primitive array.
+ * A tick only visits the slot of the current tick, so it costs time
+ * in the number of ghosts moved, not in the number of ghosts.
+ * <p>
+ * By default, ghosts take a random open direction; subclasses can
+ * override {@link #chooseDirection(Ghost)} for other strategies.
+ */
+public class ScheduledGhostMover extends AbstractGhostMover {
+
+	/**
+	 * Number of slots in the timing wheel.
+	 */
+	public static final int WHEEL_SIZE = 256;
+
+	/**
+	 * The largest period a ghost can have, in ticks.
+	 */
+	public static final int MAX_PERIOD = WHEEL_SIZE - 1;
+
+	private static final int MASK = WHEEL_SIZE - 1;
+	private static final int NONE = -1;
+
+	/**
+	 * First ghost due per slot, and the next ghost due at the same
+	 * slot per ghost, or -1 at the end of the list.
+	 */
+	private final int[] slotHead = new int[WHEEL_SIZE];
+	private int[] nextInSlot = new int[0];
+	private int[] period = new int[0];
+	private boolean scheduled;
+	private long now;
+	private long moves;
+
+	/**
+	 * Create a mover in which every ghost moves every tick.
+	 * @param game The game whose ghosts are to be moved.
+	 */
+	public ScheduledGhostMover(IGameInteractor game) {
+		super(game);
+		Arrays.fill(slotHead, NONE);
+	}
+
+	/**
+	 * Set the speed of a ghost, which takes effect after its next move.
+	 * @param ghost Index of the ghost in the game's ghost list
+	 * @param ticks Number of ticks between two of its moves.
+	 * @return Itself, for fluency.
+	 */
+	public ScheduledGhostMover withPeriod(int ghost, int ticks) {
+		assert ticks > 0 && ticks <= MAX_PERIOD : "PRE: period out of range: " + ticks;
+		ensureCapacity(ghost + 1);
+		period[ghost] = ticks;
+		return this;
+	}
+
+	/**
+	 * @param ghost Index of a ghost
+	 * @return Number of ticks between two of its moves.
+	 */
+	public int getPeriod(int ghost) {
+		int result = 1;
+		if (ghost < period.length) {
+			result = period[ghost];
+		}
+		return result;
+	}
+
+	/**
+	 * @param ghosts Number of ghosts to keep a period for.
+	 */
+	private void ensureCapacity(int ghosts) {
+		if (period.length < ghosts) {
+			int old = period.length;
+			period = Arrays.copyOf(period, ghosts);
+			nextInSlot = Arrays.copyOf(nextInSlot, ghosts);
+			Arrays.fill(period, old, ghosts, 1);
+		}
+	}
+
+	/**
+	 * Start moving, rebuilding the wheel for the ghost list reloaded
+	 * from the game, which may have been restarted meanwhile.
+	 */
+	@Override
+	public void start() {
+		synchronized (gameInteraction()) {
+			super.start();
+			Arrays.fill(slotHead, NONE);
+			scheduled = false;
+		}
+	}
+
+	/**
+	 * Schedule the first move of every ghost, one period from now.
+	 */
+	private void schedule() {
+		int ghosts = getGhosts().size();
+		ensureCapacity(ghosts);
+		for (int g = 0; g < ghosts; g++) {
+			enqueue(g, now + period[g]);
+		}
+		scheduled = true;
+	}
+
+	/**
+	 * @param ghost Index of a ghost
+	 * @param tick The tick at which it is to move next.
+	 */
+	private void enqueue(int ghost, long tick) {
+		int slot = (int) (tick & MASK);
+		nextInSlot[ghost] = slotHead[slot];
+		slotHead[slot] = ghost;
+	}
+
+	/**
+	 * Move all ghosts that are due in this tick, and schedule
+	 * their next moves.
+	 */
+	@Override
+	public void doTick() {
+		if (!scheduled) {
+			schedule();
+		}
+		now++;
+		int slot = (int) (now & MASK);
+		int ghost = slotHead[slot];
+		slotHead[slot] = NONE;
+		List<Ghost> ghosts = getGhosts();
+		while (ghost != NONE) {
+			int following = nextInSlot[ghost];
+			moveGhost(ghosts.get(ghost));
+			enqueue(ghost, now + period[ghost]);
+			ghost = following;
+		}
+	}
+
+	/**
+	 * @param theGhost A ghost that is due.
+	 */
+	private void moveGhost(Ghost theGhost) {
+		moves++;
+		Direction dir = chooseDirection(theGhost);
+		if (dir != null) {
+			gameInteraction().moveGhost(theGhost, dir);
+		}
+	}
+
+	/**
+	 * @param theGhost A ghost that is due to move
+	 * @return The direction it should move in, or null to stay.
+	 */
+	protected Direction chooseDirection(Ghost theGhost) {
+		return randomLegalDirection(theGhost);
+	}
+
+	/**
+	 * @return Number of ticks conducted.
+	 */
+	public long getTicks() {
+		return now;
+	}
+
+	/**
+	 * @return Number of ghost moves attempted so far.
+	 */
+	public long getMoves() {
+		return moves;
+	}
+}
@@ -0,0 +1,222 @@
+package org.jpacman.framework.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.IGameInteractor;
+
+/**
+ * Headless engine advancing a game in discrete, fixed-length ticks.
+ * <p>
+ * Each tick first applies the player moves queued since the
+ * previous tick, then lets every controller that is due conduct
+ * its {@link IController#doTick()}, and finally checks whether the
+ * game was won or lost. Controllers are given a period in ticks,
+ * so a ghost mover may move every tick while an animator only acts
+ * every few ticks. Their own (Swing) timers are never started: the
+ * engine is the only source of time.
+ * <p>
+ * The engine does not wait between ticks, so games can be simulated
+ * as fast as the processor allows, either by calling
+ * {@link #runTicks(long)} directly, or on a plain thread through
+ * {@link #start()} and {@link #stop()}. A tick stands for
+ * {@link #TICK_MILLIS} milliseconds of game time.
+ */
+public class TickEngine implements IController {
+	
+	/**
+	 * The game time represented by a single tick.
+	 */
+	public static final int TICK_MILLIS = AbstractGhostMover.DELAY;
+	
+	/**
+	 * Underlying game engine.
+	 */
+	private final IGameInteractor theGame;
+	
+	/**
+	 * The controllers to be ticked, and their periods.
+	 */
+	private final List<IController> controllers = new ArrayList<IController>();
+	private final List<Integer> periods = new ArrayList<Integer>();
+	
+	/**
+	 * Player moves submitted, possibly from other threads,
+	 * but not yet applied.
+	 */
+	private final Queue<Direction> playerMoves = new ConcurrentLinkedQueue<Direction>();
+	
+	/**
+	 * Number of ticks conducted so far.
+	 */
+	private long ticks;
+	
+	/**
+	 * The thread running the ticks, if started.
+	 */
+	private Thread runner;
+	private volatile boolean running;
+	
+	/**
+	 * Create an engine for the given game.
+	 * @param game The game to be advanced.
+	 */
+	public TickEngine(IGameInteractor game) {
+		assert game != null;
+		theGame = game;
+	}
+	
+	/**
+	 * Let a controller act every given number of ticks.
+	 * @param controller The controller to be ticked.
+	 * @param period Number of ticks between two of its actions.
+	 * @return Itself, for fluency.
+	 */
+	public TickEngine controlling(IController controller, int period) {
+		assert controller != null;
+		assert period > 0 : "PRE: period must be positive but is " + period;
+		controllers.add(controller);
+		periods.add(period);
+		return this;
+	}
+	
+	/**
+	 * Let a controller act every tick.
+	 * @param controller The controller to be ticked.
+	 * @return Itself, for fluency.
+	 */
+	public TickEngine controlling(IController controller) {
+		return controlling(controller, 1);
+	}
+	
+	/**
+	 * Submit a player move, to be applied at the start of the next tick.
+	 * May be called from any thread.
+	 * @param dir Direction the player should move to.
+	 */
+	public void queuePlayerMove(Direction dir) {
+		assert dir != null;
+		playerMoves.add(dir);
+	}
+	
+	/**
+	 * Conduct a single tick: player input, controllers, state check.
+	 * The game's events of the tick are delivered as one batch.
+	 * Does nothing once the game is over.
+	 */
+	@Override
+	public void doTick() {
+		synchronized (theGame) {
+			advance();
+		}
+	}
+	
+	/**
+	 * Conduct a single tick without locking the game,
+	 * for callers that are the sole owner of the game.
+	 */
+	public void advance() {
+		if (!isOver()) {
+			theGame.beginTick();
+			try {
+				tick();
+			} finally {
+				theGame.endTick();
+			}
+		}
+	}
+	
+	/**
+	 * Apply the player moves, and let the controllers due act.
+	 */
+	private void tick() {
+		for (Direction dir = playerMoves.poll(); dir != null && !isOver(); 
+				dir = playerMoves.poll()) {
+			theGame.movePlayer(dir);
+		}
+		for (int i = 0; i < controllers.size() && !isOver(); i++) {
+			if (ticks % periods.get(i) == 0) {
+				controllers.get(i).doTick();
+			}
+		}
+		ticks++;
+	}
+	
+	/**
+	 * Run ticks back to back, until the game is over or 
+	 * the given number of ticks has been conducted.
+	 * @param maxTicks Maximum number of ticks to conduct.
+	 * @return The number of ticks actually conducted.
+	 */
+	public long runTicks(long maxTicks) {
+		long done = 0;
+		while (done < maxTicks && !isOver()) {
+			doTick();
+			done++;
+		}
+		return done;
+	}
+	
+	/**
+	 * Start running ticks at unbounded speed on a separate thread,
+	 * until the game is over or the engine is stopped.
+	 */
+	@Override
+	public synchronized void start() {
+		if (runner == null) {
+			running = true;
+			runner = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					while (running && !isOver()) {
+						doTick();
+					}
+				}
+			}, "jpacman-ticks");
+			runner.setDaemon(true);
+			runner.start();
+		}
+	}
+	
+	/**
+	 * Stop the thread running the ticks, and wait until it is done.
+	 */
+	@Override
+	public synchronized void stop() {
+		running = false;
+		if (runner != null && runner != Thread.currentThread()) {
+			try {
+				runner.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		runner = null;
+	}
+	
+	/**
+	 * @return True iff the game has been won or lost.
+	 */
+	public boolean isOver() {
+		return theGame.died() || theGame.won();
+	}
+	
+	/**
+	 * @return Number of ticks conducted so far.
+	 */
+	public long getTicks() {
+		synchronized (theGame) {
+			return ticks;
+		}
+	}
+	
+	/**
+	 * @return The game time that has passed, in milliseconds.
+	 */
+	public long getGameMillis() {
+		return getTicks() * TICK_MILLIS;
+	}
+}
@@ -0,0 +1,313 @@
+package org.jpacman.framework.controller;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Scheduler running the periodic ticks of many controllers, e.g., of
+ * many games in the same virtual machine, on a few threads rather than
+ * on a timer per controller funnelled through the event thread.
+ * <p>
+ * A single timer thread advances a hashed timing wheel: an array of
+ * slots, one per timer tick modulo the wheel size, each holding a
+ * list of the tasks due in it. Tasks due more than a revolution ahead
+ * carry the number of revolutions left to wait. A timer tick only visits
+ * its own slot, so it costs time in the number of tasks it visits,
+ * not in the number of tasks registered.
+ * <p>
+ * Due tasks are handed to a small pool of worker threads. Every task
+ * is registered with an affinity, typically its game, and all tasks
+ * of the same affinity run on the same worker, so the ticks of a game
+ * never run concurrently. A task that is still waiting for its worker
+ * when it is due again is not queued twice, just like
+ * <code>javax.swing.Timer</code> coalesces its events.
+ */
+public class TickScheduler {
+
+	/**
+	 * Duration of a timer tick, in milliseconds.
+	 */
+	public static final int RESOLUTION = 10;
+
+	/**
+	 * Number of slots in the timing wheel.
+	 */
+	public static final int WHEEL_SIZE = 512;
+
+	/**
+	 * Largest number of workers used by the shared scheduler.
+	 */
+	public static final int MAX_WORKERS = 4;
+
+	private static final int MASK = WHEEL_SIZE - 1;
+	private static final long NANOS_PER_MILLI = 1000000L;
+
+	private static TickScheduler shared;
+
+	/**
+	 * First task per slot of the wheel; the others are threaded through
+	 * {@link Task#nextInSlot}. Only touched by the timer thread.
+	 */
+	private final Task[] slotHead = new Task[WHEEL_SIZE];
+
+	/**
+	 * Tasks started since the timer thread last looked.
+	 */
+	private final LinkedBlockingQueue<Task> started = new LinkedBlockingQueue<Task>();
+
+	private final ExecutorService[] workers;
+	private final Thread timer;
+	private long now;
+	private long origin;
+	private int scheduled;
+
+	/**
+	 * Create a scheduler and start its timer and worker threads,
+	 * which are daemons.
+	 * @param workerCount Number of worker threads.
+	 */
+	public TickScheduler(int workerCount) {
+		assert workerCount > 0 : "PRE: at least one worker";
+		ThreadFactory daemons = new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread result = new Thread(r, "jpacman-tick-worker");
+				result.setDaemon(true);
+				return result;
+			}
+		};
+		workers = new ExecutorService[workerCount];
+		for (int i = 0; i < workerCount; i++) {
+			workers[i] = Executors.newSingleThreadExecutor(daemons);
+		}
+		timer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runTimer();
+			}
+		}, "jpacman-tick-timer");
+		timer.setDaemon(true);
+		timer.start();
+	}
+
+	/**
+	 * @return The scheduler shared by all controllers of this
+	 *   virtual machine, created when first asked for.
+	 */
+	public static synchronized TickScheduler shared() {
+		if (shared == null) {
+			int cpus = Runtime.getRuntime().availableProcessors();
+			shared = new TickScheduler(Math.min(MAX_WORKERS, cpus));
+		}
+		return shared;
+	}
+
+	/**
+	 * Register a periodic action, which runs once started.
+	 * @param affinity Object whose actions never run concurrently
+	 * @param periodMillis Time between two runs, in milliseconds
+	 * @param action The action to run.
+	 * @return The task, to start and stop the action with.
+	 */
+	public Task register(Object affinity, long periodMillis, Runnable action) {
+		assert affinity != null && action != null;
+		assert periodMillis > 0 : "PRE: positive period";
+		int worker = (affinity.hashCode() & Integer.MAX_VALUE) % workers.length;
+		long ticks = Math.max(1, (periodMillis + RESOLUTION / 2) / RESOLUTION);
+		return new Task(workers[worker], ticks, action);
+	}
+
+	/**
+	 * Stop the timer and worker threads. Tasks won't run anymore.
+	 */
+	public void shutdown() {
+		timer.interrupt();
+		for (ExecutorService worker : workers) {
+			worker.shutdown();
+		}
+	}
+
+	/**
+	 * Advance the wheel at its resolution, until interrupted.
+	 * While no task is scheduled, wait for one to be started.
+	 */
+	private void runTimer() {
+		origin = System.nanoTime();
+		boolean interrupted = false;
+		while (!interrupted) {
+			try {
+				awaitTick();
+				admitStarted();
+				fireSlot();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			} catch (RejectedExecutionException e) {
+				interrupted = true;
+			}
+		}
+	}
+
+	/**
+	 * Wait until the next timer tick is due, or, if the wheel is empty,
+	 * until a task is started.
+	 * @throws InterruptedException If the timer is shut down.
+	 */
+	private void awaitTick() throws InterruptedException {
+		if (scheduled == 0) {
+			Task first = started.take();
+			started.add(first);
+			origin = System.nanoTime() - now * RESOLUTION * NANOS_PER_MILLI;
+		}
+		now++;
+		long wait = origin + now * RESOLUTION * NANOS_PER_MILLI - System.nanoTime();
+		if (wait > 0) {
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+	}
+
+	/**
+	 * Put the tasks started since the last timer tick in the wheel.
+	 */
+	private void admitStarted() {
+		for (Task t = started.poll(); t != null; t = started.poll()) {
+			if (!t.inWheel) {
+				t.inWheel = true;
+				scheduled++;
+				enqueue(t, now + t.ticks);
+			}
+		}
+	}
+
+	/**
+	 * @param t Task to put in the wheel
+	 * @param due The timer tick at which it should run.
+	 */
+	private void enqueue(Task t, long due) {
+		int slot = (int) (due & MASK);
+		t.rounds = (due - now - 1) / WHEEL_SIZE;
+		t.nextInSlot = slotHead[slot];
+		slotHead[slot] = t;
+	}
+
+	/**
+	 * Run the tasks due in the current timer tick, reschedule them,
+	 * and drop the tasks stopped in the meantime.
+	 */
+	private void fireSlot() {
+		int slot = (int) (now & MASK);
+		Task t = slotHead[slot];
+		slotHead[slot] = null;
+		while (t != null) {
+			Task following = t.nextInSlot;
+			t.nextInSlot = null;
+			if (!t.running) {
+				t.inWheel = false;
+				scheduled--;
+			} else if (t.rounds > 0) {
+				t.rounds--;
+				relink(t, slot);
+			} else {
+				t.fire();
+				enqueue(t, now + t.ticks);
+			}
+			t = following;
+		}
+	}
+
+	/**
+	 * @param t Task waiting for another revolution of the wheel
+	 * @param slot The slot it stays in.
+	 */
+	private void relink(Task t, int slot) {
+		t.nextInSlot = slotHead[slot];
+		slotHead[slot] = t;
+	}
+
+	/**
+	 * A periodic action registered with the scheduler,
+	 * which can be started and stopped like a timer.
+	 */
+	public final class Task implements Runnable {
+
+		private final ExecutorService worker;
+		private final long ticks;
+		private final Runnable action;
+		private final AtomicBoolean queued = new AtomicBoolean();
+		private volatile boolean running;
+
+		/**
+		 * Fields of the timing wheel, only touched by the timer thread.
+		 */
+		private Task nextInSlot;
+		private long rounds;
+		private boolean inWheel;
+
+		/**
+		 * @param executor The worker to run the action on
+		 * @param period Number of timer ticks between two runs
+		 * @param runnable The action to run.
+		 */
+		private Task(ExecutorService executor, long period, Runnable runnable) {
+			worker = executor;
+			ticks = period;
+			action = runnable;
+		}
+
+		/**
+		 * Start running the action periodically, the first time one
+		 * period from now. Does nothing if it is running already.
+		 */
+		public synchronized void start() {
+			if (!running) {
+				running = true;
+				started.add(this);
+			}
+		}
+
+		/**
+		 * Stop running the action. A run that has begun is completed.
+		 */
+		public synchronized void stop() {
+			running = false;
+		}
+
+		/**
+		 * @return True iff the action is run periodically.
+		 */
+		public boolean isRunning() {
+			return running;
+		}
+
+		/**
+		 * @return Time between two runs, in milliseconds.
+		 */
+		public long getPeriod() {
+			return ticks * RESOLUTION;
+		}
+
+		/**
+		 * Hand the action to its worker, unless it is still waiting there.
+		 */
+		private void fire() {
+			if (queued.compareAndSet(false, true)) {
+				worker.execute(this);
+			}
+		}
+
+		/**
+		 * Run the action on the worker, unless stopped meanwhile.
+		 */
+		@Override
+		public void run() {
+			queued.set(false);
+			if (running) {
+				action.run();
+			}
+		}
+	}
+}
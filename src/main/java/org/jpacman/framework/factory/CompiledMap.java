@@ -0,0 +1,254 @@
+package org.jpacman.framework.factory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.jpacman.framework.model.FoodLayer;
+import org.jpacman.framework.model.MazeTemplate;
+import org.jpacman.framework.model.NeighbourTable;
+import org.jpacman.framework.model.WallMap;
+
+/**
+ * Compact binary format for compiled maps, which can be loaded
+ * without decoding the map character by character.
+ * <p>
+ * A compiled map consists of (all big-endian):
+ * <ul>
+ * <li> the magic number and format version (two ints);
+ * <li> the width and height (two ints);
+ * <li> the number of player start cells, followed by those cells;
+ * <li> the number of ghost start cells, followed by those cells;
+ * <li> the packed cell types, as two bitplanes of
+ *      <code>cells / 64 + 1</code> longs each: first the walls,
+ *      then the food.
+ * </ul>
+ * Cells are identified by their index <code>x + y * width</code>.
+ * Compiled map files are memory-mapped when loaded.
+ * <p>
+ * Run as a program to compile a textual map file.
+ */
+public final class CompiledMap {
+	
+	/**
+	 * The first four bytes of any compiled map: "JPMZ".
+	 */
+	public static final int MAGIC = 0x4A504D5A;
+	
+	/**
+	 * The version of the format written.
+	 */
+	public static final int VERSION = 1;
+	
+	private static final int WORD_SHIFT = 6;
+	private static final int MAGIC_BYTES = Integer.SIZE / Byte.SIZE;
+	private static final int LONG_BYTES = Long.SIZE / Byte.SIZE;
+	private static final int BITPLANES = 2;
+	
+	private CompiledMap() {
+		// static methods only.
+	}
+	
+	/**
+	 * Write a maze in compiled form.
+	 * @param maze The maze to be written
+	 * @param file The file to write to
+	 * @throws FactoryException If the file can't be written.
+	 */
+	public static void write(MazeTemplate maze, File file) throws FactoryException {
+		try {
+			DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(file)));
+			try {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(maze.getWidth());
+				out.writeInt(maze.getHeight());
+				writeCells(out, maze.getPlayerCells());
+				writeCells(out, maze.getGhostCells());
+				writeBits(out, maze.getWallMap().getBits());
+				writeBits(out, maze.newFoodLayer().getBits());
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			throw new FactoryException("Problem writing file " + file, e);
+		}
+	}
+	
+	private static void writeCells(DataOutputStream out, int[] cells) throws IOException {
+		out.writeInt(cells.length);
+		for (int c : cells) {
+			out.writeInt(c);
+		}
+	}
+	
+	private static void writeBits(DataOutputStream out, long[] bits) throws IOException {
+		for (long word : bits) {
+			out.writeLong(word);
+		}
+	}
+	
+	/**
+	 * Compile a textual map into a compiled map file.
+	 * @param textMap Resource on the class path containing the textual map
+	 * @param target The file to write the compiled map to
+	 * @throws FactoryException If either file is not ok.
+	 */
+	public static void compile(String textMap, File target) throws FactoryException {
+		write(new MapParser(new DefaultGameFactory()).parseTemplateFromFile(textMap), target);
+	}
+	
+	/**
+	 * Check whether a stream contains a compiled map, without
+	 * consuming any of it.
+	 * @param in Stream supporting mark and reset
+	 * @return True iff the stream starts with the magic number.
+	 * @throws IOException If the stream can't be read.
+	 */
+	public static boolean isCompiled(InputStream in) throws IOException {
+		assert in.markSupported();
+		in.mark(MAGIC_BYTES);
+		int magic = 0;
+		for (int i = 0; i < MAGIC_BYTES; i++) {
+			magic = (magic << Byte.SIZE) | (in.read() & ((1 << Byte.SIZE) - 1));
+		}
+		in.reset();
+		return magic == MAGIC;
+	}
+	
+	/**
+	 * Load a compiled map by memory-mapping its file.
+	 * @param file File containing the compiled map
+	 * @return The maze stored in the file
+	 * @throws FactoryException If the file can't be read or is corrupt.
+	 */
+	public static MazeTemplate read(File file) throws FactoryException {
+		try {
+			FileInputStream in = new FileInputStream(file);
+			try {
+				FileChannel channel = in.getChannel();
+				return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new FactoryException("Problem reading file " + file, e);
+		}
+	}
+	
+	/**
+	 * Load a compiled map from a stream, which is closed afterwards.
+	 * @param in Stream containing the compiled map
+	 * @return The maze stored in the stream
+	 * @throws FactoryException If the stream can't be read or is corrupt.
+	 */
+	public static MazeTemplate read(InputStream in) throws FactoryException {
+		ByteArrayOutputStream contents = new ByteArrayOutputStream();
+		byte[] chunk = new byte[1 << Byte.SIZE];
+		try {
+			try {
+				for (int n = in.read(chunk); n >= 0; n = in.read(chunk)) {
+					contents.write(chunk, 0, n);
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new FactoryException("Problem reading file ", e);
+		}
+		return decode(ByteBuffer.wrap(contents.toByteArray()));
+	}
+	
+	/**
+	 * Build a maze from the bytes of a compiled map.
+	 * @param buffer The compiled map
+	 * @return The maze stored in the buffer
+	 * @throws FactoryException If the contents are corrupt.
+	 */
+	private static MazeTemplate decode(ByteBuffer buffer) throws FactoryException {
+		try {
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				throw new FactoryException("Not a compiled map of version " + VERSION);
+			}
+			NeighbourTable cells = readSize(buffer);
+			int[] players = readCells(buffer, cells);
+			int[] ghosts = readCells(buffer, cells);
+			WallMap walls = new WallMap(cells);
+			walls.addWalls(readBits(buffer, cells));
+			FoodLayer food = new FoodLayer(cells.size(), readBits(buffer, cells));
+			return new MazeTemplate(walls, food, players, ghosts);
+		} catch (BufferUnderflowException e) {
+			throw new FactoryException("Compiled map is truncated", e);
+		}
+	}
+	
+	/**
+	 * Read the width and height, checking them against the size of the
+	 * bitplanes still to come before allocating anything for them.
+	 * @param buffer The compiled map, positioned at the width
+	 * @return The cells of a maze of the given size.
+	 * @throws FactoryException If the size is illegal or too large.
+	 */
+	private static NeighbourTable readSize(ByteBuffer buffer) throws FactoryException {
+		int width = buffer.getInt();
+		int height = buffer.getInt();
+		long size = (long) width * height;
+		long planeBytes = ((size >>> WORD_SHIFT) + 1) * LONG_BYTES;
+		if (width <= 0 || height <= 0 || size > Integer.MAX_VALUE
+				|| BITPLANES * planeBytes > buffer.remaining()) {
+			throw new FactoryException(
+					"Compiled map has illegal size " + width + "x" + height);
+		}
+		return new NeighbourTable(width, height);
+	}
+	
+	private static int[] readCells(ByteBuffer buffer, NeighbourTable cells) 
+			throws FactoryException {
+		int count = buffer.getInt();
+		if (count < 0 || count > cells.size() 
+				|| (long) count * MAGIC_BYTES > buffer.remaining()) {
+			throw new FactoryException("Compiled map has illegal cell count " + count);
+		}
+		int[] result = new int[count];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = buffer.getInt();
+			if (result[i] < 0 || result[i] >= cells.size()) {
+				throw new FactoryException("Compiled map has illegal cell " + result[i]);
+			}
+		}
+		return result;
+	}
+	
+	private static long[] readBits(ByteBuffer buffer, NeighbourTable cells) 
+			throws FactoryException {
+		long[] result = new long[(cells.size() >>> WORD_SHIFT) + 1];
+		buffer.asLongBuffer().get(result);
+		buffer.position(buffer.position() + result.length * LONG_BYTES);
+		if (result[result.length - 1] >>> (cells.size() & (Long.SIZE - 1)) != 0) {
+			throw new FactoryException("Compiled map has bits past its last cell");
+		}
+		return result;
+	}
+	
+	/**
+	 * Compile a textual map.
+	 * @param args Resource containing the textual map, and the file to write.
+	 * @throws FactoryException If reading or writing fails.
+	 */
+	public static void main(String[] args) throws FactoryException {
+		if (args.length != 2) {
+			System.err.println("Usage: CompiledMap <text map resource> <compiled map file>");
+		} else {
+			compile(args[0], new File(args[1]));
+		}
+	}
+}
@@ -4,6 +4,8 @@ import org.jpacman.framework.model.Board;
 import org.jpacman.framework.model.Food;
 import org.jpacman.framework.model.Game;
 import org.jpacman.framework.model.Ghost;
+import org.jpacman.framework.model.MazeTemplate;
+import org.jpacman.framework.model.NeighbourTable;
 import org.jpacman.framework.model.Player;
 import org.jpacman.framework.model.Wall;
 
@@ -13,7 +15,7 @@ import org.jpacman.framework.model.Wall;
  * 
  * @author Arie van Deursen, TU Delft, Jan 22, 2012
  */
-public class DefaultGameFactory implements IGameFactory {
+public class DefaultGameFactory implements IMazeGameFactory {
 
 	private transient Game theGame;
 	
@@ -47,9 +49,14 @@ public class DefaultGameFactory implements IGameFactory {
 		return f;
 	}
 
+	/**
+	 * Walls carry no state, so all walls share a single
+	 * instance, which boards only record in their wall map.
+	 * @return The shared flyweight wall.
+	 */
 	@Override
 	public Wall makeWall() {
-		return new Wall();
+		return Wall.flyweight();
 	}
 
 	@Override
@@ -59,6 +66,27 @@ public class DefaultGameFactory implements IGameFactory {
 		getGame().setBoard(b);
 		return b;
 	}
+	
+	/**
+	 * Create a board of the maze's size, and fill it
+	 * with walls and new food created by this factory.
+	 * @param maze The static layout of the board.
+	 * @return A new board for the given maze.
+	 */
+	@Override
+	public Board makeBoard(MazeTemplate maze) {
+		Board b = makeBoard(maze.getWidth(), maze.getHeight());
+		NeighbourTable cells = maze.getNeighbours();
+		for (int i = 0; i < cells.size(); i++) {
+			if (maze.getWallMap().isWall(i)) {
+				b.put(makeWall(), cells.getX(i), cells.getY(i));
+			}
+			if (maze.hasFood(i)) {
+				b.put(makeFood(), cells.getX(i), cells.getY(i));
+			}
+		}
+		return b;
+	}
 		
 	/**
 	 * @return The game created by this factory.
@@ -0,0 +1,35 @@
+package org.jpacman.framework.factory;
+
+import org.jpacman.framework.model.Board;
+import org.jpacman.framework.model.FlatBoard;
+import org.jpacman.framework.model.MazeTemplate;
+
+/**
+ * A factory creating boards that store their walls and food
+ * in flat arrays, rather than in a tile per cell.
+ * Intended for very large maps, and for many games
+ * sharing the same maze.
+ */
+public class FlatBoardGameFactory extends DefaultGameFactory {
+
+	@Override
+	public Board makeBoard(int w, int h) {
+		Board b = new FlatBoard(w, h);
+		getGame().setBoard(b);
+		return b;
+	}
+	
+	/**
+	 * Create a board sharing the walls of the given maze, without
+	 * creating any wall or food sprites.
+	 * @param maze The static layout of the board.
+	 * @return A new board on top of the given maze.
+	 */
+	@Override
+	public Board makeBoard(MazeTemplate maze) {
+		Board b = new FlatBoard(maze);
+		getGame().setBoard(b);
+		getGame().getPointManager().addPointsToBoard(maze.getFoodPoints());
+		return b;
+	}
+}
@@ -0,0 +1,21 @@
+package org.jpacman.framework.factory;
+
+import org.jpacman.framework.model.Board;
+import org.jpacman.framework.model.MazeTemplate;
+
+/**
+ * A game factory that can also create a board directly from
+ * the static layout of a maze, e.g., to share the maze's walls.
+ * Factories implementing just {@link IGameFactory} get their
+ * boards filled sprite by sprite instead.
+ */
+public interface IMazeGameFactory extends IGameFactory {
+
+	/**
+	 * Create a new board with the walls and food of the given maze.
+	 * The food's points should be added to the game as well.
+	 * @param maze The static layout of the board.
+	 * @return A new board for the given maze.
+	 */
+	Board makeBoard(MazeTemplate maze);
+}
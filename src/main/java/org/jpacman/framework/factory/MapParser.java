@@ -1,14 +1,21 @@
 package org.jpacman.framework.factory;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.jpacman.framework.model.Board;
 import org.jpacman.framework.model.Game;
+import org.jpacman.framework.model.MazeTemplate;
+import org.jpacman.framework.model.NeighbourTable;
 import org.jpacman.framework.model.Sprite;
 
 /**
@@ -55,26 +62,14 @@ public class MapParser {
 	 * @throws FactoryException if input was in wrong format.
 	 */
 	public Game parseMap(String[] map) throws FactoryException {
-        assert map != null;
-        
+        int width = mapWidth(map);
         int height = map.length;
-        if (height == 0) {
-        	throw new FactoryException("Empty map encountered.");
-        }
-
-        int width = map[0].length();
-        if (width == 0) {
-        	throw new FactoryException("Empty row encountered.");
-        }
         
         Game theGame = factory.makeGame();
         theBoard = factory.makeBoard(width, height);
         
         for (int y = 0; y < height; y++) {
-            if (map[y].length() != width) {
-            	throw new FactoryException(
-            			"Row " + y + " has incorrect length.");
-            }
+            checkRow(map, y, width);
             for (int x = 0; x < width; x++) {
              	addSprite(map[y].charAt(x), x, y);
             }
@@ -83,6 +78,135 @@ public class MapParser {
         return theGame;
 	}
 	
+	/**
+	 * @param map Rectangular list of strings, one for each row.
+	 * @return The width of the map.
+	 * @throws FactoryException if the map or its first row is empty.
+	 */
+	private int mapWidth(String[] map) throws FactoryException {
+        assert map != null;
+        if (map.length == 0) {
+        	throw new FactoryException("Empty map encountered.");
+        }
+        int width = map[0].length();
+        if (width == 0) {
+        	throw new FactoryException("Empty row encountered.");
+        }
+        return width;
+	}
+	
+	/**
+	 * @param map Rectangular list of strings, one for each row.
+	 * @param y Row to be checked
+	 * @param width Expected width of the row
+	 * @throws FactoryException if the row has a different width.
+	 */
+	private void checkRow(String[] map, int y, int width) throws FactoryException {
+        if (map[y].length() != width) {
+        	throw new FactoryException(
+        			"Row " + y + " has incorrect length.");
+        }
+	}
+	
+	/**
+	 * Parse a textual representation of a board into
+	 * the static layout of a maze, without creating any
+	 * sprites. The template can be used to create any
+	 * number of games via instantiate.
+	 * 
+	 * @param map Rectangular list of strings, one for each row.
+	 * @return The maze described by the map.
+	 * @throws FactoryException if input was in wrong format.
+	 */
+	public MazeTemplate parseTemplate(String[] map) throws FactoryException {
+		assert map != null;
+		MazeBuilder builder = new MazeBuilder();
+		for (String row : map) {
+			for (int x = 0; x < row.length(); x++) {
+				builder.addCell(row.charAt(x));
+			}
+			builder.endRow();
+		}
+		return builder.build();
+	}
+	
+	/**
+	 * Create a new game on the given maze, with the players
+	 * and ghosts at their starting positions.
+	 * A factory for mazes creates the board, deciding whether it
+	 * shares the maze or gets walls and food of its own.
+	 * Otherwise, or if this parser is a subclass, which may
+	 * override the sprite hooks, the board is filled sprite by
+	 * sprite as when parsing a map.
+	 * 
+	 * @param maze The static layout of the board.
+	 * @return A fresh game on the given maze.
+	 * @throws FactoryException if a sprite can't be handled.
+	 */
+	public Game instantiate(MazeTemplate maze) throws FactoryException {
+		assert maze != null;
+        Game theGame = factory.makeGame();
+        if (factory instanceof IMazeGameFactory && getClass() == MapParser.class) {
+        	theBoard = ((IMazeGameFactory) factory).makeBoard(maze);
+        	addMovers(maze);
+        } else {
+        	theBoard = factory.makeBoard(maze.getWidth(), maze.getHeight());
+        	addSprites(maze);
+        }
+        return theGame;
+	}
+	
+	/**
+	 * Put new players and ghosts at their starting positions.
+	 * @param maze The maze providing the positions.
+	 */
+	private void addMovers(MazeTemplate maze) {
+        NeighbourTable cells = maze.getNeighbours();
+        for (int cell : maze.getPlayerCells()) {
+        	theBoard.put(factory.makePlayer(), cells.getX(cell), cells.getY(cell));
+        }
+        for (int cell : maze.getGhostCells()) {
+        	theBoard.put(factory.makeGhost(), cells.getX(cell), cells.getY(cell));
+        }
+	}
+	
+	/**
+	 * Add the sprites of every cell of the maze, in the order
+	 * in which the map was parsed.
+	 * @param maze The maze providing the sprites.
+	 * @throws FactoryException if a sprite can't be handled.
+	 */
+	private void addSprites(MazeTemplate maze) throws FactoryException {
+        NeighbourTable cells = maze.getNeighbours();
+        char[] codes = spriteCodes(maze);
+        for (int cell = 0; cell < codes.length; cell++) {
+        	addSprite(codes[cell], cells.getX(cell), cells.getY(cell));
+        }
+	}
+	
+	/**
+	 * @param maze The maze to be described
+	 * @return The map character of every cell of the maze.
+	 */
+	private char[] spriteCodes(MazeTemplate maze) {
+        char[] result = new char[maze.getNeighbours().size()];
+        for (int cell = 0; cell < result.length; cell++) {
+        	result[cell] = EMPTY;
+        	if (maze.getWallMap().isWall(cell)) {
+        		result[cell] = WALL;
+        	} else if (maze.hasFood(cell)) {
+        		result[cell] = FOOD;
+        	}
+        }
+        for (int cell : maze.getPlayerCells()) {
+        	result[cell] = PLAYER;
+        }
+        for (int cell : maze.getGhostCells()) {
+        	result[cell] = GHOST;
+        }
+        return result;
+	}
+	
 	/**
 	 * @param spriteCode The sort of sprite to be added
 	 * @param x x-axis
@@ -162,6 +286,83 @@ public class MapParser {
     	return parseMap(getMap(fileName));
     }
     
+    /**
+     * Parse the maze contained in a file, streaming through it
+     * rather than collecting its lines first.
+     * Files in the compiled format (see {@link CompiledMap}) are
+     * recognized by their magic number, and loaded directly.
+     * @param fileName Resource on class path containing the map
+     * @return The static layout of the maze on the map
+     * @throws FactoryException If file/contents are not ok.
+     */
+    public MazeTemplate parseTemplateFromFile(String fileName) throws FactoryException {
+    	assert fileName != null;
+        URL url = Thread.currentThread().getContextClassLoader().getResource(fileName);
+        MazeTemplate result;
+        if (url != null && "file".equals(url.getProtocol())) {
+        	try {
+        		result = parseTemplate(new File(url.toURI()));
+        	} catch (URISyntaxException e) {
+        		throw new FactoryException("Problem locating file " + fileName, e);
+        	}
+        } else {
+        	result = parseTemplate(
+        			new BufferedInputStream(getResourceStream(fileName)), fileName);
+        }
+        return result;
+    }
+    
+    /**
+     * Parse the maze in a file, which is either textual or compiled.
+     * @param file The file containing the map
+     * @return The static layout of the maze on the map
+     * @throws FactoryException If file/contents are not ok.
+     */
+    private MazeTemplate parseTemplate(File file) throws FactoryException {
+    	boolean compiled;
+    	try {
+    		InputStream in = new BufferedInputStream(new FileInputStream(file));
+    		try {
+    			compiled = CompiledMap.isCompiled(in);
+    		} finally {
+    			in.close();
+    		}
+    	} catch (IOException e) {
+    		throw new FactoryException("Problem reading file " + file, e);
+    	}
+    	MazeTemplate result;
+    	if (compiled) {
+    		result = CompiledMap.read(file);
+    	} else {
+    		result = new StreamingMapReader().read(file);
+    	}
+    	return result;
+    }
+    
+    /**
+     * Parse the maze in a stream, which is either textual or compiled.
+     * @param in Stream containing the map, supporting mark and reset
+     * @param fileName Name of the map, for error reporting
+     * @return The static layout of the maze on the map
+     * @throws FactoryException If stream/contents are not ok.
+     */
+    private MazeTemplate parseTemplate(InputStream in, String fileName) 
+    		throws FactoryException {
+    	boolean compiled;
+    	try {
+    		compiled = CompiledMap.isCompiled(in);
+    	} catch (IOException e) {
+    		throw new FactoryException("Problem reading file " + fileName, e);
+    	}
+    	MazeTemplate result;
+    	if (compiled) {
+    		result = CompiledMap.read(in);
+    	} else {
+    		result = new StreamingMapReader().read(in);
+    	}
+    	return result;
+    }
+    
     /**
      * Return the map contained in the file.
      * @param fileName Resource on class path containing the map
@@ -0,0 +1,162 @@
+package org.jpacman.framework.factory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jpacman.framework.model.FoodLayer;
+import org.jpacman.framework.model.MazeTemplate;
+import org.jpacman.framework.model.NeighbourTable;
+import org.jpacman.framework.model.WallMap;
+
+/**
+ * Collect the cells of a map, row by row, into a maze template.
+ * The height of the map need not be known in advance, so that
+ * maps can be fed in while they are being read. Cells are 
+ * recorded as bits only; no text is retained.
+ */
+final class MazeBuilder {
+	
+	private static final int WORD_SHIFT = 6;
+	
+	private long[] walls = new long[1];
+	private long[] food = new long[1];
+	private final List<Integer> players = new ArrayList<Integer>();
+	private final List<Integer> ghosts = new ArrayList<Integer>();
+	
+	/**
+	 * Width of the map, known once the first row is complete.
+	 */
+	private int width = -1;
+	
+	/**
+	 * Number of rows completed, and position in the current row.
+	 */
+	private int height = 0;
+	private int column = 0;
+
+	/**
+	 * Add the next cell of the current row.
+	 * @param spriteCode Character representing the cell's content.
+	 * @throws FactoryException If the code is illegal or the row too long.
+	 */
+	void addCell(char spriteCode) throws FactoryException {
+		if (width >= 0 && column >= width) {
+			throw rowLengthError();
+		}
+		int cell = height * Math.max(width, 0) + column;
+		switch (spriteCode) {
+		case MapParser.PLAYER:
+			players.add(cell);
+			break;
+		case MapParser.GHOST:
+			ghosts.add(cell);
+			break;
+		case MapParser.WALL:
+			walls = set(walls, cell);
+			break;
+		case MapParser.FOOD:
+			food = set(food, cell);
+			break;
+		case MapParser.EMPTY:
+			// nothing.
+			break;
+		default:
+			throw new FactoryException("Illegal sprite code " + spriteCode);
+		}
+		column++;
+	}
+	
+	/**
+	 * Complete the current row.
+	 * @throws FactoryException If the row has the wrong length.
+	 */
+	void endRow() throws FactoryException {
+		if (width < 0) {
+			width = column;
+			if (width == 0) {
+				throw new FactoryException("Empty row encountered.");
+			}
+		} else if (column != width) {
+			throw rowLengthError();
+		}
+		height++;
+		column = 0;
+	}
+	
+	private FactoryException rowLengthError() {
+		return new FactoryException("Row " + height + " has incorrect length.");
+	}
+	
+	/**
+	 * @return True iff cells have been added to a row not yet completed.
+	 */
+	boolean inRow() {
+		return column > 0;
+	}
+	
+	/**
+	 * @return The template for all rows completed.
+	 * @throws FactoryException If no rows were completed.
+	 */
+	MazeTemplate build() throws FactoryException {
+		if (height == 0) {
+			throw new FactoryException("Empty map encountered.");
+		}
+		NeighbourTable cells = new NeighbourTable(width, height);
+		WallMap wallMap = new WallMap(cells);
+		for (int c = next(walls, 0); c >= 0; c = next(walls, c + 1)) {
+			wallMap.addWall(c);
+		}
+		FoodLayer foodLayer = new FoodLayer(cells.size());
+		for (int c = next(food, 0); c >= 0; c = next(food, c + 1)) {
+			foodLayer.add(c);
+		}
+		return new MazeTemplate(wallMap, foodLayer, toArray(players), toArray(ghosts));
+	}
+	
+	/**
+	 * Set a bit, growing the bitset if needed.
+	 * @param bits The bitset
+	 * @param cell Bit to be set
+	 * @return The (possibly new) bitset.
+	 */
+	private static long[] set(long[] bits, int cell) {
+		long[] result = bits;
+		int word = cell >>> WORD_SHIFT;
+		if (word >= bits.length) {
+			result = new long[Math.max(word + 1, 2 * bits.length)];
+			System.arraycopy(bits, 0, result, 0, bits.length);
+		}
+		result[word] |= 1L << cell;
+		return result;
+	}
+	
+	/**
+	 * @param bits The bitset
+	 * @param from First bit to consider
+	 * @return The first bit set at or after from, or -1.
+	 */
+	private static int next(long[] bits, int from) {
+		int word = from >>> WORD_SHIFT;
+		int result = -1;
+		if (word < bits.length) {
+			long w = bits[word] & (-1L << from);
+			while (w == 0 && word + 1 < bits.length) {
+				word++;
+				w = bits[word];
+			}
+			if (w != 0) {
+				result = (word << WORD_SHIFT) + Long.numberOfTrailingZeros(w);
+			}
+		}
+		return result;
+	}
+	
+	private static int[] toArray(List<Integer> cells) {
+		int[] result = new int[cells.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = cells.get(i);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,139 @@
+package org.jpacman.framework.factory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+import org.jpacman.framework.model.MazeTemplate;
+
+/**
+ * Read a textual map into a maze template while streaming
+ * through it, without first collecting the lines of the map.
+ * Files are read through their channel; large files are
+ * memory-mapped instead of copied.
+ * <p>
+ * Maps are read as single-byte characters, using the same
+ * codes as the MapParser.
+ */
+public class StreamingMapReader {
+	
+	/**
+	 * Files of this size and up are memory-mapped by default.
+	 */
+	public static final long DEFAULT_MAPPING_THRESHOLD = 1L << 20;
+	
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int BYTE_MASK = 0xff;
+	
+	private final long mappingThreshold;
+	
+	/**
+	 * Create a reader using the default mapping threshold.
+	 */
+	public StreamingMapReader() {
+		this(DEFAULT_MAPPING_THRESHOLD);
+	}
+	
+	/**
+	 * @param threshold Size in bytes from which files are memory-mapped.
+	 */
+	public StreamingMapReader(long threshold) {
+		mappingThreshold = threshold;
+	}
+	
+	/**
+	 * Read the map contained in a file.
+	 * @param file The file containing the map
+	 * @return The maze described by the map
+	 * @throws FactoryException If the file can't be read or is malformed.
+	 */
+	public MazeTemplate read(File file) throws FactoryException {
+		assert file != null;
+		try {
+			FileInputStream in = new FileInputStream(file);
+			try {
+				FileChannel channel = in.getChannel();
+				MazeTemplate result;
+				if (channel.size() >= mappingThreshold) {
+					result = read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+				} else {
+					result = read(channel);
+				}
+				return result;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new FactoryException("Problem reading file " + file, e);
+		}
+	}
+	
+	/**
+	 * Read the map provided by a stream. The stream is closed afterwards.
+	 * @param in The stream containing the map
+	 * @return The maze described by the map
+	 * @throws FactoryException If the stream can't be read or is malformed.
+	 */
+	public MazeTemplate read(InputStream in) throws FactoryException {
+		assert in != null;
+		try {
+			ReadableByteChannel channel = Channels.newChannel(in);
+			try {
+				return read(channel);
+			} finally {
+				channel.close();
+			}
+		} catch (IOException e) {
+			throw new FactoryException("Problem reading file ", e);
+		}
+	}
+	
+	private MazeTemplate read(ReadableByteChannel channel) 
+			throws IOException, FactoryException {
+		MazeBuilder builder = new MazeBuilder();
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		while (channel.read(buffer) >= 0) {
+			buffer.flip();
+			feed(buffer, builder);
+			buffer.clear();
+		}
+		return finish(builder);
+	}
+	
+	private MazeTemplate read(ByteBuffer contents) throws FactoryException {
+		MazeBuilder builder = new MazeBuilder();
+		feed(contents, builder);
+		return finish(builder);
+	}
+	
+	/**
+	 * Pass all characters in the buffer on to the builder.
+	 * @param buffer Bytes read from the map
+	 * @param builder Receiving the cells
+	 * @throws FactoryException If the map is malformed.
+	 */
+	private void feed(ByteBuffer buffer, MazeBuilder builder) throws FactoryException {
+		int end = buffer.limit();
+		for (int i = buffer.position(); i < end; i++) {
+			char c = (char) (buffer.get(i) & BYTE_MASK);
+			if (c == '\n') {
+				builder.endRow();
+			} else if (c != '\r') {
+				builder.addCell(c);
+			}
+		}
+	}
+	
+	private MazeTemplate finish(MazeBuilder builder) throws FactoryException {
+		// the last row need not end with a newline.
+		if (builder.inRow()) {
+			builder.endRow();
+		}
+		return builder.build();
+	}
+}
@@ -9,7 +9,28 @@ public class Board implements IBoardInspector {
 
 	private final int height;
 	private final int width;
-	private final Tile[][] tiles;
+	private final Tile[] tiles;
+	
+	/**
+	 * Precomputed neighbours of every cell, used for moving around.
+	 */
+	private final NeighbourTable neighbours;
+	
+	/**
+	 * The walls on the board, and the moves they leave open.
+	 */
+	private final WallMap wallMap;
+	
+	/**
+	 * The cells that still contain food.
+	 */
+	private final FoodLayer foodLayer;
+	
+	/**
+	 * The maze compressed into junctions and corridors,
+	 * computed when first asked for.
+	 */
+	private JunctionGraph junctions;
 	
 	/**
 	 * Create a new board.
@@ -17,19 +38,60 @@ public class Board implements IBoardInspector {
 	 * @param h Height of the board.
 	 */
 	public Board(int w, int h) {
-		assert w >= 0 : "PRE1: width should be >= 0 but is " + w;
-		assert h >= 0 : "PRE2: height should be >= 0 but is " + h;
-		width = w;
-		height = h;
-		tiles = new Tile[width][height];
+		this(w, h, true);
+		assert tileInvariant() : "POST: invariant should hold";
+	}
+	
+	/**
+	 * Create a new board, possibly without any tiles.
+	 * Subclasses that keep the cell contents in their own
+	 * storage pass false, and must then override the
+	 * tile and sprite access methods.
+	 * @param w Width of the board
+	 * @param h Height of the board.
+	 * @param createTiles Whether a tile should be created for every cell.
+	 */
+	protected Board(int w, int h, boolean createTiles) {
+		this(new NeighbourTable(w, h), null, createTiles);
+	}
+	
+	/**
+	 * Create a new board without any tiles, sharing the neighbours
+	 * and walls of the given maze, and starting with its food.
+	 * Subclasses must override the tile and sprite access methods.
+	 * @param maze The static layout of the board.
+	 */
+	protected Board(MazeTemplate maze) {
+		this(maze.getNeighbours(), maze, false);
+	}
+	
+	/**
+	 * @param n The neighbours of the cells on the board
+	 * @param maze Layout providing walls and food, or null for an empty board.
+	 * @param createTiles Whether a tile should be created for every cell.
+	 */
+	private Board(NeighbourTable n, MazeTemplate maze, boolean createTiles) {
+		width = n.getWidth();
+		height = n.getHeight();
+		neighbours = n;
+		if (maze == null) {
+			wallMap = new WallMap(neighbours);
+			foodLayer = new FoodLayer(n.size());
+		} else {
+			wallMap = maze.getWallMap();
+			foodLayer = maze.newFoodLayer();
+		}
 		
-		for (int x = 0; x < w; x++) {
-			for (int y = 0; y < h; y++) {
-				tiles[x][y] = new Tile(x, y); 
+		if (createTiles) {
+			tiles = new Tile[width * height];
+			for (int x = 0; x < width; x++) {
+				for (int y = 0; y < height; y++) {
+					tiles[neighbours.cell(x, y)] = new Tile(x, y); 
+				}
 			}
+		} else {
+			tiles = null;
 		}
-		
-		assert tileInvariant() : "POST: invariant should hold";
 	}
 	
 	/**
@@ -65,6 +127,9 @@ public class Board implements IBoardInspector {
 
 	/**
 	 * Put a sprite at a given position.
+	 * Walls and food are registered in the wall map and
+	 * food layer as well. The shared flyweight wall is
+	 * only registered in the wall map.
 	 * @param s Sprite to be put on the board
 	 * @param x x-coordinate
 	 * @param y y-coordinate
@@ -73,7 +138,25 @@ public class Board implements IBoardInspector {
 		assert withinBorders(x, y) : "PRE1: " + onBoardMessage(x, y);	
 		assert s != null : "PRE2: Sprite not null";
 		assert s.getTile() == null : "PRE3: Sprite should not occupy" + s.getTile();
-		s.occupy(tileAt(x, y));
+		int cell = neighbours.cell(x, y);
+		if (s != Wall.flyweight()) {
+			putOnCell(s, cell);
+		}
+		if (s.getSpriteType() == SpriteType.WALL) {
+			wallMap.addWall(cell);
+		} else if (s.getSpriteType() == SpriteType.FOOD) {
+			foodLayer.add(cell);
+		}
+	}
+	
+	/**
+	 * Actually place a sprite on the given cell.
+	 * Invoked before the sprite is registered as wall or food.
+	 * @param s Sprite to be put on the board
+	 * @param cell Index of the cell
+	 */
+	protected void putOnCell(Sprite s, int cell) {
+		s.occupy(tileAtCell(cell));
 	}
 	
 	/**
@@ -89,10 +172,22 @@ public class Board implements IBoardInspector {
 			&& y >= 0 && y < height;
 	}
 
+	/**
+	 * Obtain the visible sprite at the given location. Cells that
+	 * are a wall without any sprite on their tile yield the
+	 * shared flyweight wall.
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @return The sprite at (x,y), or null if there is none.
+	 */
 	@Override
 	public Sprite spriteAt(int x, int y) {
 		assert withinBorders(x, y) : "PRE: " + onBoardMessage(x, y);		
-		return tileAt(x, y).topSprite();
+		Sprite result = tileAt(x, y).topSprite();
+		if (result == null && wallMap.isWall(neighbours.cell(x, y))) {
+			result = Wall.flyweight();
+		}
+		return result;
 	}
 	
 	@Override
@@ -115,7 +210,74 @@ public class Board implements IBoardInspector {
 	 */
 	public Tile tileAt(int x, int y) {
 		assert withinBorders(x, y) : "PRE: " + onBoardMessage(x, y);
-		return tiles[x][y];
+		return tiles[neighbours.cell(x, y)];
+	}
+	
+	/**
+	 * @param cell Index of a cell, as used by the neighbour table.
+	 * @return The tile at the given cell.
+	 */
+	protected Tile tileAtCell(int cell) {
+		assert cell >= 0 && cell < width * height : "PRE: cell " + cell + " not on board";
+		return tiles[cell];
+	}
+	
+	/**
+	 * @param t A tile on this board
+	 * @return The index of the tile's cell, as used by the neighbour table.
+	 */
+	public int cellOf(Tile t) {
+		assert t != null : "PRE: tile should not be null.";
+		return neighbours.cell(t.getX(), t.getY());
+	}
+	
+	/**
+	 * @param t Tile to move from
+	 * @param dir Direction to move into
+	 * @return True iff the move does not lead into a wall.
+	 */
+	public boolean canMove(Tile t, Direction dir) {
+		return wallMap.canMove(cellOf(t), dir);
+	}
+	
+	@Override
+	public int legalMoves(int x, int y) {
+		assert withinBorders(x, y) : "PRE: " + onBoardMessage(x, y);
+		return wallMap.legalMoves(neighbours.cell(x, y));
+	}
+	
+	/**
+	 * @return The walls on this board, and the moves they leave open.
+	 */
+	public WallMap getWallMap() {
+		return wallMap;
+	}
+	
+	/**
+	 * @return The cells that still contain food.
+	 */
+	public FoodLayer getFoodLayer() {
+		return foodLayer;
+	}
+	
+	/**
+	 * Obtain the junction graph of this board, compressing the maze
+	 * when first asked for. Walls should be complete by then, as they
+	 * are once a map has been parsed.
+	 * @return The junctions and corridors of this board.
+	 */
+	public JunctionGraph getJunctionGraph() {
+		if (junctions == null) {
+			junctions = new JunctionGraph(wallMap);
+		}
+		return junctions;
+	}
+	
+	/**
+	 * @return The precomputed neighbours of all cells on this board.
+	 */
+	public NeighbourTable getNeighbours() {
+		return neighbours;
 	}
 	
 	/**
@@ -164,12 +326,39 @@ public class Board implements IBoardInspector {
 	
 	/**
 	 * Obtain the tile in the given direction.
+	 * Uses the neighbour table, which has the tunnels built in,
+	 * rather than the general offset computation.
 	 * @param t Starting position
 	 * @param dir Direction
 	 * @return Tile in direction from the given starting position.
 	 */
 	public Tile tileAtDirection(Tile t, Direction dir) {
-		return tileAtOffset(t, dir.getDx(), dir.getDy());
+		assert t != null : "PRE1: start tile should not be null.";
+		assert withinBorders(t.getX(), t.getY())
+				: "PRE2" +  onBoardMessage(t.getX(), t.getY());	
+		return tileAtCell(neighbours.neighbour(cellOf(t), dir));
+	}
+	
+	/**
+	 * A moving sprite left the given tile. Boards creating tiles on
+	 * demand may drop it; an ordinary board keeps all its tiles.
+	 * @param t The tile left.
+	 */
+	public void vacated(Tile t) {
+		assert t != null;
+	}
+	
+	/**
+	 * Take the food off the given cell, which holds no moving sprites.
+	 * @param cell Index of the cell holding food
+	 * @return The food taken, which can be put back later.
+	 */
+	protected Food removeFood(int cell) {
+		assert foodLayer.hasFood(cell) : "PRE: food at cell " + cell;
+		Food result = (Food) tileAtCell(cell).topSprite();
+		result.deoccupy();
+		foodLayer.remove(cell);
+		return result;
 	}
 	
 	/**
@@ -179,7 +368,7 @@ public class Board implements IBoardInspector {
 	 * @param y ycoordinate
 	 * @return Message including actual values of x, y, and board dimensions.
 	 */
-	private String onBoardMessage(int x, int y) {
+	protected String onBoardMessage(int x, int y) {
 		return
 			"(" + x + ", " + y + ")"
 			+ "not on board of size "
@@ -0,0 +1,130 @@
+package org.jpacman.framework.model;
+
+import java.util.Arrays;
+
+/**
+ * Breadth-first search confined to a single square cluster of a maze,
+ * as used by the {@link HierarchicalPlanner}. The buffers cover one
+ * cluster only and are reused for every search, so a search costs
+ * time and space in the size of the cluster, not of the maze.
+ * Not thread-safe: every thread uses a search of its own.
+ */
+final class ClusterSearch {
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final int UNSEEN = -1;
+
+	private final NeighbourTable neighbours;
+	private final WallMap walls;
+	private final int size;
+
+	/**
+	 * Distance per cell of the cluster searched, by local index
+	 * <code>(x - x0) + (y - y0) * size</code>.
+	 */
+	private final int[] distance;
+	private final int[] queue;
+	private int x0;
+	private int y0;
+
+	/**
+	 * @param wallMap The walls of the maze
+	 * @param clusterSize Width and height of the clusters.
+	 */
+	ClusterSearch(WallMap wallMap, int clusterSize) {
+		walls = wallMap;
+		neighbours = wallMap.getNeighbours();
+		size = clusterSize;
+		distance = new int[size * size];
+		queue = new int[size * size];
+	}
+
+	/**
+	 * @param cell Index of a cell
+	 * @return Its index within the cluster searched, or -1 if outside.
+	 */
+	private int local(int cell) {
+		int dx = neighbours.getX(cell) - x0;
+		int dy = neighbours.getY(cell) - y0;
+		int result = UNSEEN;
+		if (dx >= 0 && dx < size && dy >= 0 && dy < size) {
+			result = dx + dy * size;
+		}
+		return result;
+	}
+
+	/**
+	 * Search from a cell to all cells of its cluster.
+	 * @param source Index of a walkable cell.
+	 */
+	void search(int source) {
+		x0 = neighbours.getX(source) / size * size;
+		y0 = neighbours.getY(source) / size * size;
+		Arrays.fill(distance, UNSEEN);
+		distance[local(source)] = 0;
+		queue[0] = source;
+		int tail = 1;
+		for (int head = 0; head < tail; head++) {
+			int c = queue[head];
+			int next = distance[local(c)] + 1;
+			for (Direction d : DIRECTIONS) {
+				int n = neighbours.neighbour(c, d);
+				int ln = local(n);
+				if (ln != UNSEEN && walls.canMove(c, d) && distance[ln] == UNSEEN) {
+					distance[ln] = next;
+					queue[tail++] = n;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param cell Index of a cell
+	 * @return Its distance from the source of the last search, or -1
+	 *   if it is outside the cluster or can't be reached within it.
+	 */
+	int distance(int cell) {
+		int l = local(cell);
+		int result = UNSEEN;
+		if (l != UNSEEN) {
+			result = distance[l];
+		}
+		return result;
+	}
+
+	/**
+	 * Write the moves from the source of the last search to the given
+	 * cell, which should have been reached.
+	 * @param target Index of the cell to go to
+	 * @param moves Buffer to write the moves into
+	 * @param at Position in the buffer of the first move
+	 * @return The position following the last move written.
+	 */
+	int movesTo(int target, Direction[] moves, int at) {
+		int steps = distance(target);
+		assert steps >= 0 : "PRE: target should have been reached";
+		int c = target;
+		for (int i = steps - 1; i >= 0; i--) {
+			Direction back = stepBack(c);
+			moves[at + i] = back.opposite();
+			c = neighbours.neighbour(c, back);
+		}
+		return at + steps;
+	}
+
+	/**
+	 * @param cell A reached cell other than the source
+	 * @return Direction to a neighbour one step closer to the source.
+	 */
+	private Direction stepBack(int cell) {
+		Direction result = null;
+		int here = distance(cell);
+		for (Direction d : DIRECTIONS) {
+			int n = neighbours.neighbour(cell, d);
+			if (result == null && walls.canMove(cell, d) && distance(n) == here - 1) {
+				result = d;
+			}
+		}
+		return result;
+	}
+}
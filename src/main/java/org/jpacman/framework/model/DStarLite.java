@@ -0,0 +1,303 @@
+package org.jpacman.framework.model;
+
+import java.util.Arrays;
+
+/**
+ * Distances to a moving target, such as the player, kept up to date
+ * incrementally in the style of D* Lite (Koenig and Likhachev, 2002).
+ * <p>
+ * Like a {@link FlowField}, it tells ghosts which way to go. But
+ * rather than searching the whole board anew whenever the target
+ * moves, it keeps the distances g found so far, together with 
+ * one-step lookahead values rhs derived from the neighbours' g.
+ * When the target moves, only the two cells involved become
+ * inconsistent; repairing them propagates through the cells whose
+ * distance actually changed, in order of distance. Moreover, the
+ * repair stops as soon as the cells of all ghosts are consistent,
+ * so cells further away than the furthest ghost are left alone
+ * until they matter.
+ * <p>
+ * As moves cost one, and all cells near the ghosts are needed
+ * anyway, no heuristic is used, which makes the search an LPA*
+ * rooted at the target. All buffers are allocated once.
+ * <p>
+ * This is an experiment, which no ghost mover uses. A target move
+ * changes the distance of nearly every cell by one, so the repair
+ * expands more cells than a new search would, each through a heap
+ * rather than a queue. The PathfindingBenchmark measured it about ten
+ * times slower than the {@link FlowField}: 18,500 against 169,000
+ * ticks per second on the default board, and 5 against 40 on a
+ * 1024x1024 maze.
+ */
+public class DStarLite {
+	
+	/**
+	 * Distance of cells from which the target cannot be reached.
+	 */
+	public static final int UNREACHABLE = FlowField.UNREACHABLE;
+	
+	private static final Direction[] DIRECTIONS = Direction.values();
+	
+	private final NeighbourTable neighbours;
+	private final WallMap walls;
+	private final int[] g;
+	private final int[] rhs;
+	
+	/**
+	 * Binary min-heap of inconsistent cells, ordered by 
+	 * min(g, rhs), with the position of every cell in it, or -1.
+	 */
+	private final int[] heap;
+	private final int[] position;
+	private int heapSize;
+	
+	private int target = -1;
+	private long expansions;
+	
+	/**
+	 * Create the search for a given board, without a target yet.
+	 * @param board The board the search is conducted on.
+	 */
+	public DStarLite(IBoardInspector board) {
+		this(WallMap.of(board));
+	}
+	
+	/**
+	 * Create the search for a given maze, without a target yet.
+	 * The walls are shared, not copied.
+	 * @param wallMap The walls of the maze.
+	 */
+	public DStarLite(WallMap wallMap) {
+		walls = wallMap;
+		neighbours = wallMap.getNeighbours();
+		int size = neighbours.size();
+		g = new int[size];
+		rhs = new int[size];
+		heap = new int[size];
+		position = new int[size];
+		Arrays.fill(g, UNREACHABLE);
+		Arrays.fill(rhs, UNREACHABLE);
+		Arrays.fill(position, -1);
+	}
+	
+	/**
+	 * Make sure the distances from the given cells to the target
+	 * are correct, repairing those affected by a target move.
+	 * @param cell Index of the target cell
+	 * @param starts Cells that need correct distances, e.g., of the ghosts
+	 * @param count Number of cells in starts to consider.
+	 */
+	public void update(int cell, int[] starts, int count) {
+		assert cell >= 0 && cell < g.length : "PRE: cell " + cell + " not on board";
+		if (cell != target) {
+			int old = target;
+			target = cell;
+			updateCell(cell);
+			if (old >= 0) {
+				updateCell(old);
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			int s = starts[i];
+			while (heapSize > 0 && (key(heap[0]) < key(s) || g[s] != rhs[s])) {
+				expand(pop());
+			}
+		}
+	}
+	
+	/**
+	 * Make a cell consistent, or make its inconsistency known.
+	 * @param c Index of the cell.
+	 */
+	private void updateCell(int c) {
+		if (c == target) {
+			rhs[c] = 0;
+		} else {
+			rhs[c] = lookahead(c);
+		}
+		if (g[c] == rhs[c]) {
+			remove(c);
+		} else {
+			place(c);
+		}
+	}
+	
+	/**
+	 * @param c Index of a cell
+	 * @return One more than the smallest distance of its neighbours.
+	 */
+	private int lookahead(int c) {
+		int result = UNREACHABLE;
+		for (Direction d : DIRECTIONS) {
+			int n = neighbours.neighbour(c, d);
+			if (walls.canMove(c, d) && g[n] != UNREACHABLE && g[n] + 1 < result) {
+				result = g[n] + 1;
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Settle a cell taken from the heap, and update its neighbours.
+	 * @param c Index of the cell.
+	 */
+	private void expand(int c) {
+		expansions++;
+		if (g[c] > rhs[c]) {
+			g[c] = rhs[c];
+		} else {
+			g[c] = UNREACHABLE;
+			updateCell(c);
+		}
+		for (Direction d : DIRECTIONS) {
+			if (walls.canMove(c, d)) {
+				updateCell(neighbours.neighbour(c, d));
+			}
+		}
+	}
+	
+	/**
+	 * @param c Index of a cell
+	 * @return Its priority in the heap.
+	 */
+	private int key(int c) {
+		return Math.min(g[c], rhs[c]);
+	}
+	
+	/**
+	 * Put a cell in the heap, or move it to its proper place
+	 * if it is in the heap already.
+	 * @param c Index of the cell.
+	 */
+	private void place(int c) {
+		int i = position[c];
+		if (i < 0) {
+			i = heapSize++;
+			heap[i] = c;
+			position[c] = i;
+		}
+		siftDown(siftUp(i));
+	}
+	
+	/**
+	 * Take a cell out of the heap, if it is in there.
+	 * @param c Index of the cell.
+	 */
+	private void remove(int c) {
+		int i = position[c];
+		if (i >= 0) {
+			position[c] = -1;
+			heapSize--;
+			if (i < heapSize) {
+				heap[i] = heap[heapSize];
+				position[heap[i]] = i;
+				siftDown(siftUp(i));
+			}
+		}
+	}
+	
+	/**
+	 * @return The cell with the smallest key, taken out of the heap.
+	 */
+	private int pop() {
+		int result = heap[0];
+		remove(result);
+		return result;
+	}
+	
+	/**
+	 * @param start Position of a cell in the heap
+	 * @return Its position after moving it up to its place.
+	 */
+	private int siftUp(int start) {
+		int i = start;
+		int c = heap[i];
+		while (i > 0 && key(heap[(i - 1) / 2]) > key(c)) {
+			move(heap[(i - 1) / 2], i);
+			i = (i - 1) / 2;
+		}
+		move(c, i);
+		return i;
+	}
+	
+	/**
+	 * @param start Position of a cell in the heap, to be moved down.
+	 */
+	private void siftDown(int start) {
+		int i = start;
+		int c = heap[i];
+		boolean placed = false;
+		for (int child = 2 * i + 1; child < heapSize && !placed; child = 2 * i + 1) {
+			if (child + 1 < heapSize && key(heap[child + 1]) < key(heap[child])) {
+				child++;
+			}
+			if (key(heap[child]) < key(c)) {
+				move(heap[child], i);
+				i = child;
+			} else {
+				placed = true;
+			}
+		}
+		move(c, i);
+	}
+	
+	/**
+	 * @param c Index of a cell
+	 * @param i Its new position in the heap.
+	 */
+	private void move(int c, int i) {
+		heap[i] = c;
+		position[c] = i;
+	}
+	
+	/**
+	 * @return The current target cell, or -1 if there is none yet.
+	 */
+	public int getTarget() {
+		return target;
+	}
+	
+	/**
+	 * @return Number of cells expanded since the search was created.
+	 */
+	public long getExpansions() {
+		return expansions;
+	}
+	
+	/**
+	 * @param cell Index of a cell that was among the starts of the last update
+	 * @return Number of moves to the target, or UNREACHABLE.
+	 */
+	public int distance(int cell) {
+		return g[cell];
+	}
+	
+	/**
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @return Index of cell (x,y).
+	 */
+	public int cell(int x, int y) {
+		return neighbours.cell(x, y);
+	}
+	
+	/**
+	 * Obtain the direction bringing a sprite on one of the starts 
+	 * of the last update closer to the target.
+	 * @param cell Index of the cell to move from.
+	 * @return The direction to take, or null if there is none:
+	 *   the cell is the target itself, or can't reach it.
+	 */
+	public Direction towards(int cell) {
+		Direction result = null;
+		int best = g[cell];
+		for (Direction d : DIRECTIONS) {
+			int n = neighbours.neighbour(cell, d);
+			if (walls.canMove(cell, d) && g[n] < best) {
+				best = g[n];
+				result = d;
+			}
+		}
+		return result;
+	}
+}
@@ -37,4 +37,32 @@ public enum Direction {
 	public int getDy() {
 		return dy;
 	}
+	
+	/**
+	 * @return The bit representing this direction in direction masks.
+	 */
+	public int bit() {
+		return 1 << ordinal();
+	}
+	
+	/**
+	 * @return The direction leading back to where one came from.
+	 */
+	public Direction opposite() {
+		Direction result;
+		switch (this) {
+		case UP:
+			result = DOWN;
+			break;
+		case DOWN:
+			result = UP;
+			break;
+		case LEFT:
+			result = RIGHT;
+			break;
+		default:
+			result = LEFT;
+		}
+		return result;
+	}
 }
@@ -0,0 +1,347 @@
+package org.jpacman.framework.model;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shortest-path distances between all pairs of walkable cells of a
+ * maze, taking the tunnels at the borders into account.
+ * <p>
+ * Walls don't change once a map is parsed, so the table is computed
+ * once per maze: one breadth-first search per walkable cell, spread
+ * over all cores. Distances are stored as shorts, in a single array
+ * indexed by walkable cell numbers, so a maze with n walkable cells
+ * takes 2n<sup>2</sup> bytes.
+ * <p>
+ * Tables are cached by the content of the maze, so that games on
+ * equal mazes share a table, even if their maps were parsed separately.
+ * Concurrent requests for the same maze wait for a single computation.
+ */
+public final class DistanceTable {
+	
+	/**
+	 * Distance of cells that cannot reach each other, 
+	 * or that are not walkable.
+	 */
+	public static final int UNREACHABLE = FlowField.UNREACHABLE;
+	
+	/**
+	 * Number of tables kept in the cache.
+	 */
+	public static final int CACHE_CAPACITY = 4;
+	
+	private static final short NONE = -1;
+	private static final Direction[] DIRECTIONS = Direction.values();
+	
+	/**
+	 * Tables in least recently used order, possibly still being computed.
+	 */
+	private static final Map<MazeKey, FutureTask<DistanceTable>> CACHE = 
+		new LinkedHashMap<MazeKey, FutureTask<DistanceTable>>(CACHE_CAPACITY, 1.0f, true);
+	
+	private final NeighbourTable neighbours;
+	private final int walkableCount;
+	
+	/**
+	 * Walkable number of every cell, or -1 for walls.
+	 */
+	private final int[] walkable;
+	
+	/**
+	 * Per walkable number and direction, the walkable number 
+	 * of the neighbour, or -1 if a wall blocks the move.
+	 */
+	private final int[] adjacent;
+	
+	/**
+	 * Distance between walkable cells a and b at a * walkableCount + b.
+	 */
+	private final short[] distances;
+	
+	/**
+	 * Compute the table for the given walls.
+	 * @param walls The walls of the maze
+	 * @param threads Number of threads searching in parallel.
+	 * @throws IllegalArgumentException If the maze has more walkable
+	 *   cells than distances stored as shorts can cover.
+	 */
+	public DistanceTable(WallMap walls, int threads) {
+		assert threads > 0;
+		neighbours = walls.getNeighbours();
+		walkable = new int[neighbours.size()];
+		int n = 0;
+		for (int c = 0; c < walkable.length; c++) {
+			walkable[c] = NONE;
+			if (!walls.isWall(c)) {
+				walkable[c] = n++;
+			}
+		}
+		if (n > Short.MAX_VALUE) {
+			throw new IllegalArgumentException(
+				"Maze too large for a distance table: " + n + " walkable cells");
+		}
+		walkableCount = n;
+		adjacent = adjacency(walls);
+		distances = new short[n * n];
+		searchAll(threads);
+	}
+	
+	/**
+	 * @param walls The walls of the maze.
+	 * @return The neighbours of all walkable cells, by walkable number.
+	 */
+	private int[] adjacency(WallMap walls) {
+		int[] result = new int[walkableCount * DIRECTIONS.length];
+		Arrays.fill(result, NONE);
+		for (int c = 0; c < walkable.length; c++) {
+			for (Direction d : DIRECTIONS) {
+				if (walkable[c] != NONE && walls.canMove(c, d)) {
+					result[walkable[c] * DIRECTIONS.length + d.ordinal()] = 
+						walkable[neighbours.neighbour(c, d)];
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Search from all walkable cells, with every thread claiming
+	 * the next source cell until all have been handed out.
+	 * @param threads Number of threads to use, including the current one.
+	 */
+	private void searchAll(int threads) {
+		final AtomicInteger next = new AtomicInteger();
+		Runnable worker = new Runnable() {
+			@Override
+			public void run() {
+				int[] queue = new int[walkableCount];
+				for (int s = next.getAndIncrement(); s < walkableCount; 
+						s = next.getAndIncrement()) {
+					search(s, queue);
+				}
+			}
+		};
+		Thread[] helpers = new Thread[threads - 1];
+		for (int i = 0; i < helpers.length; i++) {
+			helpers[i] = new Thread(worker, "jpacman-distances");
+			helpers[i].start();
+		}
+		worker.run();
+		joinAll(helpers);
+	}
+	
+	/**
+	 * Wait for all threads to end, even if interrupted: the
+	 * table isn't usable before they are.
+	 * @param threads The threads to wait for.
+	 */
+	static void joinAll(Thread[] threads) {
+		boolean interrupted = false;
+		for (int i = 0; i < threads.length; i++) {
+			try {
+				threads[i].join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+				i--;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Fill the row of distances from a single source.
+	 * @param source Walkable number of the source
+	 * @param queue Buffer for the search, of walkableCount entries.
+	 */
+	private void search(int source, int[] queue) {
+		int row = source * walkableCount;
+		Arrays.fill(distances, row, row + walkableCount, NONE);
+		distances[row + source] = 0;
+		queue[0] = source;
+		int tail = 1;
+		for (int head = 0; head < tail; head++) {
+			int c = queue[head];
+			short next = (short) (distances[row + c] + 1);
+			for (int d = 0; d < DIRECTIONS.length; d++) {
+				int n = adjacent[c * DIRECTIONS.length + d];
+				if (n != NONE && distances[row + n] == NONE) {
+					distances[row + n] = next;
+					queue[tail++] = n;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Obtain the table for the given walls, from the cache if a maze
+	 * with the same walls was seen before.
+	 * @param walls The walls of the maze.
+	 * @return The distance table for the maze.
+	 * @throws IllegalArgumentException If the maze is too large.
+	 */
+	public static DistanceTable forMaze(final WallMap walls) {
+		FutureTask<DistanceTable> task = new FutureTask<DistanceTable>(
+			new Callable<DistanceTable>() {
+				@Override
+				public DistanceTable call() {
+					return new DistanceTable(walls, 
+							Runtime.getRuntime().availableProcessors());
+				}
+			});
+		MazeKey key = new MazeKey(walls);
+		FutureTask<DistanceTable> cached = lookupOrStore(key, task);
+		if (cached == null) {
+			task.run();
+			cached = task;
+		}
+		return await(key, cached);
+	}
+	
+	/**
+	 * Wait for a table, and drop its computation from the cache if it 
+	 * failed, so that the failure isn't handed out from then on.
+	 * @param key Content of the maze
+	 * @param task Computation of its table, run by some thread.
+	 * @return The table computed.
+	 */
+	private static DistanceTable await(MazeKey key, FutureTask<DistanceTable> task) {
+		boolean interrupted = false;
+		DistanceTable result = null;
+		while (result == null) {
+			try {
+				result = task.get();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			} catch (ExecutionException e) {
+				evict(key, task);
+				throw failure(e.getCause());
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return result;
+	}
+	
+	/**
+	 * @param key Content of a maze
+	 * @param task Computation to store if the maze isn't cached.
+	 * @return The cached computation, or null if the task was stored.
+	 */
+	private static synchronized FutureTask<DistanceTable> lookupOrStore(
+			MazeKey key, FutureTask<DistanceTable> task) {
+		FutureTask<DistanceTable> result = CACHE.get(key);
+		if (result == null) {
+			CACHE.put(key, task);
+			Iterator<MazeKey> eldest = CACHE.keySet().iterator();
+			while (CACHE.size() > CACHE_CAPACITY) {
+				eldest.next();
+				eldest.remove();
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * @param key Content of a maze
+	 * @param task Computation to drop, if it is still the cached one.
+	 */
+	private static synchronized void evict(MazeKey key, FutureTask<DistanceTable> task) {
+		if (CACHE.get(key) == task) {
+			CACHE.remove(key);
+		}
+	}
+	
+	/**
+	 * @param cause Why computing a table failed
+	 * @return The exception to pass on to the caller.
+	 */
+	private static RuntimeException failure(Throwable cause) {
+		RuntimeException result;
+		if (cause instanceof RuntimeException) {
+			result = (RuntimeException) cause;
+		} else {
+			result = new IllegalStateException("Computing distances failed", cause);
+		}
+		return result;
+	}
+	
+	/**
+	 * Drop all cached tables.
+	 */
+	public static synchronized void clearCache() {
+		CACHE.clear();
+	}
+	
+	/**
+	 * @param from Index of a cell
+	 * @param to Index of another cell
+	 * @return Number of moves between the cells, or UNREACHABLE.
+	 */
+	public int distance(int from, int to) {
+		int a = walkable[from];
+		int b = walkable[to];
+		int result = UNREACHABLE;
+		if (a != NONE && b != NONE && distances[a * walkableCount + b] != NONE) {
+			result = distances[a * walkableCount + b];
+		}
+		return result;
+	}
+	
+	/**
+	 * @return Number of cells that are not walls.
+	 */
+	public int getWalkableCount() {
+		return walkableCount;
+	}
+	
+	/**
+	 * @return The neighbours of the cells of the maze.
+	 */
+	public NeighbourTable getNeighbours() {
+		return neighbours;
+	}
+	
+	/**
+	 * Content of a maze, identifying its distance table:
+	 * the dimensions and the wall bits.
+	 */
+	private static final class MazeKey {
+		private final int width;
+		private final int height;
+		private final long[] bits;
+		private final int hash;
+		
+		MazeKey(WallMap walls) {
+			width = walls.getNeighbours().getWidth();
+			height = walls.getNeighbours().getHeight();
+			bits = walls.getBits();
+			final int prime = 31;
+			hash = (prime * width + height) * prime + Arrays.hashCode(bits);
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			boolean result = false;
+			if (o instanceof MazeKey) {
+				MazeKey other = (MazeKey) o;
+				result = width == other.width && height == other.height
+						&& Arrays.equals(bits, other.bits);
+			}
+			return result;
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,268 @@
+package org.jpacman.framework.model;
+
+import java.util.Arrays;
+
+/**
+ * A board that keeps its static content in flat primitive
+ * arrays indexed by <code>x + y * width</code>: the walls in the
+ * wall map, and the food in the food layer.
+ * <p>
+ * Tiles are only created on demand, for cells occupied by
+ * moving sprites or for which a client explicitly asks
+ * the tile. Once a cell has a tile, that tile holds the
+ * sprites of the cell, just as in an ordinary board.
+ * When the last moving sprite leaves a tile holding nothing but
+ * plain walls and food, the tile is dropped again: the wall map and 
+ * food layer still record its content. Clients should therefore
+ * not hold on to tiles across moves.
+ * <p>
+ * A flat board can also be created on top of a maze template,
+ * in which case it shares the neighbours and walls with all
+ * other boards for that template. Its own memory then consists
+ * of its food bits and the tiles created so far only.
+ */
+public class FlatBoard extends Board {
+
+	/**
+	 * Points of the food on each cell; only allocated
+	 * once food with non-default points is put on the board.
+	 */
+	private int[] foodPoints;
+
+	/**
+	 * The tiles created so far.
+	 */
+	private final TileMap tiles = new TileMap();
+
+	/**
+	 * Create a new board.
+	 * @param w Width of the board
+	 * @param h Height of the board.
+	 */
+	public FlatBoard(int w, int h) {
+		super(w, h, false);
+		assert flatInvariant() : "POST: invariant should hold";
+	}
+	
+	/**
+	 * Create a new board for a shared maze.
+	 * @param maze The static layout of the board.
+	 */
+	public FlatBoard(MazeTemplate maze) {
+		super(maze);
+		assert flatInvariant() : "POST: invariant should hold";
+	}
+
+	/**
+	 * Every tile created should be at the location
+	 * it is stored for.
+	 * @return True iff all tiles created are at the right place.
+	 */
+	protected final boolean flatInvariant() {
+		return tiles.invariant(getNeighbours());
+	}
+
+	/**
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @return Index of (x,y) in the flat arrays.
+	 */
+	private int cell(int x, int y) {
+		return getNeighbours().cell(x, y);
+	}
+
+	/**
+	 * Place a sprite on the given cell.
+	 * Plain walls and food put on an empty cell without tile are
+	 * only recorded in the wall map and food layer: such sprites 
+	 * do not get a tile of their own.
+	 * @param s Sprite to be put on the board
+	 * @param i Index of the cell
+	 */
+	@Override
+	protected void putOnCell(Sprite s, int i) {
+		boolean bare = tiles.get(i) == null
+			&& !getWallMap().isWall(i) && !getFoodLayer().hasFood(i);
+		if (!bare || !isPlain(s)) {
+			s.occupy(tileAtCell(i));
+		} else if (s instanceof Food) {
+			setFoodPoints(i, ((Food) s).getPoints());
+		}
+	}
+
+	/**
+	 * @param s A sprite
+	 * @return True iff the wall map or food layer can represent it.
+	 */
+	private static boolean isPlain(Sprite s) {
+		return s.getClass() == Wall.class || s.getClass() == Food.class;
+	}
+
+	/**
+	 * Drop the tile if it only holds plain walls and food,
+	 * remembering the points of its food.
+	 * @param t The tile a moving sprite left.
+	 */
+	@Override
+	public void vacated(Tile t) {
+		int i = cell(t.getX(), t.getY());
+		boolean plain = tiles.get(i) == t;
+		for (Sprite s : t.sprites()) {
+			plain = plain && isPlain(s);
+		}
+		if (plain) {
+			if (t.topSprite() instanceof Food) {
+				setFoodPoints(i, ((Food) t.topSprite()).getPoints());
+			}
+			tiles.remove(i);
+		}
+	}
+
+	/**
+	 * Take the food off the given cell. Food without a tile is only
+	 * removed from the food layer, rather than materialized on a new
+	 * tile first; the food returned then occupies no tile.
+	 * @param cell Index of the cell holding food
+	 * @return The food taken, which can be put back later.
+	 */
+	@Override
+	protected Food removeFood(int cell) {
+		Food result;
+		if (tiles.get(cell) == null) {
+			result = new Food();
+			result.setPoints(getFoodPoints(cell));
+			getFoodLayer().remove(cell);
+		} else {
+			result = super.removeFood(cell);
+		}
+		return result;
+	}
+
+	/**
+	 * @return Number of tiles currently held by the board.
+	 */
+	public int getTileCount() {
+		return tiles.size();
+	}
+
+	/**
+	 * Remember the points of the food at the given cell.
+	 * @param i Index of the cell
+	 * @param points Points for the food at that cell.
+	 */
+	private void setFoodPoints(int i, int points) {
+		if (foodPoints == null && points != Food.DEFAULT_POINTS) {
+			foodPoints = new int[getNeighbours().size()];
+			Arrays.fill(foodPoints, Food.DEFAULT_POINTS);
+		}
+		if (foodPoints != null) {
+			foodPoints[i] = points;
+		}
+	}
+
+	/**
+	 * @param i Index of the cell
+	 * @return Points of the food recorded for that cell.
+	 */
+	private int getFoodPoints(int i) {
+		int result = Food.DEFAULT_POINTS;
+		if (foodPoints != null) {
+			result = foodPoints[i];
+		}
+		return result;
+	}
+
+	@Override
+	public Sprite spriteAt(int x, int y) {
+		assert withinBorders(x, y) : "PRE: " + onBoardMessage(x, y);
+		int i = cell(x, y);
+		Tile t = tiles.get(i);
+		Sprite result = null;
+		if (t != null) {
+			result = t.topSprite();
+		} else if (getFoodLayer().hasFood(i)) {
+			result = foodAt(i);
+		}
+		if (result == null && getWallMap().isWall(i)) {
+			result = Wall.flyweight();
+		}
+		return result;
+	}
+
+	/**
+	 * Obtain the food of a cell without tile, without creating one.
+	 * @param i Index of the cell
+	 * @return The shared food if the food has the default points,
+	 *   otherwise food with its points that occupies no tile.
+	 */
+	private Food foodAt(int i) {
+		Food result = Food.flyweight();
+		if (getFoodPoints(i) != Food.DEFAULT_POINTS) {
+			result = new Food();
+			result.setPoints(getFoodPoints(i));
+		}
+		return result;
+	}
+
+	@Override
+	public SpriteType spriteTypeAt(int x, int y) {
+		assert withinBorders(x, y) : "PRE: " + onBoardMessage(x, y);
+		int i = cell(x, y);
+		Tile t = tiles.get(i);
+		Sprite s = null;
+		if (t != null) {
+			s = t.topSprite();
+		}
+		SpriteType result;
+		if (s != null) {
+			result = s.getSpriteType();
+		} else if (getWallMap().isWall(i)) {
+			result = SpriteType.WALL;
+		} else if (getFoodLayer().hasFood(i)) {
+			result = SpriteType.FOOD;
+		} else {
+			result = SpriteType.EMPTY;
+		}
+		return result;
+	}
+
+	/**
+	 * Obtain the tile at the given place, creating it
+	 * (and the food on it) if it did not exist yet.
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @return The tile at the given (x,y) place
+	 */
+	@Override
+	public Tile tileAt(int x, int y) {
+		assert withinBorders(x, y) : "PRE: " + onBoardMessage(x, y);
+		return tileAtCell(cell(x, y));
+	}
+	
+	@Override
+	protected Tile tileAtCell(int cell) {
+		Tile result = tiles.get(cell);
+		if (result == null) {
+			result = createTile(cell);
+		}
+		return result;
+	}
+
+	/**
+	 * Create the tile for a given cell, and put the food
+	 * of that cell onto the new tile. Walls are left in the
+	 * wall map, as they are represented by the flyweight wall.
+	 * @param i Index of the cell
+	 * @return The new tile.
+	 */
+	private Tile createTile(int i) {
+		Tile result = new Tile(getNeighbours().getX(i), getNeighbours().getY(i));
+		if (getFoodLayer().hasFood(i)) {
+			Food food = new Food();
+			food.setPoints(getFoodPoints(i));
+			food.occupy(result);
+		}
+		tiles.put(i, result);
+		return result;
+	}
+}
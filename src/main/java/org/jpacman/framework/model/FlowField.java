@@ -0,0 +1,143 @@
+package org.jpacman.framework.model;
+
+import java.util.Arrays;
+
+/**
+ * Distances from every cell of a board to a single target cell,
+ * such as the cell of the player, found by one breadth-first search.
+ * <p>
+ * Any number of ghosts chasing the target can then pick their next
+ * direction by looking at their neighbours' distances, rather than
+ * searching a path each. The search is only repeated once the
+ * target has moved. All buffers are allocated once, when the field
+ * is created, so updating the field and following it allocate nothing.
+ * <p>
+ * As walls don't change during a game, the field follows the wall
+ * map of the board, which all fields on the board share. Moves between
+ * cells are symmetric, so distances to the target equal distances from it.
+ */
+public class FlowField {
+	
+	/**
+	 * Distance of cells from which the target cannot be reached.
+	 */
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+	
+	private static final Direction[] DIRECTIONS = Direction.values();
+	
+	private final NeighbourTable neighbours;
+	private final WallMap walls;
+	private final int[] distance;
+	private final int[] queue;
+	private int target = -1;
+	private long expansions;
+	
+	/**
+	 * Create the field for a given board, without a target yet.
+	 * @param board The board the field is computed on.
+	 */
+	public FlowField(IBoardInspector board) {
+		this(WallMap.of(board));
+	}
+	
+	/**
+	 * Create the field for a given maze, without a target yet.
+	 * @param wallMap The walls of the maze.
+	 */
+	public FlowField(WallMap wallMap) {
+		walls = wallMap;
+		neighbours = wallMap.getNeighbours();
+		distance = new int[neighbours.size()];
+		queue = new int[neighbours.size()];
+		Arrays.fill(distance, UNREACHABLE);
+	}
+	
+	/**
+	 * Make sure the distances are those to the given target,
+	 * searching them anew only if the target has moved.
+	 * @param cell Index of the target cell.
+	 * @return True iff the distances had to be recomputed.
+	 */
+	public boolean update(int cell) {
+		assert cell >= 0 && cell < distance.length : "PRE: cell " + cell + " not on board";
+		boolean result = cell != target;
+		if (result) {
+			target = cell;
+			search();
+		}
+		return result;
+	}
+	
+	/**
+	 * Breadth-first search from the target, through open moves.
+	 */
+	private void search() {
+		Arrays.fill(distance, UNREACHABLE);
+		distance[target] = 0;
+		queue[0] = target;
+		int tail = 1;
+		for (int head = 0; head < tail; head++) {
+			int c = queue[head];
+			int next = distance[c] + 1;
+			for (Direction d : DIRECTIONS) {
+				int n = neighbours.neighbour(c, d);
+				if (walls.canMove(c, d) && distance[n] == UNREACHABLE) {
+					distance[n] = next;
+					queue[tail++] = n;
+				}
+			}
+		}
+		expansions += tail;
+	}
+	
+	/**
+	 * @return The current target cell, or -1 if there is none yet.
+	 */
+	public int getTarget() {
+		return target;
+	}
+	
+	/**
+	 * @return Number of cells expanded since the field was created.
+	 */
+	public long getExpansions() {
+		return expansions;
+	}
+	
+	/**
+	 * @param cell Index of a cell
+	 * @return Number of moves to the target, or UNREACHABLE.
+	 */
+	public int distance(int cell) {
+		return distance[cell];
+	}
+	
+	/**
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @return Index of cell (x,y).
+	 */
+	public int cell(int x, int y) {
+		return neighbours.cell(x, y);
+	}
+	
+	/**
+	 * Obtain the direction bringing a sprite on the given cell
+	 * closer to the target. Ties are broken by direction order.
+	 * @param cell Index of the cell to move from.
+	 * @return The direction to take, or null if there is none:
+	 *   the cell is the target itself, or can't reach it.
+	 */
+	public Direction towards(int cell) {
+		Direction result = null;
+		int best = distance[cell];
+		for (Direction d : DIRECTIONS) {
+			int n = neighbours.neighbour(cell, d);
+			if (walls.canMove(cell, d) && distance[n] < best) {
+				best = distance[n];
+				result = d;
+			}
+		}
+		return result;
+	}
+}
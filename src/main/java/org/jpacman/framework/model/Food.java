@@ -4,6 +4,11 @@ import org.jpacman.framework.model.IBoardInspector.SpriteType;
 
 /**
  * A food element on the board.
+ * <p>
+ * Boards that keep food in their food layer only, without tiles,
+ * return the {@link #flyweight()} food for such cells: it never
+ * occupies a tile, and its points can't be changed.
+ * 
  * @author Arie van Deursen, TU Delft, Feb 16, 2012
  */
 public class Food extends Sprite {
@@ -14,8 +19,18 @@ public class Food extends Sprite {
 	 */
 	public static final int DEFAULT_POINTS = 10;
 	
+	private static final Food FLYWEIGHT = new Food();
+	
 	private int points = DEFAULT_POINTS;
 	
+	/**
+	 * @return The single food shared by cells holding food with
+	 *   the default points but no tile.
+	 */
+	public static Food flyweight() {
+		return FLYWEIGHT;
+	}
+	
 	/**
 	 * @return that food points are non-negative.
 	 */
@@ -42,6 +57,7 @@ public class Food extends Sprite {
 	 */
 	public void setPoints(int points) {
 		assert points >= 0;
+		assert !isFlyweight() : "PRE: the shared food has default points.";
 		this.points = points;
 		assert foodInvariant();
 	}
@@ -54,4 +70,17 @@ public class Food extends Sprite {
 		return SpriteType.FOOD;
 	}
 
+	/**
+	 * @return True iff this is the shared food, which never occupies a tile.
+	 */
+	public final boolean isFlyweight() {
+		return this == FLYWEIGHT;
+	}
+	
+	@Override
+	public void occupy(Tile nextLocation) {
+		assert !isFlyweight() : "PRE: the shared food does not occupy tiles.";
+		super.occupy(nextLocation);
+	}
+
 }
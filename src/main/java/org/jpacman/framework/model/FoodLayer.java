@@ -0,0 +1,165 @@
+package org.jpacman.framework.model;
+
+/**
+ * Bitset of the cells that (still) contain food, together
+ * with a count of the cells with food remaining.
+ * <p>
+ * Cells are identified by their index <code>x + y * width</code>.
+ * Questions such as where the remaining food is can thus be
+ * answered without walking over the tiles.
+ */
+public final class FoodLayer {
+	
+	private static final int WORD_SHIFT = 6;
+	private static final int WORD_SIZE = 1 << WORD_SHIFT;
+
+	/**
+	 * One bit per cell, set iff there is food on it.
+	 */
+	private final long[] food;
+	
+	/**
+	 * Number of bits set in the food array.
+	 */
+	private int remaining;
+	
+	/**
+	 * Create an empty layer.
+	 * @param cells Number of cells on the board.
+	 */
+	public FoodLayer(int cells) {
+		assert cells >= 0;
+		food = new long[(cells >>> WORD_SHIFT) + 1];
+		remaining = 0;
+	}
+	
+	/**
+	 * Create a layer from a bitset of the cells with food.
+	 * @param cells Number of cells on the board
+	 * @param bits One bit per cell, as given by getBits.
+	 */
+	public FoodLayer(int cells, long[] bits) {
+		this(cells);
+		assert bits.length == food.length : "PRE: bits should cover the board";
+		System.arraycopy(bits, 0, food, 0, food.length);
+		for (long word : food) {
+			remaining += Long.bitCount(word);
+		}
+	}
+	
+	/**
+	 * Create a copy of another layer.
+	 * @param other The layer to be copied.
+	 */
+	public FoodLayer(FoodLayer other) {
+		food = other.food.clone();
+		remaining = other.remaining;
+	}
+	
+	/**
+	 * The remaining count should match the bits set.
+	 * @return True iff the count is consistent.
+	 */
+	protected boolean invariant() {
+		int count = 0;
+		for (long word : food) {
+			count += Long.bitCount(word);
+		}
+		return count == remaining;
+	}
+	
+	/**
+	 * Put food on the given cell.
+	 * @param cell Index of the cell
+	 */
+	public void add(int cell) {
+		if (!hasFood(cell)) {
+			food[cell >>> WORD_SHIFT] |= 1L << cell;
+			remaining++;
+		}
+		assert hasFood(cell);
+	}
+	
+	/**
+	 * Remove (eat) the food on the given cell.
+	 * @param cell Index of the cell
+	 * @return True iff there was food on the cell.
+	 */
+	public boolean remove(int cell) {
+		boolean result = hasFood(cell);
+		if (result) {
+			food[cell >>> WORD_SHIFT] &= ~(1L << cell);
+			remaining--;
+		}
+		assert !hasFood(cell);
+		return result;
+	}
+	
+	/**
+	 * @param cell Index of the cell
+	 * @return True iff there is food on the cell.
+	 */
+	public boolean hasFood(int cell) {
+		return (food[cell >>> WORD_SHIFT] & (1L << cell)) != 0;
+	}
+	
+	/**
+	 * @return A copy of the bits, one per cell, with food.
+	 */
+	public long[] getBits() {
+		return food.clone();
+	}
+	
+	/**
+	 * Copy the bits into a given array, without allocating.
+	 * @param into Array of at least words() longs.
+	 */
+	void copyBits(long[] into) {
+		System.arraycopy(food, 0, into, 0, food.length);
+	}
+	
+	/**
+	 * @return Number of words in the bitset.
+	 */
+	int words() {
+		return food.length;
+	}
+	
+	/**
+	 * @param i Index of a word
+	 * @return The bits of cells <code>64 * i</code> up to <code>64 * (i + 1)</code>.
+	 */
+	long word(int i) {
+		return food[i];
+	}
+	
+	/**
+	 * @return The number of cells with food remaining.
+	 */
+	public int remaining() {
+		return remaining;
+	}
+	
+	/**
+	 * Find the first cell with food at or after the given cell.
+	 * @param from Index of the cell to start searching from.
+	 * @return Index of the next cell with food, or -1 if there is none.
+	 */
+	public int nextFood(int from) {
+		assert from >= 0;
+		int index = from >>> WORD_SHIFT;
+		long word = 0;
+		if (index < food.length) {
+			word = food[index] & (-1L << from);
+		}
+		while (word == 0 && index + 1 < food.length) {
+			index++;
+			word = food[index];
+		}
+		int result = -1;
+		if (word != 0) {
+			result = index * WORD_SIZE + Long.numberOfTrailingZeros(word);
+		}
+		return result;
+	}
+}
@@ -5,8 +5,6 @@ import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
 
-import org.jpacman.framework.model.IBoardInspector.SpriteType;
-
 /**
  * Keep track of all activity that is going on during a game.
  * Provide access to key sprites in the game, such as the player
@@ -40,25 +38,67 @@ public class Game extends Observable
 	 */
 	private final List<Ghost> ghosts = new ArrayList<Ghost>();
 	
+	/**
+	 * The food eaten so far, indexed by cell, so that it can
+	 * be put back when an earlier snapshot is restored.
+	 */
+	private Food[] eatenFood;
+	
+	/**
+	 * Journal recording the moves made, if they should be undoable.
+	 */
+	private MoveJournal journal;
+	
+	/**
+	 * Zobrist hash of the current state, only maintained once
+	 * it has been asked for.
+	 */
+	private long hash;
+	private boolean hashValid;
+	private ZobristKeys zobrist;
+	
+	/**
+	 * Typed events about what happens in the game.
+	 */
+	private final GameEventBus eventBus = new GameEventBus();
+	
+	/**
+	 * Whether observers should be notified at the end of the current tick.
+	 */
+	private boolean changedInTick;
+	
+	/**
+	 * Random numbers for the controllers of this game only.
+	 */
+	private SplitRandom random = new SplitRandom();
+	
 	/**
 	 * @param b The underlying board.
 	 */
 	public void setBoard(Board b) {
 		assert b != null : "New board should not be null.";
 		theBoard = b;
+		pointManager.setFoodLayer(b.getFoodLayer());
 	}
 	
 	@Override
 	public void movePlayer(Direction dir) {
 		assert theBoard != null : "Board can't be null when moving";
-		Tile target = theBoard.tileAtDirection(thePlayer.getTile(), dir);
-		if (tileCanBeOccupied(target) && thePlayer.isAlive()) {
+		Tile source = thePlayer.getTile();
+		if (theBoard.canMove(source, dir) && thePlayer.isAlive()) {
+			Tile target = theBoard.tileAtDirection(source, dir);
 			Sprite currentContent = target.topSprite();
+			int eatenBefore = pointManager.getFoodEaten();
+			Direction previous = thePlayer.getDirection();
 			eatFood(thePlayer, currentContent);
 			dieIfGhost(thePlayer, currentContent);
 			thePlayer.deoccupy();
 			thePlayer.occupy(target);
+			theBoard.vacated(source);
 			thePlayer.setDirection(dir);
+			moved(MoveJournal.PLAYER, theBoard.cellOf(source), theBoard.cellOf(target),
+				currentContent instanceof Food, pointManager.getFoodEaten() - eatenBefore, 
+				!thePlayer.isAlive(), previous);
 			notifyViewers();
 		}
 	}
@@ -72,8 +112,10 @@ public class Game extends Observable
 	private void eatFood(Player player, Sprite currentSprite) {
 		if (currentSprite instanceof Food) {
 			Food food = (Food) currentSprite;
-			pointManager.consumePointsOnBoard(player, food.getPoints());
+			int cell = theBoard.cellOf(food.getTile());
+			pointManager.consumeFoodAt(player, cell, food.getPoints());
 			food.deoccupy();
+			rememberEaten(cell, food);
 		}
 	}
 	
@@ -91,29 +133,122 @@ public class Game extends Observable
 	
 	@Override
 	public void moveGhost(Ghost theGhost, Direction dir) {
-		Tile target = theBoard.tileAtDirection(theGhost.getTile(), dir);
-		if (tileCanBeOccupied(target)) {
+		Tile source = theGhost.getTile();
+		if (theBoard.canMove(source, dir)) {
+			Tile target = theBoard.tileAtDirection(source, dir);
 			Sprite currentContent = target.topSprite();
+			boolean kills = false;
 			if (currentContent instanceof Player) {
+				kills = ((Player) currentContent).isAlive();
 				((Player) currentContent).die();
 			}
 			theGhost.deoccupy();
 			theGhost.occupy(target);
+			theBoard.vacated(source);
+			if (isObserved(kills)) {
+				moved(theGhost.getIndex(), theBoard.cellOf(source),
+					theBoard.cellOf(target), false, 0, kills, null);
+			}
 			notifyViewers();
 		} 
 	}
 
 	/**
-	 * Check if there's room on the target tile for another sprite.
-	 * @param target Tile to be occupied by another sprite.
-	 * @return true iff target tile can be occupied.
+	 * @param kills Whether a ghost move killed the player
+	 * @return True iff the hash, the journal, or a listener needs to
+	 *   know about a ghost move.
+	 */
+	private boolean isObserved(boolean kills) {
+		return journal != null || hashValid
+			|| eventBus.isListenedTo(GameEventType.GHOST_MOVED)
+			|| kills && eventBus.isListenedTo(GameEventType.PLAYER_DIED);
+	}
+
+	/**
+	 * A move was made: update the hash, record it in the journal,
+	 * and publish the events it caused.
+	 * @param mover MoveJournal.PLAYER, or the index of the ghost that moved
+	 * @param from Cell moved from
+	 * @param to Cell moved to
+	 * @param ate Whether food was eaten
+	 * @param points Points of the food eaten
+	 * @param kills Whether the move killed the player
+	 * @param previous Direction of the player before the move.
+	 */
+	private void moved(int mover, int from, int to, boolean ate, int points, 
+			boolean kills, Direction previous) {
+		toggleHash(mover, from, to, ate, kills);
+		if (journal != null) {
+			journal.record(mover, from, to, ate, points, kills, previous);
+		}
+		GameEventType type = GameEventType.GHOST_MOVED;
+		if (mover == MoveJournal.PLAYER) {
+			type = GameEventType.PLAYER_MOVED;
+		}
+		eventBus.beginBatch();
+		eventBus.publish(type, mover, from, to);
+		if (ate) {
+			eventBus.publish(GameEventType.FOOD_EATEN, mover, from, to);
+		}
+		if (kills) {
+			eventBus.publish(GameEventType.PLAYER_DIED, mover, from, to);
+		}
+		eventBus.endBatch();
+	}
+	
+	/**
+	 * Update the hash for a move, or for undoing it.
+	 * @param mover MoveJournal.PLAYER, or the index of the ghost that moved
+	 * @param from Cell moved from
+	 * @param to Cell moved to
+	 * @param ate Whether food was eaten
+	 * @param kills Whether the move killed the player
+	 */
+	private void toggleHash(int mover, int from, int to, boolean ate, boolean kills) {
+		if (hashValid) {
+			hash ^= zobrist.mover(mover, from) ^ zobrist.mover(mover, to);
+			if (ate) {
+				hash ^= zobrist.food(to);
+			}
+			if (kills) {
+				hash ^= zobrist.dead();
+			}
+		}
+	}
+	
+	/**
+	 * Obtain the Zobrist hash of the current state: the positions of 
+	 * the player and the ghosts, the food left, and whether the player
+	 * is alive. Once computed, the hash is kept up to date with every
+	 * move at the cost of a few exclusive ors.
+	 * @return The 64-bit hash of the current state.
+	 */
+	public long getHash() {
+		if (!hashValid) {
+			hash = computeHash();
+			hashValid = true;
+		}
+		return hash;
+	}
+	
+	/**
+	 * @return The hash of the current state, computed from scratch.
 	 */
-	private boolean tileCanBeOccupied(Tile target) {
-		assert target != null : "PRE: Argument can't be null";
-		Sprite currentOccupier = target.topSprite();
-		return 
-			currentOccupier == null 
-			|| currentOccupier.getSpriteType() != SpriteType.WALL;
+	private long computeHash() {
+		NeighbourTable cells = theBoard.getNeighbours();
+		zobrist = ZobristKeys.forGame(cells.size(), ghosts.size());
+		long result = zobrist.mover(MoveJournal.PLAYER, theBoard.cellOf(thePlayer.getTile()));
+		if (!thePlayer.isAlive()) {
+			result ^= zobrist.dead();
+		}
+		for (int i = 0; i < ghosts.size(); i++) {
+			result ^= zobrist.mover(i, theBoard.cellOf(ghosts.get(i).getTile()));
+		}
+		FoodLayer food = theBoard.getFoodLayer();
+		for (int cell = food.nextFood(0); cell >= 0; cell = food.nextFood(cell + 1)) {
+			result ^= zobrist.food(cell);
+		}
+		return result;
 	}
 	
 	/**
@@ -129,6 +264,7 @@ public class Game extends Observable
 	 * @param g The ghost to be added.
 	 */
 	public void addGhost(Ghost g) {
+		g.setIndex(ghosts.size());
 		ghosts.add(g);
 	}
 	
@@ -167,10 +303,230 @@ public class Game extends Observable
 	
     /**
      * Warn the observers that the state has changed.
+     * Games without observers, as used in searches, skip this.
+     * During a tick, observers are warned once, at its end.
      */
     protected void notifyViewers() {
-        setChanged();
-        notifyObservers();
+        if (eventBus.inBatch()) {
+        	changedInTick = true;
+        } else if (countObservers() > 0) {
+            setChanged();
+            notifyObservers();
+        }
+    }
+    
+    @Override
+    public GameEventBus getEventBus() {
+    	return eventBus;
+    }
+    
+    @Override
+    public SplitRandom getRandom() {
+    	return random;
+    }
+    
+    /**
+     * Let the controllers of this game use the given random stream,
+     * for example to replay the game from its seed.
+     * @param r The random stream.
+     */
+    public void setRandom(SplitRandom r) {
+    	assert r != null;
+    	random = r;
+    }
+    
+    @Override
+    public void beginTick() {
+    	eventBus.beginBatch();
+    }
+    
+    @Override
+    public void endTick() {
+    	eventBus.endBatch();
+    	if (!eventBus.inBatch() && changedInTick) {
+    		changedInTick = false;
+    		notifyViewers();
+    	}
+    }
+    
+    /**
+     * @param cell Cell the food was on
+     * @param food The food just eaten from that cell.
+     */
+    private void rememberEaten(int cell, Food food) {
+    	if (eatenFood == null) {
+    		eatenFood = new Food[theBoard.getNeighbours().size()];
+    	}
+    	eatenFood[cell] = food;
+    }
+    
+    /**
+     * Take a snapshot of the current state of the game.
+     * @return A new snapshot.
+     */
+    public GameSnapshot snapshot() {
+    	return snapshot(new GameSnapshot());
+    }
+    
+    /**
+     * Take a snapshot of the current state of the game, reusing
+     * an existing snapshot of this game so that nothing is allocated.
+     * @param into The snapshot to be overwritten.
+     * @return The given snapshot, now holding the current state.
+     */
+    public GameSnapshot snapshot(GameSnapshot into) {
+    	assert into != null;
+    	into.setPlayer(theBoard.cellOf(thePlayer.getTile()), thePlayer.getDirection(),
+    			thePlayer.isAlive(), thePlayer.getPoints());
+    	into.setFoodEaten(pointManager.getFoodEaten());
+    	into.setHash(hashValid, hash);
+    	int[] ghostCells = into.ghostCells(ghosts.size());
+    	for (int i = 0; i < ghostCells.length; i++) {
+    		ghostCells[i] = theBoard.cellOf(ghosts.get(i).getTile());
+    	}
+    	FoodLayer food = theBoard.getFoodLayer();
+    	food.copyBits(into.foodBits(food.words()));
+    	return into;
+    }
+    
+    /**
+     * Bring the game back into the state of an earlier snapshot
+     * of this game. Only the food that differs is put back or taken
+     * away, but finding it compares all words of food bits, and the
+     * player and all ghosts are lifted off the board and put back, 
+     * whether they moved or not: a restore costs time in the number
+     * of ghosts plus the number of cells divided by 64.
+     * For undoing a few moves, {@link #undo()} is cheaper.
+     * @param s The snapshot to be restored.
+     */
+    public void restore(GameSnapshot s) {
+    	assert s != null;
+    	assert s.getGhostCount() == ghosts.size() : "PRE: snapshot of this game";
+    	liftMovers();
+    	restoreFood(s.foodBits());
+    	thePlayer.occupy(theBoard.tileAtCell(s.getPlayerCell()));
+    	for (int i = 0; i < ghosts.size(); i++) {
+    		ghosts.get(i).occupy(theBoard.tileAtCell(s.getGhostCell(i)));
+    	}
+    	thePlayer.setDirection(s.getPlayerDirection());
+    	thePlayer.setPoints(s.getPlayerPoints());
+    	if (s.isPlayerAlive()) {
+    		thePlayer.resurrect();
+    	} else {
+    		thePlayer.die();
+    	}
+    	pointManager.restoreFoodEaten(s.getFoodEaten());
+    	hashValid = s.isHashed() && zobrist != null;
+    	hash = s.getHash();
+    	if (journal != null) {
+    		// the moves journaled lead up to another state.
+    		journal.clear();
+    	}
+    	notifyViewers();
+    }
+    
+    /**
+     * Start or stop journaling moves, so that they can be undone.
+     * @param j The journal to record moves in, or null to stop journaling.
+     */
+    public void setJournal(MoveJournal j) {
+    	journal = j;
+    }
+    
+    /**
+     * @return The journal recording moves, or null if there is none.
+     */
+    public MoveJournal getJournal() {
+    	return journal;
+    }
+    
+    /**
+     * Undo the most recent move recorded in the journal, including
+     * the food eaten and the points scored by it.
+     * @return True iff a move was undone.
+     */
+    public boolean undo() {
+    	boolean result = journal != null && !journal.isEmpty();
+    	if (result) {
+    		int e = journal.pop();
+    		int mover = journal.getMover(e);
+    		Sprite sprite = thePlayer;
+    		if (mover != MoveJournal.PLAYER) {
+    			sprite = ghosts.get(mover);
+    		}
+    		toggleHash(mover, journal.getFrom(e), journal.getTo(e), 
+    			journal.getAte(e), journal.getKilled(e));
+    		Tile left = sprite.getTile();
+    		sprite.deoccupy();
+    		if (journal.getAte(e)) {
+    			unEat(journal.getTo(e), journal.getEaten(e));
+    		}
+    		sprite.occupy(theBoard.tileAtCell(journal.getFrom(e)));
+    		theBoard.vacated(left);
+    		if (mover == MoveJournal.PLAYER) {
+    			thePlayer.setDirection(journal.getPreviousDirection(e));
+    		}
+    		if (journal.getKilled(e)) {
+    			thePlayer.resurrect();
+    		}
+    		notifyViewers();
+    	}
+    	return result;
+    }
+    
+    /**
+     * Put food eaten by the player back, and take back its points.
+     * @param cell The cell the food was on
+     * @param points The points the food was worth.
+     */
+    private void unEat(int cell, int points) {
+    	NeighbourTable cells = theBoard.getNeighbours();
+    	theBoard.put(eatenFood[cell], cells.getX(cell), cells.getY(cell));
+    	thePlayer.setPoints(thePlayer.getPoints() - points);
+    	pointManager.restoreFoodEaten(pointManager.getFoodEaten() - points);
+    }
+    
+    /**
+     * Take the player and all ghosts off the board, so that food can
+     * be restored underneath them and they end up on top of it.
+     */
+    private void liftMovers() {
+    	lift(thePlayer);
+    	for (Ghost g : ghosts) {
+    		lift(g);
+    	}
+    }
+    
+    /**
+     * @param mover Sprite to be taken off the board, which may drop
+     *   the tile it leaves.
+     */
+    private void lift(Sprite mover) {
+    	Tile left = mover.getTile();
+    	mover.deoccupy();
+    	theBoard.vacated(left);
+    }
+    
+    /**
+     * Put back the food eaten since the snapshot, and take away
+     * the food that was eaten at the time of the snapshot.
+     * @param bits The food bits of the snapshot.
+     */
+    private void restoreFood(long[] bits) {
+    	FoodLayer layer = theBoard.getFoodLayer();
+    	NeighbourTable cells = theBoard.getNeighbours();
+    	for (int w = 0; w < bits.length; w++) {
+    		long current = layer.word(w);
+    		for (long added = bits[w] & ~current; added != 0; added &= added - 1) {
+    			int cell = w * Long.SIZE + Long.numberOfTrailingZeros(added);
+    			assert eatenFood != null && eatenFood[cell] != null;
+    			theBoard.put(eatenFood[cell], cells.getX(cell), cells.getY(cell));
+    		}
+    		for (long removed = current & ~bits[w]; removed != 0; removed &= removed - 1) {
+    			int cell = w * Long.SIZE + Long.numberOfTrailingZeros(removed);
+    			rememberEaten(cell, theBoard.removeFood(cell));
+    		}
+    	}
     }
 
     /**
@@ -0,0 +1,114 @@
+package org.jpacman.framework.model;
+
+import java.util.Arrays;
+
+/**
+ * Events published during a single tick (or a single move),
+ * delivered together to the listeners.
+ * <p>
+ * Every event has a type, a mover (MoveJournal.PLAYER or the 
+ * index of a ghost), and the cells it took place on: where
+ * the mover came from and went to. Food eaten and deaths 
+ * take place on the to-cell. Events are stored in primitive arrays,
+ * which are reused for every batch.
+ */
+public final class GameEventBatch {
+	
+	private static final int INITIAL_CAPACITY = 16;
+	private static final GameEventType[] TYPES = GameEventType.values();
+	
+	private byte[] types = new byte[INITIAL_CAPACITY];
+	private int[] movers = new int[INITIAL_CAPACITY];
+	private int[] fromCells = new int[INITIAL_CAPACITY];
+	private int[] toCells = new int[INITIAL_CAPACITY];
+	private int size;
+	private int typeMask;
+	
+	/**
+	 * Add an event to the batch.
+	 * @param type The type of the event
+	 * @param mover MoveJournal.PLAYER, or the index of a ghost
+	 * @param from Cell the mover came from
+	 * @param to Cell the event took place on.
+	 */
+	void add(GameEventType type, int mover, int from, int to) {
+		if (size == types.length) {
+			types = Arrays.copyOf(types, 2 * size);
+			movers = Arrays.copyOf(movers, 2 * size);
+			fromCells = Arrays.copyOf(fromCells, 2 * size);
+			toCells = Arrays.copyOf(toCells, 2 * size);
+		}
+		types[size] = (byte) type.ordinal();
+		movers[size] = mover;
+		fromCells[size] = from;
+		toCells[size] = to;
+		size++;
+		typeMask |= type.bit();
+	}
+	
+	/**
+	 * Remove all events, keeping the arrays.
+	 */
+	void clear() {
+		size = 0;
+		typeMask = 0;
+	}
+	
+	/**
+	 * @return Number of events in the batch.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return Mask of the bits of all types in the batch.
+	 */
+	public int getTypeMask() {
+		return typeMask;
+	}
+	
+	/**
+	 * @param type A type of event
+	 * @return True iff the batch contains an event of that type.
+	 */
+	public boolean contains(GameEventType type) {
+		return (typeMask & type.bit()) != 0;
+	}
+	
+	/**
+	 * @param i Index of an event
+	 * @return Its type.
+	 */
+	public GameEventType getType(int i) {
+		assert i < size;
+		return TYPES[types[i]];
+	}
+	
+	/**
+	 * @param i Index of an event
+	 * @return MoveJournal.PLAYER, or the index of the ghost involved.
+	 */
+	public int getMover(int i) {
+		assert i < size;
+		return movers[i];
+	}
+	
+	/**
+	 * @param i Index of an event
+	 * @return The cell the mover came from.
+	 */
+	public int getFrom(int i) {
+		assert i < size;
+		return fromCells[i];
+	}
+	
+	/**
+	 * @param i Index of an event
+	 * @return The cell the event took place on.
+	 */
+	public int getTo(int i) {
+		assert i < size;
+		return toCells[i];
+	}
+}
@@ -0,0 +1,242 @@
+package org.jpacman.framework.model;
+
+import java.util.Arrays;
+
+/**
+ * Typed event bus of a game.
+ * <p>
+ * Listeners subscribe to the event types they are interested in,
+ * and are kept in an array per set of types, so that a batch is
+ * dispatched to the array for the types it contains, in which every
+ * listener interested in any of them occurs once. With only a few
+ * types, there are only a few such sets. Events of types nobody
+ * listens to are dropped when published. Events published between 
+ * {@link #beginBatch()} and {@link #endBatch()}, typically all moves
+ * of one tick, are coalesced: every listener then receives
+ * them in a single batch, so that it repaints or updates once per 
+ * tick rather than once per move. Outside a batch, events are 
+ * delivered immediately.
+ * <p>
+ * Listeners may be added and removed from any thread: the subscriptions
+ * are kept in an immutable holder, replaced as a whole on every change.
+ * Publishing is confined to the thread owning the game.
+ */
+public class GameEventBus {
+	
+	private static final IGameEventListener[] NONE = new IGameEventListener[0];
+	
+	/**
+	 * Immutable set of subscriptions.
+	 */
+	private static final class Subscriptions {
+		
+		/**
+		 * All listeners, each with the mask of the types it listens to.
+		 */
+		private final IGameEventListener[] listeners;
+		private final int[] masks;
+		
+		/**
+		 * The listeners interested in any of a set of types,
+		 * indexed by the mask of that set.
+		 */
+		private final IGameEventListener[][] byMask;
+		
+		/**
+		 * Mask of all types listened to by any listener.
+		 */
+		private final int listenedTypes;
+		
+		/**
+		 * Create the subscriptions of the given listeners.
+		 * @param ls The listeners, in order of subscription
+		 * @param ms The types each of them listens to.
+		 */
+		Subscriptions(IGameEventListener[] ls, int[] ms) {
+			assert ls.length == ms.length;
+			listeners = ls;
+			masks = ms;
+			byMask = new IGameEventListener[1 << GameEventType.values().length][];
+			for (int m = 0; m < byMask.length; m++) {
+				byMask[m] = interestedIn(m);
+			}
+			int all = 0;
+			for (int mask : ms) {
+				all |= mask;
+			}
+			listenedTypes = all;
+		}
+		
+		/**
+		 * @param types Mask of a set of types
+		 * @return The listeners interested in any of those types.
+		 */
+		private IGameEventListener[] interestedIn(int types) {
+			IGameEventListener[] result = NONE;
+			for (int i = 0; i < listeners.length; i++) {
+				if ((masks[i] & types) != 0) {
+					result = append(result, listeners[i]);
+				}
+			}
+			return result;
+		}
+	}
+	
+	/**
+	 * The current subscriptions, replaced as a whole on every change.
+	 */
+	private volatile Subscriptions subscriptions = new Subscriptions(NONE, new int[0]);
+	
+	/**
+	 * The batch being collected, and the one being delivered,
+	 * so that listeners can cause new events while being informed.
+	 */
+	private GameEventBatch pending = new GameEventBatch();
+	private GameEventBatch delivering = new GameEventBatch();
+	
+	/**
+	 * Nesting depth of batches begun but not ended.
+	 */
+	private int batchDepth;
+	
+	/**
+	 * Whether events are being delivered right now.
+	 */
+	private boolean flushing;
+	
+	/**
+	 * Subscribe a listener to the given types of events.
+	 * @param l The listener
+	 * @param types The types it listens to; all types if none are given.
+	 */
+	public synchronized void addListener(IGameEventListener l, GameEventType... types) {
+		assert l != null;
+		GameEventType[] subscribed = types;
+		if (subscribed.length == 0) {
+			subscribed = GameEventType.values();
+		}
+		int mask = 0;
+		for (GameEventType t : subscribed) {
+			mask |= t.bit();
+		}
+		Subscriptions old = subscriptions;
+		int[] masks = Arrays.copyOf(old.masks, old.masks.length + 1);
+		masks[old.masks.length] = mask;
+		subscriptions = new Subscriptions(append(old.listeners, l), masks);
+	}
+	
+	/**
+	 * Unsubscribe a listener from all types of events.
+	 * Does nothing if it is not subscribed.
+	 * @param l The listener.
+	 */
+	public synchronized void removeListener(IGameEventListener l) {
+		Subscriptions old = subscriptions;
+		IGameEventListener[] ls = new IGameEventListener[old.listeners.length];
+		int[] masks = new int[ls.length];
+		int kept = 0;
+		for (int i = 0; i < ls.length; i++) {
+			if (old.listeners[i] != l) {
+				ls[kept] = old.listeners[i];
+				masks[kept] = old.masks[i];
+				kept++;
+			}
+		}
+		subscriptions = new Subscriptions(Arrays.copyOf(ls, kept), Arrays.copyOf(masks, kept));
+	}
+	
+	private static IGameEventListener[] append(IGameEventListener[] ls, IGameEventListener l) {
+		IGameEventListener[] result = Arrays.copyOf(ls, ls.length + 1);
+		result[ls.length] = l;
+		return result;
+	}
+	
+	/**
+	 * @param type A type of events
+	 * @return The listeners subscribed to that type.
+	 */
+	public IGameEventListener[] getListeners(GameEventType type) {
+		return subscriptions.byMask[type.bit()].clone();
+	}
+	
+	/**
+	 * @param type A type of events
+	 * @return True iff anyone listens to events of that type.
+	 */
+	public boolean isListenedTo(GameEventType type) {
+		return (subscriptions.listenedTypes & type.bit()) != 0;
+	}
+	
+	/**
+	 * Publish an event.
+	 * @param type The type of the event
+	 * @param mover MoveJournal.PLAYER, or the index of a ghost
+	 * @param from Cell the mover came from
+	 * @param to Cell the event took place on.
+	 */
+	public void publish(GameEventType type, int mover, int from, int to) {
+		if (isListenedTo(type)) {
+			pending.add(type, mover, from, to);
+			if (batchDepth == 0) {
+				flush();
+			}
+		}
+	}
+	
+	/**
+	 * Start collecting events, to be delivered at the matching endBatch.
+	 * Batches may be nested, in which case the outermost one counts.
+	 */
+	public void beginBatch() {
+		batchDepth++;
+	}
+	
+	/**
+	 * End a batch, delivering its events if it is the outermost one.
+	 */
+	public void endBatch() {
+		assert batchDepth > 0 : "PRE: batch should have begun";
+		batchDepth--;
+		if (batchDepth == 0) {
+			flush();
+		}
+	}
+	
+	/**
+	 * @return True iff events are currently being collected.
+	 */
+	public boolean inBatch() {
+		return batchDepth > 0;
+	}
+	
+	/**
+	 * Deliver the pending events to every listener interested in
+	 * at least one of them, once. Events published by the listeners
+	 * meanwhile are delivered in a next round.
+	 */
+	private void flush() {
+		if (!flushing) {
+			flushing = true;
+			try {
+				while (pending.size() > 0) {
+					GameEventBatch batch = pending;
+					pending = delivering;
+					delivering = batch;
+					deliver(batch);
+					batch.clear();
+				}
+			} finally {
+				flushing = false;
+			}
+		}
+	}
+	
+	/**
+	 * @param batch Events to be delivered to the listeners interested.
+	 */
+	private void deliver(GameEventBatch batch) {
+		for (IGameEventListener l : subscriptions.byMask[batch.getTypeMask()]) {
+			l.eventsOccurred(batch);
+		}
+	}
+}
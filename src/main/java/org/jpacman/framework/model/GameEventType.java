@@ -0,0 +1,34 @@
+package org.jpacman.framework.model;
+
+/**
+ * The kinds of events a game publishes on its event bus.
+ */
+public enum GameEventType {
+	
+	/**
+	 * The player moved from one cell to another.
+	 */
+	PLAYER_MOVED,
+	
+	/**
+	 * A ghost moved from one cell to another.
+	 */
+	GHOST_MOVED,
+	
+	/**
+	 * The player ate the food on a cell.
+	 */
+	FOOD_EATEN,
+	
+	/**
+	 * The player died.
+	 */
+	PLAYER_DIED;
+	
+	/**
+	 * @return The bit representing this type in type masks.
+	 */
+	public int bit() {
+		return 1 << ordinal();
+	}
+}
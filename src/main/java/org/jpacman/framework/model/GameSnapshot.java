@@ -0,0 +1,154 @@
+package org.jpacman.framework.model;
+
+/**
+ * Compact copy of the dynamic state of a game: where the player
+ * and ghosts are, which food is left, and the points scored.
+ * <p>
+ * Snapshots are taken and restored by the game they belong to.
+ * A snapshot can be reused for many snapshots of the same game,
+ * in which case taking a snapshot does not allocate at all.
+ * Cells are identified by their index <code>x + y * width</code>.
+ */
+public final class GameSnapshot {
+	
+	private int playerCell;
+	private Direction playerDirection;
+	private boolean playerAlive;
+	private int playerPoints;
+	private int foodEaten;
+	private int[] ghostCells = new int[0];
+	private long[] food = new long[0];
+	private boolean hashed;
+	private long hash;
+	
+	/**
+	 * Record the state of the player.
+	 * @param cell Cell the player is on
+	 * @param dir Direction the player is moving to
+	 * @param alive Whether the player is alive
+	 * @param points Points scored by the player.
+	 */
+	void setPlayer(int cell, Direction dir, boolean alive, int points) {
+		playerCell = cell;
+		playerDirection = dir;
+		playerAlive = alive;
+		playerPoints = points;
+	}
+	
+	/**
+	 * @param eaten Points consumed from the board.
+	 */
+	void setFoodEaten(int eaten) {
+		foodEaten = eaten;
+	}
+	
+	/**
+	 * @param known Whether the game maintained its hash
+	 * @param h The hash of the game, if known.
+	 */
+	void setHash(boolean known, long h) {
+		hashed = known;
+		hash = h;
+	}
+	
+	/**
+	 * @return True iff the hash of the game was recorded.
+	 */
+	boolean isHashed() {
+		return hashed;
+	}
+	
+	/**
+	 * @return The hash of the game, if recorded.
+	 */
+	long getHash() {
+		return hash;
+	}
+	
+	/**
+	 * @param n Number of ghosts in the game.
+	 * @return Array of n ghost cells to be filled, reused if possible.
+	 */
+	int[] ghostCells(int n) {
+		if (ghostCells.length != n) {
+			ghostCells = new int[n];
+		}
+		return ghostCells;
+	}
+	
+	/**
+	 * @param words Number of words in the food layer.
+	 * @return Array of the food bits to be filled, reused if possible.
+	 */
+	long[] foodBits(int words) {
+		if (food.length != words) {
+			food = new long[words];
+		}
+		return food;
+	}
+	
+	/**
+	 * @return The food bits recorded, one per cell.
+	 */
+	long[] foodBits() {
+		return food;
+	}
+	
+	/**
+	 * @return The cell the player is on.
+	 */
+	public int getPlayerCell() {
+		return playerCell;
+	}
+
+	/**
+	 * @return The direction the player is moving to.
+	 */
+	public Direction getPlayerDirection() {
+		return playerDirection;
+	}
+
+	/**
+	 * @return True iff the player is alive.
+	 */
+	public boolean isPlayerAlive() {
+		return playerAlive;
+	}
+
+	/**
+	 * @return The points scored by the player.
+	 */
+	public int getPlayerPoints() {
+		return playerPoints;
+	}
+
+	/**
+	 * @return The points consumed from the board.
+	 */
+	public int getFoodEaten() {
+		return foodEaten;
+	}
+	
+	/**
+	 * @return Number of ghosts recorded.
+	 */
+	public int getGhostCount() {
+		return ghostCells.length;
+	}
+	
+	/**
+	 * @param i Index of the ghost, in the order of the game's ghosts
+	 * @return The cell the ghost is on.
+	 */
+	public int getGhostCell(int i) {
+		return ghostCells[i];
+	}
+	
+	/**
+	 * @param cell Index of a cell
+	 * @return True iff the cell contained food.
+	 */
+	public boolean hasFood(int cell) {
+		return (food[cell / Long.SIZE] & (1L << cell)) != 0;
+	}
+}
@@ -9,6 +9,26 @@ import org.jpacman.framework.model.IBoardInspector.SpriteType;
  */
 public class Ghost extends Sprite {
 
+	/**
+	 * Position of this ghost in the list of ghosts of its game.
+	 */
+	private int index = -1;
+
+	/**
+	 * @return Position of this ghost in the ghost list of its game,
+	 *   or -1 if it hasn't been added to a game.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @param i Position of this ghost in the ghost list of its game.
+	 */
+	void setIndex(int i) {
+		index = i;
+	}
+
 	/**
 	 * @return That this sprite is a ghost.
 	 */
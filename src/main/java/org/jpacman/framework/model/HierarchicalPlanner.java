@@ -0,0 +1,633 @@
+package org.jpacman.framework.model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hierarchical path planner (HPA*, Botea, M&uuml;ller and Schaeffer, 2004)
+ * for boards too large to search cell by cell for every query.
+ * <p>
+ * The maze is partitioned into square clusters. Where a cluster border
+ * can be crossed, every stretch of adjacent crossings is an entrance,
+ * marked by one transition in its middle, or by one at either end if
+ * the stretch is long. The cells on both sides of a transition are the
+ * nodes of an abstract graph, connected by the crossing move and, within
+ * each cluster, by their precomputed distances inside that cluster.
+ * These distances are computed in parallel, cluster by cluster.
+ * <p>
+ * A query searches within the start and goal clusters only, then runs
+ * A* over the abstract graph, and finally refines every abstract step
+ * into moves by a search within its cluster. Paths found are nearly,
+ * but not always, shortest. The planner is immutable once built, so it
+ * can be shared by all games on the same maze, for example through
+ * {@link MazeTemplate#getPlanner()}. Every thread querying it gets
+ * search buffers of its own, which are reused for all its queries, so
+ * a query only allocates the path it returns.
+ */
+public final class HierarchicalPlanner {
+
+	/**
+	 * The default width and height of clusters.
+	 */
+	public static final int DEFAULT_CLUSTER_SIZE = 16;
+
+	/**
+	 * Entrances at least this long get a transition at both ends.
+	 */
+	private static final int LONG_ENTRANCE = 6;
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final int NONE = -1;
+	private static final int INT_BITS = 32;
+	private static final long LOW_BITS = 0xffffffffL;
+	private static final int INITIAL_OPEN = 64;
+
+	private final NeighbourTable neighbours;
+	private final WallMap walls;
+	private final int clusterSize;
+	private final int clustersX;
+	private final int clusterCount;
+
+	/**
+	 * Abstract nodes: their cells, and the node of every cell, or -1.
+	 */
+	private final int[] nodeOf;
+	private int[] nodeCell = new int[0];
+	private int nodeCount;
+
+	/**
+	 * Crossings between nodes, collected as pairs, then grouped per node.
+	 */
+	private int[] crossings = new int[0];
+	private int crossingCount;
+	private int[] crossStart;
+	private int[] crossTarget;
+
+	/**
+	 * Nodes per cluster, the position of every node among the nodes
+	 * of its cluster, and per cluster the k * k distances between
+	 * its k nodes, starting at intraStart.
+	 */
+	private int[] clusterStart;
+	private int[] clusterNodes;
+	private int[] nodeIndex;
+	private int maxClusterNodes;
+	private int[] intraStart;
+	private int[] intra;
+
+	/**
+	 * The query buffers of every thread using this planner.
+	 */
+	private final ThreadLocal<Query> queries = new ThreadLocal<Query>() {
+		@Override
+		protected Query initialValue() {
+			return new Query();
+		}
+	};
+
+	/**
+	 * Build the planner for the given walls, using all cores.
+	 * @param wallMap The walls of the maze, which should not change anymore
+	 * @param size Width and height of the clusters.
+	 */
+	public HierarchicalPlanner(WallMap wallMap, int size) {
+		this(wallMap, size, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Build the planner for the given walls.
+	 * @param wallMap The walls of the maze, which should not change anymore
+	 * @param size Width and height of the clusters
+	 * @param threads Number of threads computing cluster distances.
+	 */
+	public HierarchicalPlanner(WallMap wallMap, int size, int threads) {
+		assert size > 0 && threads > 0;
+		walls = wallMap;
+		neighbours = wallMap.getNeighbours();
+		clusterSize = size;
+		clustersX = (neighbours.getWidth() + size - 1) / size;
+		int clustersY = (neighbours.getHeight() + size - 1) / size;
+		clusterCount = clustersX * clustersY;
+		nodeOf = new int[neighbours.size()];
+		Arrays.fill(nodeOf, NONE);
+		findEntrances(clustersY);
+		groupCrossings();
+		groupClusters();
+		computeIntraDistances(threads);
+	}
+
+	/**
+	 * @param cell Index of a cell
+	 * @return The cluster containing it.
+	 */
+	private int clusterOf(int cell) {
+		return neighbours.getX(cell) / clusterSize
+			+ neighbours.getY(cell) / clusterSize * clustersX;
+	}
+
+	/**
+	 * Scan the right and bottom border of every cluster; the left and
+	 * top borders are those of the neighbouring clusters, also through
+	 * the tunnels at the borders of the board.
+	 * @param clustersY Number of rows of clusters.
+	 */
+	private void findEntrances(int clustersY) {
+		for (int cy = 0; cy < clustersY; cy++) {
+			for (int cx = 0; cx < clustersX; cx++) {
+				int right = Math.min((cx + 1) * clusterSize, neighbours.getWidth()) - 1;
+				int bottom = Math.min((cy + 1) * clusterSize, neighbours.getHeight()) - 1;
+				int left = cx * clusterSize;
+				int top = cy * clusterSize;
+				scanBorder(neighbours.cell(right, top), Direction.DOWN,
+						bottom - top + 1, Direction.RIGHT);
+				scanBorder(neighbours.cell(left, bottom), Direction.RIGHT,
+						right - left + 1, Direction.DOWN);
+			}
+		}
+	}
+
+	/**
+	 * Find the entrances along one border.
+	 * @param first The first cell of the border
+	 * @param along Direction in which the border runs
+	 * @param length Number of cells of the border
+	 * @param across Direction crossing the border.
+	 */
+	private void scanBorder(int first, Direction along, int length, Direction across) {
+		int runStart = NONE;
+		int runLength = 0;
+		int cell = first;
+		for (int i = 0; i <= length; i++) {
+			boolean open = i < length && crosses(cell, across);
+			if (open && runLength == 0) {
+				runStart = cell;
+			}
+			if (open) {
+				runLength++;
+			} else if (runLength > 0) {
+				addEntrance(runStart, along, runLength, across);
+				runLength = 0;
+			}
+			cell = neighbours.neighbour(cell, along);
+		}
+	}
+
+	/**
+	 * @param cell A border cell
+	 * @param across Direction crossing the border
+	 * @return True iff a move across leads into another cluster.
+	 */
+	private boolean crosses(int cell, Direction across) {
+		return walls.canMove(cell, across) && !walls.isWall(cell)
+			&& clusterOf(neighbours.neighbour(cell, across)) != clusterOf(cell);
+	}
+
+	/**
+	 * Add the transitions of an entrance.
+	 * @param start First cell of the entrance
+	 * @param along Direction in which the entrance runs
+	 * @param length Number of cells of the entrance
+	 * @param across Direction crossing the border.
+	 */
+	private void addEntrance(int start, Direction along, int length, Direction across) {
+		if (length < LONG_ENTRANCE) {
+			addTransition(walk(start, along, length / 2), across);
+		} else {
+			addTransition(start, across);
+			addTransition(walk(start, along, length - 1), across);
+		}
+	}
+
+	/**
+	 * @param start Cell to start from
+	 * @param dir Direction to walk in
+	 * @param steps Number of steps
+	 * @return The cell reached.
+	 */
+	private int walk(int start, Direction dir, int steps) {
+		int result = start;
+		for (int i = 0; i < steps; i++) {
+			result = neighbours.neighbour(result, dir);
+		}
+		return result;
+	}
+
+	/**
+	 * @param cell Cell on one side of a border
+	 * @param across Direction crossing it.
+	 */
+	private void addTransition(int cell, Direction across) {
+		int a = node(cell);
+		int b = node(neighbours.neighbour(cell, across));
+		if (crossingCount + 2 > crossings.length) {
+			crossings = Arrays.copyOf(crossings, 2 * crossings.length + 2);
+		}
+		crossings[crossingCount++] = a;
+		crossings[crossingCount++] = b;
+	}
+
+	/**
+	 * @param cell Index of a cell
+	 * @return Its node, which is added if the cell wasn't a node yet.
+	 */
+	private int node(int cell) {
+		if (nodeOf[cell] == NONE) {
+			if (nodeCount == nodeCell.length) {
+				nodeCell = Arrays.copyOf(nodeCell, 2 * nodeCount + 1);
+			}
+			nodeOf[cell] = nodeCount;
+			nodeCell[nodeCount++] = cell;
+		}
+		return nodeOf[cell];
+	}
+
+	/**
+	 * Group the crossings, in both directions, per node.
+	 */
+	private void groupCrossings() {
+		crossStart = new int[nodeCount + 1];
+		for (int i = 0; i < crossingCount; i++) {
+			crossStart[crossings[i] + 1]++;
+		}
+		for (int n = 0; n < nodeCount; n++) {
+			crossStart[n + 1] += crossStart[n];
+		}
+		int[] fill = Arrays.copyOf(crossStart, nodeCount);
+		crossTarget = new int[crossingCount];
+		for (int i = 0; i < crossingCount; i += 2) {
+			crossTarget[fill[crossings[i]]++] = crossings[i + 1];
+			crossTarget[fill[crossings[i + 1]]++] = crossings[i];
+		}
+		crossings = null;
+	}
+
+	/**
+	 * Group the nodes per cluster, and reserve room for their distances.
+	 */
+	private void groupClusters() {
+		clusterStart = new int[clusterCount + 1];
+		for (int n = 0; n < nodeCount; n++) {
+			clusterStart[clusterOf(nodeCell[n]) + 1]++;
+		}
+		intraStart = new int[clusterCount + 1];
+		for (int c = 0; c < clusterCount; c++) {
+			int k = clusterStart[c + 1];
+			maxClusterNodes = Math.max(maxClusterNodes, k);
+			intraStart[c + 1] = intraStart[c] + k * k;
+			clusterStart[c + 1] += clusterStart[c];
+		}
+		int[] fill = Arrays.copyOf(clusterStart, clusterCount);
+		clusterNodes = new int[nodeCount];
+		nodeIndex = new int[nodeCount];
+		for (int n = 0; n < nodeCount; n++) {
+			int c = clusterOf(nodeCell[n]);
+			nodeIndex[n] = fill[c] - clusterStart[c];
+			clusterNodes[fill[c]++] = n;
+		}
+		intra = new int[intraStart[clusterCount]];
+	}
+
+	/**
+	 * Compute the distances between the nodes of every cluster, with
+	 * all threads claiming the next cluster until all are done.
+	 * @param threads Number of threads to use, including the current one.
+	 */
+	private void computeIntraDistances(int threads) {
+		final AtomicInteger next = new AtomicInteger();
+		Runnable worker = new Runnable() {
+			@Override
+			public void run() {
+				ClusterSearch search = new ClusterSearch(walls, clusterSize);
+				for (int c = next.getAndIncrement(); c < clusterCount;
+						c = next.getAndIncrement()) {
+					computeCluster(c, search);
+				}
+			}
+		};
+		Thread[] helpers = new Thread[threads - 1];
+		for (int i = 0; i < helpers.length; i++) {
+			helpers[i] = new Thread(worker, "jpacman-clusters");
+			helpers[i].start();
+		}
+		worker.run();
+		DistanceTable.joinAll(helpers);
+	}
+
+	/**
+	 * @param cluster The cluster whose distances are to be computed
+	 * @param search Search buffers of the current thread.
+	 */
+	private void computeCluster(int cluster, ClusterSearch search) {
+		int k = clusterStart[cluster + 1] - clusterStart[cluster];
+		for (int i = 0; i < k; i++) {
+			search.search(nodeCell[clusterNodes[clusterStart[cluster] + i]]);
+			for (int j = 0; j < k; j++) {
+				int d = search.distance(nodeCell[clusterNodes[clusterStart[cluster] + j]]);
+				intra[intraStart[cluster] + i * k + j] = d;
+			}
+		}
+	}
+
+	/**
+	 * @return Number of nodes of the abstract graph.
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * @return Number of clusters.
+	 */
+	public int getClusterCount() {
+		return clusterCount;
+	}
+
+	/**
+	 * @return Width and height of the clusters.
+	 */
+	public int getClusterSize() {
+		return clusterSize;
+	}
+
+	/**
+	 * Plan a path between two tiles.
+	 * @param from The tile to start from
+	 * @param to The tile to go to
+	 * @return The moves leading from one tile to the other, or null
+	 *   if there is no path.
+	 */
+	public Direction[] path(Tile from, Tile to) {
+		return path(neighbours.cell(from.getX(), from.getY()),
+				neighbours.cell(to.getX(), to.getY()));
+	}
+
+	/**
+	 * Plan a path between two cells.
+	 * @param from Index of the cell to start from
+	 * @param to Index of the cell to go to
+	 * @return The moves leading from one cell to the other, or null
+	 *   if there is no path.
+	 */
+	public Direction[] path(int from, int to) {
+		Direction[] result = null;
+		if (!walls.isWall(from) && !walls.isWall(to)) {
+			Query q = queries.get();
+			q.reset(from, to);
+			if (q.plan()) {
+				result = q.refine();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The buffers of path queries: A* over the abstract nodes, with two
+	 * virtual nodes for the start and the goal, followed by refinement.
+	 * A query only sees the distances and parents it set itself: the
+	 * others carry the stamp of an earlier query, so nothing needs
+	 * to be cleared between queries.
+	 */
+	private final class Query {
+		private final int startNode = nodeCount;
+		private final int goalNode = nodeCount + 1;
+		private final int[] g = new int[nodeCount + 2];
+		private final int[] parent = new int[nodeCount + 2];
+		private final int[] stamp = new int[nodeCount + 2];
+		private final int[] trail = new int[nodeCount + 2];
+		private final int[] fromStart = new int[maxClusterNodes];
+		private final int[] toGoal = new int[maxClusterNodes];
+		private final ClusterSearch search = new ClusterSearch(walls, clusterSize);
+
+		/**
+		 * Binary min-heap of open nodes, each entry holding the
+		 * estimate in its high and the node in its low half.
+		 */
+		private long[] open = new long[INITIAL_OPEN];
+		private int openSize;
+
+		private int current;
+		private int start;
+		private int goal;
+		private int direct;
+
+		/**
+		 * Start a new query, forgetting the previous one.
+		 * @param from Index of the cell to start from
+		 * @param to Index of the cell to go to.
+		 */
+		void reset(int from, int to) {
+			if (current == Integer.MAX_VALUE) {
+				Arrays.fill(stamp, 0);
+				current = 0;
+			}
+			current++;
+			openSize = 0;
+			start = from;
+			goal = to;
+			search.search(goal);
+			clusterDistances(clusterOf(goal), toGoal);
+			direct = search.distance(start);
+		}
+
+		/**
+		 * @param cluster A cluster
+		 * @param result Buffer for the distances from the source of the
+		 *   last search to the nodes of the cluster, in order.
+		 */
+		private void clusterDistances(int cluster, int[] result) {
+			int first = clusterStart[cluster];
+			for (int i = 0; i < clusterStart[cluster + 1] - first; i++) {
+				result[i] = search.distance(nodeCell[clusterNodes[first + i]]);
+			}
+		}
+
+		/**
+		 * @param n A node
+		 * @return Its distance from the start found in this query so far.
+		 */
+		private int distance(int n) {
+			int result = Integer.MAX_VALUE;
+			if (stamp[n] == current) {
+				result = g[n];
+			}
+			return result;
+		}
+
+		/**
+		 * @return True iff the goal was reached.
+		 */
+		boolean plan() {
+			g[startNode] = 0;
+			parent[startNode] = NONE;
+			stamp[startNode] = current;
+			search.search(start);
+			int cluster = clusterOf(start);
+			clusterDistances(cluster, fromStart);
+			for (int i = 0; i < clusterStart[cluster + 1] - clusterStart[cluster]; i++) {
+				relax(startNode, clusterNodes[clusterStart[cluster] + i], fromStart[i]);
+			}
+			relax(startNode, goalNode, direct);
+			for (int n = pop(); n != NONE && n != goalNode; n = pop()) {
+				expand(n);
+			}
+			return distance(goalNode) != Integer.MAX_VALUE;
+		}
+
+		/**
+		 * @return The open node with the lowest estimate, or -1 if none.
+		 */
+		private int pop() {
+			int result = NONE;
+			while (result == NONE && openSize > 0) {
+				long entry = poll();
+				int n = (int) (entry & LOW_BITS);
+				if ((int) (entry >>> INT_BITS) == g[n] + estimate(n)) {
+					result = n;
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * @param entry Entry to be added to the open heap.
+		 */
+		private void push(long entry) {
+			if (openSize == open.length) {
+				open = Arrays.copyOf(open, 2 * open.length);
+			}
+			int i = openSize++;
+			while (i > 0 && open[(i - 1) / 2] > entry) {
+				open[i] = open[(i - 1) / 2];
+				i = (i - 1) / 2;
+			}
+			open[i] = entry;
+		}
+
+		/**
+		 * @return The smallest entry, taken out of the non-empty open heap.
+		 */
+		private long poll() {
+			long result = open[0];
+			long last = open[--openSize];
+			int i = 0;
+			boolean placed = false;
+			for (int child = 1; child < openSize && !placed; child = 2 * i + 1) {
+				if (child + 1 < openSize && open[child + 1] < open[child]) {
+					child++;
+				}
+				if (open[child] < last) {
+					open[i] = open[child];
+					i = child;
+				} else {
+					placed = true;
+				}
+			}
+			open[i] = last;
+			return result;
+		}
+
+		/**
+		 * @param n An abstract node, just taken from the open set.
+		 */
+		private void expand(int n) {
+			for (int e = crossStart[n]; e < crossStart[n + 1]; e++) {
+				relax(n, crossTarget[e], 1);
+			}
+			int cluster = clusterOf(nodeCell[n]);
+			int first = clusterStart[cluster];
+			int k = clusterStart[cluster + 1] - first;
+			int i = nodeIndex[n];
+			for (int j = 0; j < k; j++) {
+				relax(n, clusterNodes[first + j], intra[intraStart[cluster] + i * k + j]);
+			}
+			if (cluster == clusterOf(goal)) {
+				relax(n, goalNode, toGoal[i]);
+			}
+		}
+
+		/**
+		 * @param from Node reached
+		 * @param to Node to be reached through it
+		 * @param length Length of the step, or -1 if there is none.
+		 */
+		private void relax(int from, int to, int length) {
+			if (length >= 0 && g[from] + length < distance(to)) {
+				g[to] = g[from] + length;
+				parent[to] = from;
+				stamp[to] = current;
+				push(((long) (g[to] + estimate(to)) << INT_BITS) | to);
+			}
+		}
+
+		/**
+		 * @param n A node
+		 * @return Lower bound of its distance to the goal: the distance
+		 *   in rows and columns, going round through the tunnels if shorter.
+		 */
+		private int estimate(int n) {
+			int cell = goal;
+			if (n < nodeCount) {
+				cell = nodeCell[n];
+			} else if (n == startNode) {
+				cell = start;
+			}
+			int dx = Math.abs(neighbours.getX(cell) - neighbours.getX(goal));
+			int dy = Math.abs(neighbours.getY(cell) - neighbours.getY(goal));
+			return Math.min(dx, neighbours.getWidth() - dx)
+				+ Math.min(dy, neighbours.getHeight() - dy);
+		}
+
+		/**
+		 * @return The moves of the path found, refined within the clusters.
+		 */
+		Direction[] refine() {
+			Direction[] moves = new Direction[g[goalNode]];
+			int count = 0;
+			for (int n = goalNode; n != NONE; n = parent[n]) {
+				trail[count++] = n;
+			}
+			int at = 0;
+			for (int i = count - 1; i > 0; i--) {
+				at = refineStep(cellOf(trail[i]), cellOf(trail[i - 1]), moves, at);
+			}
+			return moves;
+		}
+
+		/**
+		 * @param n A node, possibly virtual
+		 * @return Its cell.
+		 */
+		private int cellOf(int n) {
+			int result = goal;
+			if (n < nodeCount) {
+				result = nodeCell[n];
+			} else if (n == startNode) {
+				result = start;
+			}
+			return result;
+		}
+
+		/**
+		 * @param from Cell of one node on the path
+		 * @param to Cell of the next
+		 * @param moves Buffer for the moves
+		 * @param at Position of the next move in the buffer
+		 * @return Position following the moves of this step.
+		 */
+		private int refineStep(int from, int to, Direction[] moves, int at) {
+			int result = at;
+			if (clusterOf(from) == clusterOf(to)) {
+				search.search(from);
+				result = search.movesTo(to, moves, at);
+			} else {
+				for (Direction d : DIRECTIONS) {
+					if (walls.canMove(from, d) && neighbours.neighbour(from, d) == to) {
+						moves[at] = d;
+					}
+				}
+				result = at + 1;
+			}
+			return result;
+		}
+	}
+}
@@ -49,4 +49,12 @@ public interface IBoardInspector {
 	 * @return The tile at the given location.
 	 */
 	Tile tileAt(int x, int y);	
+	
+	/**
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @return Mask of the directions, as given by Direction.bit(),
+	 *   in which (x,y) can be left without bumping into a wall.
+	 */
+	int legalMoves(int x, int y);
 }
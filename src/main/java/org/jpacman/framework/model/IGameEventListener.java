@@ -0,0 +1,14 @@
+package org.jpacman.framework.model;
+
+/**
+ * Listener to the events of a game, delivered in batches.
+ */
+public interface IGameEventListener {
+	
+	/**
+	 * Events of the types listened to have occurred.
+	 * The batch is only valid during this call.
+	 * @param events The events, possibly including other types as well.
+	 */
+	void eventsOccurred(GameEventBatch events);
+}
@@ -22,6 +22,28 @@ public interface IGameInteractor {
 	 */
 	void attach(Observer o);
 	
+	/**
+	 * @return The bus publishing typed events about the game.
+	 */
+	GameEventBus getEventBus();
+	
+	/**
+	 * @return Random numbers for controllers of this game, which should
+	 * only be drawn by the thread owning the game.
+	 */
+	SplitRandom getRandom();
+	
+	/**
+	 * Start a tick: events and observer notifications are
+	 * collected until the tick ends, and then delivered at once.
+	 */
+	void beginTick();
+	
+	/**
+	 * End a tick, delivering the events collected during it.
+	 */
+	void endTick();
+	
 	/**
 	 * Move a ghost in the given direction.
 	 * @param g The ghost to be moved
@@ -0,0 +1,402 @@
+package org.jpacman.framework.model;
+
+import java.util.Arrays;
+
+/**
+ * The maze compressed into a weighted graph of junctions.
+ * <p>
+ * Most walkable cells of a maze are corridor cells, with exactly two
+ * exits. The nodes of the graph are all other walkable cells: the
+ * intersections and the dead ends. The edges are the corridors
+ * connecting them, weighted by their length in moves. A corridor
+ * looping back into itself without any junction gets one of its cells
+ * as a node, so that every walkable cell is a node or in a corridor.
+ * <p>
+ * Bots and ghosts can plan over the nodes, and then map their plan
+ * back onto the board: every edge knows the direction it leaves its
+ * node in, and every corridor cell knows the direction to either end.
+ * All data is kept in primitive arrays; the graph is immutable, so
+ * it can be shared by all games on the same walls.
+ */
+public final class JunctionGraph {
+
+	private static final Direction[] DIRECTIONS = Direction.values();
+	private static final int NONE = -1;
+
+	private final NeighbourTable neighbours;
+	private final WallMap walls;
+
+	/**
+	 * Node number per cell, or -1 for walls and corridor cells.
+	 */
+	private final int[] nodeOf;
+	private int[] nodeCells = new int[0];
+	private int nodeCount;
+
+	/**
+	 * Corridors, from end A to end B, with their cells stored
+	 * consecutively in corridorCells, starting at corridorStart.
+	 */
+	private int[] corridorA = new int[0];
+	private int[] corridorB = new int[0];
+	private byte[] leaveA = new byte[0];
+	private byte[] leaveB = new byte[0];
+	private int[] corridorStart = new int[1];
+	private int[] corridorCells = new int[0];
+	private int cellCount;
+	private int corridorCount;
+
+	/**
+	 * Per corridor cell its corridor, and the directions towards
+	 * end B (forward) and end A (backward).
+	 */
+	private final int[] corridorOf;
+	private final byte[] forward;
+	private final byte[] backward;
+
+	/**
+	 * Edges, grouped per node: those of node n are at positions
+	 * edgeStart[n] until edgeStart[n + 1].
+	 */
+	private int[] edgeStart;
+	private int[] edgeTarget;
+	private int[] edgeCorridor;
+	private byte[] edgeDirection;
+
+	/**
+	 * Compress the given walls into a junction graph.
+	 * @param wallMap The walls of the maze, which should not change anymore.
+	 */
+	public JunctionGraph(WallMap wallMap) {
+		walls = wallMap;
+		neighbours = wallMap.getNeighbours();
+		int cells = neighbours.size();
+		nodeOf = new int[cells];
+		corridorOf = new int[cells];
+		forward = new byte[cells];
+		backward = new byte[cells];
+		Arrays.fill(nodeOf, NONE);
+		Arrays.fill(corridorOf, NONE);
+		for (int c = 0; c < cells; c++) {
+			int exits = Integer.bitCount(walls.legalMoves(c));
+			if (!walls.isWall(c) && exits != 2) {
+				addNode(c);
+			}
+		}
+		traceAll();
+		buildEdges();
+	}
+
+	/**
+	 * @param cell Cell to become a node.
+	 */
+	private void addNode(int cell) {
+		if (nodeCount == nodeCells.length) {
+			nodeCells = Arrays.copyOf(nodeCells, 2 * nodeCount + 1);
+		}
+		nodeOf[cell] = nodeCount;
+		nodeCells[nodeCount++] = cell;
+	}
+
+	/**
+	 * Trace the corridors leaving all nodes. Corridor cells that
+	 * are still unvisited afterwards form loops without junctions;
+	 * one cell of every such loop becomes a node.
+	 */
+	private void traceAll() {
+		boolean[] traced = new boolean[neighbours.size() * DIRECTIONS.length];
+		for (int n = 0; n < nodeCount; n++) {
+			traceFrom(nodeCells[n], traced);
+		}
+		for (int c = 0; c < nodeOf.length; c++) {
+			if (!walls.isWall(c) && nodeOf[c] == NONE && corridorOf[c] == NONE) {
+				addNode(c);
+				traceFrom(c, traced);
+			}
+		}
+	}
+
+	/**
+	 * @param cell A node cell
+	 * @param traced Per cell and direction whether a corridor leaves there.
+	 */
+	private void traceFrom(int cell, boolean[] traced) {
+		for (Direction d : DIRECTIONS) {
+			if (walls.canMove(cell, d) && !traced[cell * DIRECTIONS.length + d.ordinal()]) {
+				traced[cell * DIRECTIONS.length + d.ordinal()] = true;
+				int id = trace(cell, d);
+				traced[nodeCells[corridorB[id]] * DIRECTIONS.length + leaveB[id]] = true;
+			}
+		}
+	}
+
+	/**
+	 * Follow a corridor from a node until the next node, and record it.
+	 * @param start The node cell to start from
+	 * @param first The direction to leave it in
+	 * @return The number of the corridor.
+	 */
+	private int trace(int start, Direction first) {
+		int id = newCorridor(start, first);
+		Direction dir = first;
+		int cell = neighbours.neighbour(start, dir);
+		while (nodeOf[cell] == NONE) {
+			Direction next = exitOtherThan(cell, dir.opposite());
+			addCorridorCell(id, cell, next, dir.opposite());
+			dir = next;
+			cell = neighbours.neighbour(cell, dir);
+		}
+		corridorB[id] = nodeOf[cell];
+		leaveB[id] = (byte) dir.opposite().ordinal();
+		corridorStart[id + 1] = cellCount;
+		return id;
+	}
+
+	/**
+	 * @param cell A corridor cell
+	 * @param back The direction leading back
+	 * @return The other direction leaving the cell.
+	 */
+	private Direction exitOtherThan(int cell, Direction back) {
+		int other = walls.legalMoves(cell) & ~back.bit();
+		return DIRECTIONS[Integer.numberOfTrailingZeros(other)];
+	}
+
+	/**
+	 * @param start Node cell at end A
+	 * @param first Direction leaving it into the corridor
+	 * @return The number of the new corridor.
+	 */
+	private int newCorridor(int start, Direction first) {
+		if (corridorCount == corridorA.length) {
+			int size = 2 * corridorCount + 1;
+			corridorA = Arrays.copyOf(corridorA, size);
+			corridorB = Arrays.copyOf(corridorB, size);
+			leaveA = Arrays.copyOf(leaveA, size);
+			leaveB = Arrays.copyOf(leaveB, size);
+			corridorStart = Arrays.copyOf(corridorStart, size + 1);
+		}
+		int id = corridorCount++;
+		corridorA[id] = nodeOf[start];
+		leaveA[id] = (byte) first.ordinal();
+		corridorStart[id] = cellCount;
+		return id;
+	}
+
+	/**
+	 * @param id The corridor
+	 * @param cell Its next cell
+	 * @param toB Direction from the cell towards end B
+	 * @param toA Direction from the cell towards end A.
+	 */
+	private void addCorridorCell(int id, int cell, Direction toB, Direction toA) {
+		if (cellCount == corridorCells.length) {
+			corridorCells = Arrays.copyOf(corridorCells, 2 * cellCount + 1);
+		}
+		corridorCells[cellCount++] = cell;
+		corridorOf[cell] = id;
+		forward[cell] = (byte) toB.ordinal();
+		backward[cell] = (byte) toA.ordinal();
+	}
+
+	/**
+	 * Group the two directed edges of every corridor by node.
+	 */
+	private void buildEdges() {
+		edgeStart = new int[nodeCount + 1];
+		for (int c = 0; c < corridorCount; c++) {
+			edgeStart[corridorA[c] + 1]++;
+			edgeStart[corridorB[c] + 1]++;
+		}
+		for (int n = 0; n < nodeCount; n++) {
+			edgeStart[n + 1] += edgeStart[n];
+		}
+		int[] fill = Arrays.copyOf(edgeStart, nodeCount);
+		edgeTarget = new int[2 * corridorCount];
+		edgeCorridor = new int[2 * corridorCount];
+		edgeDirection = new byte[2 * corridorCount];
+		for (int c = 0; c < corridorCount; c++) {
+			addEdge(fill, corridorA[c], corridorB[c], c, leaveA[c]);
+			addEdge(fill, corridorB[c], corridorA[c], c, leaveB[c]);
+		}
+	}
+
+	/**
+	 * @param fill Next free edge position per node
+	 * @param from Node the edge leaves
+	 * @param to Node the edge leads to
+	 * @param corridor Corridor the edge runs through
+	 * @param dir Direction ordinal leaving from.
+	 */
+	private void addEdge(int[] fill, int from, int to, int corridor, byte dir) {
+		int e = fill[from]++;
+		edgeTarget[e] = to;
+		edgeCorridor[e] = corridor;
+		edgeDirection[e] = dir;
+	}
+
+	/**
+	 * @return Number of nodes.
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * @return Number of corridors, i.e., of undirected edges.
+	 */
+	public int getCorridorCount() {
+		return corridorCount;
+	}
+
+	/**
+	 * @param node A node
+	 * @return The index of its cell on the board.
+	 */
+	public int nodeCell(int node) {
+		return nodeCells[node];
+	}
+
+	/**
+	 * @param cell Index of a cell
+	 * @return Its node, or -1 if it is a wall or corridor cell.
+	 */
+	public int nodeAt(int cell) {
+		return nodeOf[cell];
+	}
+
+	/**
+	 * @param node A node
+	 * @return Position of its first edge; its edges are numbered
+	 *   edgesFrom(node) until edgesFrom(node + 1).
+	 */
+	public int edgesFrom(int node) {
+		return edgeStart[node];
+	}
+
+	/**
+	 * @param edge An edge
+	 * @return The node it leads to.
+	 */
+	public int edgeTarget(int edge) {
+		return edgeTarget[edge];
+	}
+
+	/**
+	 * @param edge An edge
+	 * @return Its length, in moves.
+	 */
+	public int edgeLength(int edge) {
+		return corridorLength(edgeCorridor[edge]);
+	}
+
+	/**
+	 * @param edge An edge
+	 * @return The direction in which it leaves its node.
+	 */
+	public Direction edgeDirection(int edge) {
+		return DIRECTIONS[edgeDirection[edge]];
+	}
+
+	/**
+	 * @param edge An edge
+	 * @return The corridor it runs through.
+	 */
+	public int edgeCorridor(int edge) {
+		return edgeCorridor[edge];
+	}
+
+	/**
+	 * @param corridor A corridor
+	 * @return Its length in moves: one more than its number of cells.
+	 */
+	public int corridorLength(int corridor) {
+		return corridorStart[corridor + 1] - corridorStart[corridor] + 1;
+	}
+
+	/**
+	 * @param corridor A corridor
+	 * @return Its cells, in order from end A to end B.
+	 */
+	public int[] corridorCells(int corridor) {
+		return Arrays.copyOfRange(corridorCells,
+				corridorStart[corridor], corridorStart[corridor + 1]);
+	}
+
+	/**
+	 * @param corridor A corridor
+	 * @return The node at its end A.
+	 */
+	public int corridorA(int corridor) {
+		return corridorA[corridor];
+	}
+
+	/**
+	 * @param corridor A corridor
+	 * @return The node at its end B.
+	 */
+	public int corridorB(int corridor) {
+		return corridorB[corridor];
+	}
+
+	/**
+	 * @param cell Index of a cell
+	 * @return Its corridor, or -1 if it is a wall or a node.
+	 */
+	public int corridorAt(int cell) {
+		return corridorOf[cell];
+	}
+
+	/**
+	 * @param cell Index of a corridor cell
+	 * @param towardsB Whether to head for end B, rather than end A
+	 * @return The direction to move in.
+	 */
+	public Direction along(int cell, boolean towardsB) {
+		assert corridorOf[cell] != NONE : "PRE: cell " + cell + " not in a corridor";
+		byte result = backward[cell];
+		if (towardsB) {
+			result = forward[cell];
+		}
+		return DIRECTIONS[result];
+	}
+
+	/**
+	 * Compute the distances from one node to all others, over the
+	 * weighted edges. This is Dijkstra's algorithm scanning for the
+	 * nearest node, which suits graphs of tens to hundreds of nodes.
+	 * @param source The node to start from
+	 * @param into Array of at least getNodeCount() entries receiving
+	 *   the distances, or Integer.MAX_VALUE for unreachable nodes.
+	 */
+	public void distancesFrom(int source, int[] into) {
+		boolean[] done = new boolean[nodeCount];
+		Arrays.fill(into, 0, nodeCount, Integer.MAX_VALUE);
+		into[source] = 0;
+		for (int n = nearest(into, done); n != NONE; n = nearest(into, done)) {
+			done[n] = true;
+			for (int e = edgeStart[n]; e < edgeStart[n + 1]; e++) {
+				int d = into[n] + edgeLength(e);
+				if (d < into[edgeTarget[e]]) {
+					into[edgeTarget[e]] = d;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param dist Tentative distances
+	 * @param done Nodes whose distance is final
+	 * @return The nearest reachable node not done yet, or -1.
+	 */
+	private int nearest(int[] dist, boolean[] done) {
+		int result = NONE;
+		for (int n = 0; n < nodeCount; n++) {
+			if (!done[n] && dist[n] != Integer.MAX_VALUE
+					&& (result == NONE || dist[n] < dist[result])) {
+				result = n;
+			}
+		}
+		return result;
+	}
+}
@@ -7,6 +7,8 @@ import org.jpacman.framework.factory.MapParser;
 
 /**
  * A level in JPacman, which is stored in a file.
+ * Parsed maps are kept in a level cache, so that
+ * restarting a level does not require parsing it again.
  * 
  * @author Arie van Deursen, TU Delft, Feb 25, 2012
  */
@@ -32,6 +34,11 @@ public class Level {
      */
 	private String mapFile = DEFAULT_BOARD;
 	
+	/**
+	 * The cache holding parsed maps.
+	 */
+	private LevelCache cache = LevelCache.shared();
+	
 	/**
 	 * Provide the name of the map file to be read.
 	 * @param fileName Map file name.
@@ -51,16 +58,27 @@ public class Level {
 	}
 	
 	/**
-	 * Actually parse the given map file.
+	 * Provide the cache holding parsed maps.
+	 * @param levelCache The cache to be used.
+	 */
+	public void setCache(LevelCache levelCache) {
+		assert levelCache != null;
+		cache = levelCache;
+	}
+	
+	/**
+	 * Create a fresh game for the given map file,
+	 * parsing the map only if it is not in the cache.
 	 * @return The resulting game.
 	 * @throws FactoryException If file can't be read.
 	 */
 	public IGameInteractor parseMap() throws FactoryException {
 		assert mapFile != null;
 		assert gameFactory != null;
+		MazeTemplate maze = cache.get(getMapFile(), gameFactory);
 		MapParser parser = 
 				new MapParser(gameFactory);
-		parseResult = parser.parseFromFile(getMapFile());
+		parseResult = parser.instantiate(maze);
 		return parseResult;
 	}
 
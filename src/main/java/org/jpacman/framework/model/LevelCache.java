@@ -0,0 +1,246 @@
+package org.jpacman.framework.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.IGameFactory;
+import org.jpacman.framework.factory.MapParser;
+
+/**
+ * Cache of parsed maze templates, keyed by map file name and
+ * factory type, so that starting a new game on a level that
+ * was played before does not require reading and parsing the
+ * map again. 
+ * <p>
+ * The cache holds a bounded number of templates; when full,
+ * the least recently used one is evicted. Maps that are changed
+ * while the program runs can be invalidated explicitly.
+ * All operations are thread safe. Every template is kept as a task
+ * parsing it, like the tables of {@link DistanceTable}, so concurrent
+ * requests for the same map wait for a single parse.
+ */
+public class LevelCache {
+	
+	/**
+	 * The default number of templates kept.
+	 */
+	public static final int DEFAULT_CAPACITY = 16;
+	
+	/**
+	 * Cache shared by all levels, unless they are given their own.
+	 */
+	private static final LevelCache SHARED = new LevelCache(DEFAULT_CAPACITY);
+
+	private final int capacity;
+	
+	/**
+	 * Tasks parsing the templates, in least recently used order.
+	 */
+	private final Map<Key, FutureTask<MazeTemplate>> templates = 
+			new LinkedHashMap<Key, FutureTask<MazeTemplate>>(DEFAULT_CAPACITY, 1.0f, true);
+	
+	private int hits = 0;
+	private int misses = 0;
+	
+	/**
+	 * Create a new, empty cache.
+	 * @param maxTemplates Maximum number of templates kept.
+	 */
+	public LevelCache(int maxTemplates) {
+		assert maxTemplates > 0;
+		capacity = maxTemplates;
+	}
+	
+	/**
+	 * @return The cache shared by all levels by default.
+	 */
+	public static LevelCache shared() {
+		return SHARED;
+	}
+	
+	/**
+	 * Obtain the template for a map, parsing it if it is not cached.
+	 * @param mapFile Name of the resource containing the map
+	 * @param factory The factory the level is played with
+	 * @return The template for the given map.
+	 * @throws FactoryException If the map can't be read or parsed.
+	 */
+	public MazeTemplate get(final String mapFile, final IGameFactory factory) 
+			throws FactoryException {
+		assert mapFile != null && factory != null;
+		Key key = new Key(mapFile, factory.getClass());
+		FutureTask<MazeTemplate> task = new FutureTask<MazeTemplate>(
+				new Callable<MazeTemplate>() {
+			@Override
+			public MazeTemplate call() throws FactoryException {
+				return new MapParser(factory).parseTemplateFromFile(mapFile);
+			}
+		});
+		FutureTask<MazeTemplate> cached = lookupOrStore(key, task);
+		if (cached == null) {
+			// parse outside the lock, so other levels aren't held up.
+			task.run();
+			cached = task;
+		}
+		return await(key, cached);
+	}
+	
+	/**
+	 * @param key Key of the template
+	 * @param task Task parsing it, stored if none is cached
+	 * @return The task cached before, or null if the given one was stored.
+	 */
+	private synchronized FutureTask<MazeTemplate> lookupOrStore(
+			Key key, FutureTask<MazeTemplate> task) {
+		FutureTask<MazeTemplate> result = templates.get(key);
+		if (result == null) {
+			misses++;
+			templates.put(key, task);
+			Iterator<Key> eldest = templates.keySet().iterator();
+			while (templates.size() > capacity) {
+				eldest.next();
+				eldest.remove();
+			}
+		} else {
+			hits++;
+		}
+		return result;
+	}
+	
+	/**
+	 * Wait for a template to be parsed, dropping it if parsing failed,
+	 * so that it is tried again next time.
+	 * @param key Key of the template
+	 * @param task Task parsing it
+	 * @return The template.
+	 * @throws FactoryException If the map can't be read or parsed.
+	 */
+	private MazeTemplate await(Key key, FutureTask<MazeTemplate> task) 
+			throws FactoryException {
+		boolean interrupted = false;
+		MazeTemplate result = null;
+		while (result == null) {
+			try {
+				result = task.get();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			} catch (ExecutionException e) {
+				evict(key, task);
+				throw failure(e.getCause());
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return result;
+	}
+	
+	/**
+	 * @param key Key of a template
+	 * @param task Task that failed to parse it, dropped unless replaced.
+	 */
+	private synchronized void evict(Key key, FutureTask<MazeTemplate> task) {
+		if (templates.get(key) == task) {
+			templates.remove(key);
+		}
+	}
+	
+	/**
+	 * @param cause Reason parsing a template failed
+	 * @return The factory exception to report, unless the cause is
+	 *   unchecked, in which case it is thrown as is.
+	 */
+	private static FactoryException failure(Throwable cause) {
+		if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		}
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		FactoryException result;
+		if (cause instanceof FactoryException) {
+			result = (FactoryException) cause;
+		} else {
+			result = new FactoryException("Parsing the map failed", cause);
+		}
+		return result;
+	}
+	
+	/**
+	 * Drop all templates for the given map, for instance
+	 * because the map file has been changed. A parse still underway
+	 * completes for the requests waiting for it, but isn't kept.
+	 * @param mapFile Name of the resource containing the map.
+	 */
+	public synchronized void invalidate(String mapFile) {
+		Iterator<Key> keys = templates.keySet().iterator();
+		while (keys.hasNext()) {
+			if (keys.next().mapFile.equals(mapFile)) {
+				keys.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Drop all templates.
+	 */
+	public synchronized void clear() {
+		templates.clear();
+	}
+	
+	/**
+	 * @return The number of templates currently cached.
+	 */
+	public synchronized int size() {
+		return templates.size();
+	}
+	
+	/**
+	 * @return The number of requests answered from the cache.
+	 */
+	public synchronized int getHits() {
+		return hits;
+	}
+	
+	/**
+	 * @return The number of requests that required parsing a map.
+	 */
+	public synchronized int getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * Key identifying a cached template.
+	 */
+	private static final class Key {
+		private final String mapFile;
+		private final Class<?> factoryType;
+		
+		Key(String mapFile, Class<?> factoryType) {
+			this.mapFile = mapFile;
+			this.factoryType = factoryType;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			boolean result = false;
+			if (o instanceof Key) {
+				Key other = (Key) o;
+				result = mapFile.equals(other.mapFile) 
+						&& factoryType.equals(other.factoryType);
+			}
+			return result;
+		}
+		
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			return prime * mapFile.hashCode() + factoryType.hashCode();
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package org.jpacman.framework.model;
+
+/**
+ * The static layout of a maze: its dimensions, neighbours
+ * (including the tunnels), walls, initial food, and the cells
+ * where players and ghosts start.
+ * <p>
+ * A template is immutable, and can hence be shared by any
+ * number of games played on the same map, also concurrently.
+ * Boards created from it share its neighbours and walls, and
+ * only need their own copy of the food still to be eaten.
+ * All food in a template is worth the default number of points.
+ */
+public final class MazeTemplate {
+	
+	private final NeighbourTable neighbours;
+	private final WallMap walls;
+	private final FoodLayer food;
+	private final int[] playerCells;
+	private final int[] ghostCells;
+	
+	/**
+	 * Path planner for the maze, built when first asked for.
+	 */
+	private HierarchicalPlanner planner;
+	
+	/**
+	 * Create a new template. The walls are frozen, 
+	 * and can no longer be changed.
+	 * @param walls The walls in the maze, on top of its neighbours
+	 * @param food The cells with food initially
+	 * @param players Cells where players start
+	 * @param ghosts Cells where ghosts start
+	 */
+	public MazeTemplate(WallMap walls, FoodLayer food, int[] players, int[] ghosts) {
+		assert walls != null && food != null;
+		assert players != null && ghosts != null;
+		this.neighbours = walls.getNeighbours();
+		this.walls = walls;
+		this.food = new FoodLayer(food);
+		this.playerCells = players.clone();
+		this.ghostCells = ghosts.clone();
+		walls.freeze();
+	}
+	
+	/**
+	 * @return The width of the maze, in number of cells.
+	 */
+	public int getWidth() {
+		return neighbours.getWidth();
+	}
+	
+	/**
+	 * @return The height of the maze, in number of cells.
+	 */
+	public int getHeight() {
+		return neighbours.getHeight();
+	}
+	
+	/**
+	 * @return The neighbours of all cells in the maze.
+	 */
+	public NeighbourTable getNeighbours() {
+		return neighbours;
+	}
+	
+	/**
+	 * @return The (frozen) walls of the maze.
+	 */
+	public WallMap getWallMap() {
+		return walls;
+	}
+	
+	/**
+	 * @return A fresh copy of the initial food, to be eaten in one game.
+	 */
+	public FoodLayer newFoodLayer() {
+		return new FoodLayer(food);
+	}
+	
+	/**
+	 * @param cell Index of a cell
+	 * @return True iff the cell initially contains food.
+	 */
+	public boolean hasFood(int cell) {
+		return food.hasFood(cell);
+	}
+	
+	/**
+	 * @return The total number of points of the food in the maze.
+	 */
+	public int getFoodPoints() {
+		return food.remaining() * Food.DEFAULT_POINTS;
+	}
+	
+	/**
+	 * @return The cells where players start.
+	 */
+	public int[] getPlayerCells() {
+		return playerCells.clone();
+	}
+	
+	/**
+	 * @return The cells where ghosts start.
+	 */
+	public int[] getGhostCells() {
+		return ghostCells.clone();
+	}
+	
+	/**
+	 * Obtain the hierarchical path planner for this maze, building it
+	 * when first asked for. Since templates are cached by the level
+	 * cache, so is their planner.
+	 * @return The planner, with clusters of the default size.
+	 */
+	public synchronized HierarchicalPlanner getPlanner() {
+		if (planner == null) {
+			planner = new HierarchicalPlanner(walls, HierarchicalPlanner.DEFAULT_CLUSTER_SIZE);
+		}
+		return planner;
+	}
+}
@@ -0,0 +1,193 @@
+package org.jpacman.framework.model;
+
+/**
+ * Journal of the moves made in a game, so that they can
+ * be undone one by one, as needed by depth-first searches
+ * making and unmaking moves.
+ * <p>
+ * Every entry records which sprite moved between which cells,
+ * whether food was eaten and for how many points, whether the
+ * move killed the player, and the direction the player had
+ * before the move.
+ * Entries are kept in a ring buffer of primitive arrays: recording
+ * a move does not allocate, and once the journal is full the oldest
+ * entries are overwritten, limiting how far moves can be undone.
+ */
+public final class MoveJournal {
+	
+	/**
+	 * Mover code used for the player; ghosts are identified 
+	 * by their (non-negative) index in the game.
+	 */
+	public static final int PLAYER = -1;
+	
+	private static final byte ATE = 1;
+	private static final byte KILLED = 2;
+	private static final byte NO_DIRECTION = -1;
+	private static final Direction[] DIRECTIONS = Direction.values();
+	
+	private final int[] movers;
+	private final int[] fromCells;
+	private final int[] toCells;
+	private final int[] eaten;
+	private final byte[] flags;
+	
+	/**
+	 * Ordinal of the player's direction before each move, or -1 if none.
+	 */
+	private final byte[] directions;
+	
+	/**
+	 * Index where the next entry will be stored.
+	 */
+	private int next;
+	
+	/**
+	 * Number of entries that can still be undone.
+	 */
+	private int size;
+	
+	/**
+	 * Create an empty journal.
+	 * @param capacity Maximum number of moves that can be undone.
+	 */
+	public MoveJournal(int capacity) {
+		assert capacity > 0;
+		movers = new int[capacity];
+		fromCells = new int[capacity];
+		toCells = new int[capacity];
+		eaten = new int[capacity];
+		flags = new byte[capacity];
+		directions = new byte[capacity];
+	}
+	
+	/**
+	 * Record a move.
+	 * @param mover PLAYER, or the index of the ghost that moved
+	 * @param from Cell moved from
+	 * @param to Cell moved to
+	 * @param ate Whether food was eaten
+	 * @param points Points of the food eaten
+	 * @param kills Whether the move killed the player
+	 * @param previous Direction of the player before the move.
+	 */
+	void record(int mover, int from, int to, boolean ate, int points, boolean kills, 
+			Direction previous) {
+		movers[next] = mover;
+		fromCells[next] = from;
+		toCells[next] = to;
+		eaten[next] = points;
+		flags[next] = 0;
+		if (ate) {
+			flags[next] |= ATE;
+		}
+		if (kills) {
+			flags[next] |= KILLED;
+		}
+		directions[next] = NO_DIRECTION;
+		if (previous != null) {
+			directions[next] = (byte) previous.ordinal();
+		}
+		next = (next + 1) % movers.length;
+		size = Math.min(size + 1, movers.length);
+	}
+	
+	/**
+	 * Remove the most recent entry.
+	 * @return The index of that entry, to be used in the getters.
+	 */
+	int pop() {
+		assert !isEmpty() : "PRE: nothing to undo";
+		next = (next + movers.length - 1) % movers.length;
+		size--;
+		return next;
+	}
+	
+	/**
+	 * @param e Index of an entry
+	 * @return PLAYER, or the index of the ghost that moved.
+	 */
+	int getMover(int e) {
+		return movers[e];
+	}
+	
+	/**
+	 * @param e Index of an entry
+	 * @return The cell moved from.
+	 */
+	int getFrom(int e) {
+		return fromCells[e];
+	}
+	
+	/**
+	 * @param e Index of an entry
+	 * @return The cell moved to.
+	 */
+	int getTo(int e) {
+		return toCells[e];
+	}
+	
+	/**
+	 * @param e Index of an entry
+	 * @return True iff the move ate food.
+	 */
+	boolean getAte(int e) {
+		return (flags[e] & ATE) != 0;
+	}
+	
+	/**
+	 * @param e Index of an entry
+	 * @return Points of the food eaten by the move.
+	 */
+	int getEaten(int e) {
+		return eaten[e];
+	}
+	
+	/**
+	 * @param e Index of an entry
+	 * @return True iff the move killed the player.
+	 */
+	boolean getKilled(int e) {
+		return (flags[e] & KILLED) != 0;
+	}
+	
+	/**
+	 * @param e Index of an entry
+	 * @return The direction of the player before the move.
+	 */
+	Direction getPreviousDirection(int e) {
+		Direction result = null;
+		if (directions[e] != NO_DIRECTION) {
+			result = DIRECTIONS[directions[e]];
+		}
+		return result;
+	}
+	
+	/**
+	 * @return True iff there are no moves to be undone.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * @return Number of moves that can be undone.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return Maximum number of moves that can be undone.
+	 */
+	public int getCapacity() {
+		return movers.length;
+	}
+	
+	/**
+	 * Forget all moves recorded.
+	 */
+	public void clear() {
+		size = 0;
+	}
+}
@@ -0,0 +1,115 @@
+package org.jpacman.framework.model;
+
+/**
+ * Precomputed neighbours of every cell of a rectangular board,
+ * for each of the four directions, with the tunnels at the
+ * borders of the board already taken into account.
+ * <p>
+ * Cells are identified by their index <code>x + y * width</code>,
+ * so that finding a neighbour is a single array access.
+ */
+public final class NeighbourTable {
+	
+	private static final int DIRECTIONS = Direction.values().length;
+	
+	private final int width;
+	private final int height;
+	
+	/**
+	 * The neighbour of cell c in direction d is stored
+	 * at position <code>c * DIRECTIONS + d.ordinal()</code>.
+	 */
+	private final int[] neighbours;
+	
+	/**
+	 * Compute the neighbours of all cells on a board.
+	 * @param w Width of the board
+	 * @param h Height of the board
+	 */
+	public NeighbourTable(int w, int h) {
+		assert w >= 0 : "PRE1: width should be >= 0 but is " + w;
+		assert h >= 0 : "PRE2: height should be >= 0 but is " + h;
+		width = w;
+		height = h;
+		neighbours = new int[w * h * DIRECTIONS];
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				for (Direction d : Direction.values()) {
+					int nx = wrap(x + d.getDx(), w);
+					int ny = wrap(y + d.getDy(), h);
+					neighbours[cell(x, y) * DIRECTIONS + d.ordinal()] = cell(nx, ny);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @param coordinate Coordinate at most one step off the board
+	 * @param max Length of the range
+	 * @return Coordinate brought back within [0..max), through tunnels.
+	 */
+	private static int wrap(int coordinate, int max) {
+		int result = coordinate;
+		if (result < 0) {
+			result += max;
+		} else if (result >= max) {
+			result -= max;
+		}
+		return result;
+	}
+	
+	/**
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @return The index of cell (x,y).
+	 */
+	public int cell(int x, int y) {
+		return x + y * width;
+	}
+	
+	/**
+	 * @param cell Index of a cell
+	 * @return The x-coordinate of that cell.
+	 */
+	public int getX(int cell) {
+		return cell % width;
+	}
+	
+	/**
+	 * @param cell Index of a cell
+	 * @return The y-coordinate of that cell.
+	 */
+	public int getY(int cell) {
+		return cell / width;
+	}
+	
+	/**
+	 * @param cell Index of the starting cell
+	 * @param dir Direction to move in
+	 * @return Index of the neighbouring cell in that direction.
+	 */
+	public int neighbour(int cell, Direction dir) {
+		return neighbours[cell * DIRECTIONS + dir.ordinal()];
+	}
+	
+	/**
+	 * @return The width of the board, in number of cells.
+	 */
+	public int getWidth() {
+		return width;
+	}
+	
+	/**
+	 * @return The height of the board, in number of cells.
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * @return The number of cells on the board.
+	 */
+	public int size() {
+		return width * height;
+	}
+}
@@ -42,6 +42,15 @@ public class Player extends Sprite {
 		return points;
 	}
 
+	/**
+	 * Reset the amount of food eaten, when restoring a snapshot.
+	 * @param eaten Amount of food eaten.
+	 */
+	void setPoints(int eaten) {
+		points = eaten;
+		assert playerInvariant();
+	}
+
 	/**
 	 * This player dies.
 	 */
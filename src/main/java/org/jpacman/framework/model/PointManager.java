@@ -10,6 +10,11 @@ public class PointManager implements IPointInspector {
 	private int pointsPutOnBoard = 0;
 	private int pointsEarned = 0;
 	
+	/**
+	 * The cells with food, if the board keeps track of them.
+	 */
+	private FoodLayer foodLayer;
+	
 	/**
 	 * @return True iff points are positive.
 	 */
@@ -50,6 +55,45 @@ public class PointManager implements IPointInspector {
 	}
 		
 	
+	/**
+	 * While playing, let the player consume the food on
+	 * a given cell, removing it from the food layer as well.
+	 * @param p Player actually eating.
+	 * @param cell Index of the cell the food was on.
+	 * @param delta Amount of food eaten.
+	 */
+	public void consumeFoodAt(Player p, int cell, int delta) {
+		if (foodLayer != null) {
+			foodLayer.remove(cell);
+		}
+		consumePointsOnBoard(p, delta);
+	}
+	
+	/**
+	 * Reset the points consumed, when restoring a snapshot.
+	 * @param eaten Points consumed from the board.
+	 */
+	void restoreFoodEaten(int eaten) {
+		pointsEarned = eaten;
+		assert invariant();
+	}
+	
+	/**
+	 * Provide the cells with food to be kept in sync
+	 * with the food consumed.
+	 * @param layer The food layer of the board.
+	 */
+	public void setFoodLayer(FoodLayer layer) {
+		foodLayer = layer;
+	}
+	
+	/**
+	 * @return The cells with food, or null if not tracked.
+	 */
+	public FoodLayer getFoodLayer() {
+		return foodLayer;
+	}
+	
 	/**
 	 * The game is over if everything has been eaten.
 	 * @return Whether all points have been consumed.
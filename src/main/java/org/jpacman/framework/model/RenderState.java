@@ -0,0 +1,166 @@
+package org.jpacman.framework.model;
+
+import java.util.List;
+
+import org.jpacman.framework.model.IBoardInspector.SpriteType;
+
+/**
+ * What a renderer needs to know to draw a game after a tick:
+ * the visible sprite type of every cell, packed one byte per cell,
+ * where the player and ghosts are, the player's direction,
+ * and the points.
+ * <p>
+ * Render states are buffers filled by a {@link RenderStatePublisher};
+ * once published, a state is not modified until its reader has
+ * moved on to a newer one.
+ * Cells are identified by their index <code>x + y * width</code>.
+ */
+public final class RenderState {
+	
+	private static final SpriteType[] TYPES = SpriteType.values();
+	
+	private int width;
+	private int height;
+	private byte[] cellTypes = new byte[0];
+	private int playerCell = -1;
+	private Direction playerDirection;
+	private boolean playerAlive;
+	private int[] ghostCells = new int[0];
+	private int foodEaten;
+	private int totalFood;
+	private long sequence;
+	
+	/**
+	 * Fill this buffer with the current state of a game.
+	 * @param game The game to be captured
+	 * @param seq Number of the state, increasing with every capture.
+	 */
+	void capture(IGameInteractor game, long seq) {
+		captureBoard(game.getBoardInspector(), seq);
+		Player p = game.getPlayer();
+		if (p != null && p.getTile() != null) {
+			playerCell = p.getTile().getX() + p.getTile().getY() * width;
+			playerDirection = p.getDirection();
+			playerAlive = p.isAlive();
+		}
+		List<Ghost> ghosts = game.getGhosts();
+		if (ghostCells.length != ghosts.size()) {
+			ghostCells = new int[ghosts.size()];
+		}
+		for (int i = 0; i < ghostCells.length; i++) {
+			Tile t = ghosts.get(i).getTile();
+			ghostCells[i] = t.getX() + t.getY() * width;
+		}
+		foodEaten = game.getPointManager().getFoodEaten();
+		totalFood = game.getPointManager().totalFoodInGame();
+	}
+	
+	/**
+	 * Fill the cell types of this buffer from a board. The player,
+	 * if visible, is found on the board as well.
+	 * @param board The board to be captured.
+	 * @param seq Number of the state, increasing with every capture.
+	 */
+	void captureBoard(IBoardInspector board, long seq) {
+		sequence = seq;
+		width = board.getWidth();
+		height = board.getHeight();
+		if (cellTypes.length != width * height) {
+			cellTypes = new byte[width * height];
+		}
+		playerCell = -1;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				SpriteType st = board.spriteTypeAt(x, y);
+				cellTypes[x + y * width] = (byte) st.ordinal();
+				if (st == SpriteType.PLAYER) {
+					Player p = (Player) board.spriteAt(x, y);
+					playerCell = x + y * width;
+					playerDirection = p.getDirection();
+					playerAlive = p.isAlive();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The width of the board, in number of cells.
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * @return The height of the board, in number of cells.
+	 */
+	public int getHeight() {
+		return height;
+	}
+	
+	/**
+	 * @param x x-coordinate
+	 * @param y y-coordinate
+	 * @return The kind of sprite visible at location (x,y).
+	 */
+	public SpriteType spriteTypeAt(int x, int y) {
+		assert x >= 0 && x < width && y >= 0 && y < height;
+		return TYPES[cellTypes[x + y * width]];
+	}
+
+	/**
+	 * @return The cell of the player, or -1 if there is none.
+	 */
+	public int getPlayerCell() {
+		return playerCell;
+	}
+
+	/**
+	 * @return The direction the player is moving to.
+	 */
+	public Direction getPlayerDirection() {
+		return playerDirection;
+	}
+
+	/**
+	 * @return True iff the player is alive.
+	 */
+	public boolean isPlayerAlive() {
+		return playerAlive;
+	}
+	
+	/**
+	 * @return Number of ghosts.
+	 */
+	public int getGhostCount() {
+		return ghostCells.length;
+	}
+	
+	/**
+	 * @param i Index of a ghost
+	 * @return The cell the ghost is on.
+	 */
+	public int getGhostCell(int i) {
+		return ghostCells[i];
+	}
+
+	/**
+	 * @return The points eaten so far.
+	 */
+	public int getFoodEaten() {
+		return foodEaten;
+	}
+
+	/**
+	 * @return The total points put in the game.
+	 */
+	public int getTotalFood() {
+		return totalFood;
+	}
+
+	/**
+	 * @return Number of the state, increasing with every publication.
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+}
@@ -0,0 +1,88 @@
+package org.jpacman.framework.model;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Triple buffer passing render states from the thread advancing
+ * a game to the thread rendering it, without locks, so that both
+ * can run at their own rate.
+ * <p>
+ * The writer fills its back buffer and swaps it with the shared 
+ * middle buffer. The reader swaps its front buffer with the middle
+ * one whenever that holds a newer state. Swaps are atomic, so each
+ * buffer is owned by exactly one side at any time, and the three 
+ * buffers are reused for every tick. A publisher serves one writing 
+ * and one reading thread; a second reader, such as a network
+ * broadcaster, should use a publisher of its own.
+ */
+public class RenderStatePublisher {
+	
+	private final AtomicReference<RenderState> middle = new AtomicReference<RenderState>();
+	private RenderState back = new RenderState();
+	private RenderState front = new RenderState();
+	private long published;
+	private volatile long latestSequence;
+	
+	/**
+	 * Create a publisher, starting with the current state of a game.
+	 * @param game The game to be rendered.
+	 */
+	public RenderStatePublisher(IGameInteractor game) {
+		middle.set(new RenderState());
+		publish(game);
+		latest();
+	}
+	
+	/**
+	 * Create a publisher, starting with the current content of a board.
+	 * @param board The board to be rendered.
+	 */
+	public RenderStatePublisher(IBoardInspector board) {
+		middle.set(new RenderState());
+		publish(board);
+		latest();
+	}
+	
+	/**
+	 * Capture the current state of the game, and make it the latest.
+	 * Only to be called by the writing thread.
+	 * @param game The game to be captured.
+	 */
+	public void publish(IGameInteractor game) {
+		published++;
+		back.capture(game, published);
+		swapBack();
+	}
+	
+	/**
+	 * Capture the visible content of a board only, for renderers that
+	 * have no game at hand. Only to be called by the writing thread.
+	 * @param board The board to be captured.
+	 */
+	public void publish(IBoardInspector board) {
+		published++;
+		back.captureBoard(board, published);
+		swapBack();
+	}
+	
+	/**
+	 * Make the freshly filled back buffer the latest state.
+	 */
+	private void swapBack() {
+		back = middle.getAndSet(back);
+		latestSequence = published;
+	}
+	
+	/**
+	 * Obtain the latest state published. It remains valid and unchanged
+	 * until the next call of this method. 
+	 * Only to be called by the reading thread.
+	 * @return The latest state.
+	 */
+	public RenderState latest() {
+		if (latestSequence > front.getSequence()) {
+			front = middle.getAndSet(front);
+		}
+		return front;
+	}
+}
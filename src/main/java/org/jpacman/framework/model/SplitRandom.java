@@ -0,0 +1,120 @@
+package org.jpacman.framework.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Seedable stream of pseudo-random numbers, using the SplitMix64
+ * generator (Steele, Lea and Flood, OOPSLA 2014).
+ * <p>
+ * A stream is meant to be used by a single game or controller,
+ * so it is not thread-safe and needs no synchronization. Independent
+ * streams are derived from a master seed, either by splitting off
+ * a new stream, or by numbering them, as in {@link #stream(long, long)}.
+ * A game played on its own stream can thus be replayed from the
+ * stream's seed together with the player's input.
+ */
+public final class SplitRandom {
+	
+	/**
+	 * Odd constant by which the state advances: 2^64 divided by
+	 * the golden ratio.
+	 */
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	
+	private static final long MIX1 = 0xbf58476d1ce4e5b9L;
+	private static final long MIX2 = 0x94d049bb133111ebL;
+	private static final int SHIFT1 = 30;
+	private static final int SHIFT2 = 27;
+	private static final int SHIFT3 = 31;
+	private static final int INT_BITS = 32;
+	
+	/**
+	 * Seeds for streams created without an explicit seed.
+	 */
+	private static final AtomicLong SEEDER = 
+		new AtomicLong(mix64(System.currentTimeMillis()) ^ mix64(System.nanoTime()));
+	
+	private final long seed;
+	private long state;
+	
+	/**
+	 * Create a stream with the given seed.
+	 * @param s The seed.
+	 */
+	public SplitRandom(long s) {
+		seed = s;
+		state = s;
+	}
+	
+	/**
+	 * Create a stream with a seed different from that of
+	 * all other streams created this way.
+	 */
+	public SplitRandom() {
+		this(mix64(SEEDER.getAndAdd(GOLDEN_GAMMA)));
+	}
+	
+	/**
+	 * Obtain the stream with the given number derived from a master seed.
+	 * The same seed and number always yield the same stream, no
+	 * matter in which order streams are created.
+	 * @param masterSeed The master seed
+	 * @param number Number of the stream
+	 * @return A new stream.
+	 */
+	public static SplitRandom stream(long masterSeed, long number) {
+		return new SplitRandom(mix64(masterSeed + (number + 1) * GOLDEN_GAMMA));
+	}
+	
+	/**
+	 * @param z Value to be mixed
+	 * @return The bits of z, thoroughly mixed.
+	 */
+	private static long mix64(long z) {
+		long result = (z ^ (z >>> SHIFT1)) * MIX1;
+		result = (result ^ (result >>> SHIFT2)) * MIX2;
+		return result ^ (result >>> SHIFT3);
+	}
+	
+	/**
+	 * @return The seed this stream started with, to replay it.
+	 */
+	public long getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * @return The next pseudo-random long.
+	 */
+	public long nextLong() {
+		state += GOLDEN_GAMMA;
+		return mix64(state);
+	}
+	
+	/**
+	 * @return The next pseudo-random int.
+	 */
+	public int nextInt() {
+		return (int) (nextLong() >>> INT_BITS);
+	}
+	
+	/**
+	 * @param bound Upper bound (exclusive), should be positive.
+	 * @return Pseudo-random int between 0 (inclusive) and bound.
+	 */
+	public int nextInt(int bound) {
+		assert bound > 0 : "PRE: bound should be positive, but is " + bound;
+		long r = nextLong() >>> INT_BITS;
+		// multiply-shift maps the 32 random bits onto [0, bound).
+		return (int) ((r * bound) >>> INT_BITS);
+	}
+	
+	/**
+	 * Split off a new stream, statistically independent of this one.
+	 * This stream advances, so repeated splits yield different streams.
+	 * @return A new stream.
+	 */
+	public SplitRandom split() {
+		return new SplitRandom(mix64(nextLong()));
+	}
+}
@@ -62,6 +62,13 @@ public class Tile {
 		return sprites.peekLast();
 	}
 	
+	/**
+	 * @return The sprites on this tile, bottom first; not to be modified.
+	 */
+	Iterable<Sprite> sprites() {
+		return sprites;
+	}
+	
 	/**
 	 * @param sprite possibly living on this tile
 	 * @return True iff sprite is on this tile.
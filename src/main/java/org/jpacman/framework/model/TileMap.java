@@ -0,0 +1,155 @@
+package org.jpacman.framework.model;
+
+/**
+ * Map from cell indices to tiles, for boards that only
+ * create tiles on demand. Uses open addressing on primitive
+ * keys, so that looking up a tile does not allocate.
+ * Removing a tile shifts the tiles probed after it back,
+ * so no tombstones are left behind.
+ */
+final class TileMap {
+	
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int HASH_MULTIPLIER = 0x9E3779B9;
+	private static final int HALF_WORD = 16;
+
+	private int[] keys;
+	private Tile[] values;
+	private int size;
+	
+	/**
+	 * Create an empty map.
+	 */
+	TileMap() {
+		keys = new int[INITIAL_CAPACITY];
+		values = new Tile[INITIAL_CAPACITY];
+	}
+	
+	/**
+	 * @param cell Key to be hashed
+	 * @param mask Capacity of the table minus one
+	 * @return The first slot to try for the key.
+	 */
+	private static int slot(int cell, int mask) {
+		int h = cell * HASH_MULTIPLIER;
+		return (h ^ (h >>> HALF_WORD)) & mask;
+	}
+	
+	/**
+	 * @param cell Index of a cell
+	 * @return The tile stored for that cell, or null.
+	 */
+	Tile get(int cell) {
+		return values[find(cell)];
+	}
+	
+	/**
+	 * @param cell Index of a cell
+	 * @return The slot holding its tile, or the empty slot ending its probe.
+	 */
+	private int find(int cell) {
+		int mask = keys.length - 1;
+		int i = slot(cell, mask);
+		while (values[i] != null && keys[i] != cell) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+	
+	/**
+	 * Remove the tile of a cell, if it has one.
+	 * @param cell Index of the cell.
+	 */
+	void remove(int cell) {
+		int i = find(cell);
+		if (values[i] != null) {
+			values[i] = null;
+			size--;
+			int mask = keys.length - 1;
+			for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+				if (!between(slot(keys[j], mask), i, j)) {
+					keys[i] = keys[j];
+					values[i] = values[j];
+					values[j] = null;
+					i = j;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @param home First slot probed for a key
+	 * @param hole A slot emptied
+	 * @param at The slot the key is stored at, after the hole.
+	 * @return True iff the key's probe starts after the hole, 
+	 *   cyclically, so it should not move into the hole.
+	 */
+	private static boolean between(int home, int hole, int at) {
+		boolean result;
+		if (hole < at) {
+			result = hole < home && home <= at;
+		} else {
+			result = hole < home || home <= at;
+		}
+		return result;
+	}
+	
+	/**
+	 * Store the tile for a cell that has no tile yet.
+	 * @param cell Index of the cell
+	 * @param tile The tile for that cell
+	 */
+	void put(int cell, Tile tile) {
+		assert get(cell) == null : "PRE: no tile yet for cell " + cell;
+		assert tile != null;
+		if (2 * (size + 1) > keys.length) {
+			grow();
+		}
+		insert(cell, tile);
+		size++;
+	}
+	
+	private void insert(int cell, Tile tile) {
+		int mask = keys.length - 1;
+		int i = slot(cell, mask);
+		while (values[i] != null) {
+			i = (i + 1) & mask;
+		}
+		keys[i] = cell;
+		values[i] = tile;
+	}
+	
+	private void grow() {
+		int[] oldKeys = keys;
+		Tile[] oldValues = values;
+		keys = new int[2 * oldKeys.length];
+		values = new Tile[2 * oldValues.length];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] != null) {
+				insert(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+	
+	/**
+	 * @return The number of tiles stored.
+	 */
+	int size() {
+		return size;
+	}
+	
+	/**
+	 * Check that every tile is stored under the cell it is located at.
+	 * @param n Mapping between coordinates and cells.
+	 * @return True iff all tiles are stored at the right cell.
+	 */
+	boolean invariant(NeighbourTable n) {
+		boolean result = true;
+		for (int i = 0; i < keys.length; i++) {
+			result = result
+				&& (values[i] == null 
+					|| n.cell(values[i].getX(), values[i].getY()) == keys[i]);
+		}
+		return result;
+	}
+}
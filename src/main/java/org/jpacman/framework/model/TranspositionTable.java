@@ -0,0 +1,174 @@
+package org.jpacman.framework.model;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size table from state hashes to search results,
+ * so that searches can recognize states seen before.
+ * <p>
+ * Every entry holds the 64-bit hash of a state, a value, the best
+ * move found, and the depth of the search that produced it. Entries
+ * are kept in primitive arrays and found by open addressing: a hash
+ * is looked for in a small window of consecutive slots. When that
+ * window is full, the entry of the shallowest search is replaced.
+ */
+public final class TranspositionTable {
+	
+	/**
+	 * Number of consecutive slots a hash may be stored in.
+	 */
+	private static final int WINDOW = 4;
+	
+	/**
+	 * Best move code for entries without a best move.
+	 */
+	private static final byte NO_MOVE = -1;
+	
+	private static final Direction[] MOVES = Direction.values();
+	
+	private final long[] hashes;
+	private final int[] values;
+	private final byte[] bestMoves;
+	private final int[] depths;
+	private final boolean[] used;
+	private final int mask;
+	private int size;
+	
+	/**
+	 * Create an empty table.
+	 * @param capacity Number of entries, rounded up to a power of two.
+	 */
+	public TranspositionTable(int capacity) {
+		assert capacity > 0;
+		int slots = Integer.highestOneBit(Math.max(capacity, WINDOW) - 1) << 1;
+		mask = slots - 1;
+		hashes = new long[slots];
+		values = new int[slots];
+		bestMoves = new byte[slots];
+		depths = new int[slots];
+		used = new boolean[slots];
+	}
+	
+	/**
+	 * @param hash Hash of a state
+	 * @return The first slot to look for the hash.
+	 */
+	private int home(long hash) {
+		return (int) (hash ^ (hash >>> Integer.SIZE)) & mask;
+	}
+	
+	/**
+	 * Look up a state.
+	 * @param hash Hash of the state
+	 * @return The slot of the state's entry, or -1 if there is none.
+	 */
+	public int find(long hash) {
+		int result = -1;
+		int slot = home(hash);
+		for (int i = 0; i < WINDOW && result < 0; i++) {
+			if (used[slot] && hashes[slot] == hash) {
+				result = slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return result;
+	}
+	
+	/**
+	 * Store the result of searching a state, replacing earlier
+	 * results for the same state or, if there is no room, the 
+	 * shallowest result in the state's window.
+	 * @param hash Hash of the state
+	 * @param value Value found for the state
+	 * @param best Best move found, or null if there is none
+	 * @param depth Depth of the search that produced the value
+	 * @return The slot the entry was stored in.
+	 */
+	public int store(long hash, int value, Direction best, int depth) {
+		int slot = find(hash);
+		if (slot < 0) {
+			slot = victim(hash);
+		}
+		if (!used[slot]) {
+			size++;
+		}
+		used[slot] = true;
+		hashes[slot] = hash;
+		values[slot] = value;
+		depths[slot] = depth;
+		bestMoves[slot] = NO_MOVE;
+		if (best != null) {
+			bestMoves[slot] = (byte) best.ordinal();
+		}
+		return slot;
+	}
+	
+	/**
+	 * @param hash Hash of a state not in the table
+	 * @return The free slot, or else the shallowest slot, in its window.
+	 */
+	private int victim(long hash) {
+		int slot = home(hash);
+		int result = slot;
+		for (int i = 0; i < WINDOW && used[result]; i++) {
+			if (!used[slot] || depths[slot] < depths[result]) {
+				result = slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return result;
+	}
+	
+	/**
+	 * @param slot Slot of an entry, as returned by find
+	 * @return The value stored.
+	 */
+	public int getValue(int slot) {
+		assert used[slot];
+		return values[slot];
+	}
+	
+	/**
+	 * @param slot Slot of an entry, as returned by find
+	 * @return The depth of the search that produced the entry.
+	 */
+	public int getDepth(int slot) {
+		assert used[slot];
+		return depths[slot];
+	}
+	
+	/**
+	 * @param slot Slot of an entry, as returned by find
+	 * @return The best move stored, or null if there is none.
+	 */
+	public Direction getBestMove(int slot) {
+		assert used[slot];
+		Direction result = null;
+		if (bestMoves[slot] != NO_MOVE) {
+			result = MOVES[bestMoves[slot]];
+		}
+		return result;
+	}
+	
+	/**
+	 * @return Number of entries stored.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return Maximum number of entries.
+	 */
+	public int getCapacity() {
+		return hashes.length;
+	}
+	
+	/**
+	 * Remove all entries.
+	 */
+	public void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+}
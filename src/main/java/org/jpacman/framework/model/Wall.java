@@ -4,10 +4,25 @@ import org.jpacman.framework.model.IBoardInspector.SpriteType;
 
 /**
  * A Wall element.
+ * <p>
+ * Walls have no state of their own, so boards represent them
+ * in their wall map rather than as sprites on tiles. The
+ * {@link #flyweight()} wall stands for all such walls: it
+ * never occupies a tile, and is what boards return for
+ * cells that are a wall.
  * 
  * @author Arie van Deursen, TU Delft, Feb 10, 2012
  */
 public class Wall extends Sprite {
+	
+	private static final Wall FLYWEIGHT = new Wall();
+	
+	/**
+	 * @return The single wall shared by all wall cells.
+	 */
+	public static Wall flyweight() {
+		return FLYWEIGHT;
+	}
 
 	/**
 	 * @return That this sprite is a wall.
@@ -17,4 +32,16 @@ public class Wall extends Sprite {
 		return SpriteType.WALL;
 	}
 
+	/**
+	 * @return True iff this is the shared wall, which never occupies a tile.
+	 */
+	public final boolean isFlyweight() {
+		return this == FLYWEIGHT;
+	}
+	
+	@Override
+	public void occupy(Tile nextLocation) {
+		assert !isFlyweight() : "PRE: the shared wall does not occupy tiles.";
+		super.occupy(nextLocation);
+	}
 }
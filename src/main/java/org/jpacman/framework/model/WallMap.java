@@ -0,0 +1,150 @@
+package org.jpacman.framework.model;
+
+/**
+ * Bitboard of the walls on a board, together with a mask
+ * per cell of the directions in which a sprite can leave that
+ * cell without bumping into a wall.
+ * <p>
+ * Both are kept up to date as walls are added, which happens
+ * while a map is parsed, so that checking whether a move is
+ * legal requires just a few bit operations.
+ */
+public final class WallMap {
+	
+	/**
+	 * Mask with all four directions set.
+	 */
+	public static final int ALL_DIRECTIONS = (1 << Direction.values().length) - 1;
+
+	private static final int WORD_SHIFT = 6;
+
+	private final NeighbourTable neighbours;
+	
+	/**
+	 * One bit per cell, set iff the cell contains a wall.
+	 */
+	private final long[] walls;
+	
+	/**
+	 * Per cell the directions that are blocked by a wall.
+	 * Stored inverted, so that a fresh map has all moves open.
+	 */
+	private final byte[] blocked;
+	
+	/**
+	 * Set once the map is shared by several boards.
+	 */
+	private boolean frozen;
+	
+	/**
+	 * Create a wall map without any walls.
+	 * @param n The neighbours of the cells on the board.
+	 */
+	public WallMap(NeighbourTable n) {
+		assert n != null;
+		neighbours = n;
+		walls = new long[(n.size() >>> WORD_SHIFT) + 1];
+		blocked = new byte[n.size()];
+	}
+	
+	/**
+	 * Obtain the walls of a board: the wall map of the board itself
+	 * if it has one, or else a map built from the sprite types it shows.
+	 * @param board The board to be inspected.
+	 * @return The walls of the board.
+	 */
+	public static WallMap of(IBoardInspector board) {
+		WallMap result;
+		if (board instanceof Board) {
+			result = ((Board) board).getWallMap();
+		} else {
+			result = new WallMap(new NeighbourTable(board.getWidth(), board.getHeight()));
+			for (int y = 0; y < board.getHeight(); y++) {
+				for (int x = 0; x < board.getWidth(); x++) {
+					if (board.spriteTypeAt(x, y) == IBoardInspector.SpriteType.WALL) {
+						result.addWall(result.neighbours.cell(x, y));
+					}
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Register a wall at the given cell, closing the
+	 * directions of the neighbours leading into it.
+	 * @param cell Index of the cell containing the wall.
+	 */
+	public void addWall(int cell) {
+		assert !frozen : "PRE: walls of a shared maze can't change";
+		assert cell >= 0 && cell < blocked.length : "PRE: cell " + cell + " not on board";
+		walls[cell >>> WORD_SHIFT] |= 1L << cell;
+		for (Direction d : Direction.values()) {
+			int from = neighbours.neighbour(cell, d.opposite());
+			blocked[from] |= d.bit();
+		}
+	}
+	
+	/**
+	 * Register all walls in the given bitset.
+	 * @param bits One bit per cell, as given by getBits.
+	 */
+	public void addWalls(long[] bits) {
+		assert bits.length == walls.length : "PRE: bits should cover the board";
+		for (int word = 0; word < bits.length; word++) {
+			long w = bits[word];
+			while (w != 0) {
+				addWall((word << WORD_SHIFT) + Long.numberOfTrailingZeros(w));
+				w &= w - 1;
+			}
+		}
+	}
+	
+	/**
+	 * @return A copy of the bits, one per cell, set for walls.
+	 */
+	public long[] getBits() {
+		return walls.clone();
+	}
+	
+	/**
+	 * Prevent any further walls from being added, so that
+	 * the map can be shared by several boards.
+	 */
+	public void freeze() {
+		frozen = true;
+	}
+	
+	/**
+	 * @return The neighbours of the cells covered by this map.
+	 */
+	public NeighbourTable getNeighbours() {
+		return neighbours;
+	}
+	
+	/**
+	 * @param cell Index of a cell
+	 * @return True iff the cell contains a wall.
+	 */
+	public boolean isWall(int cell) {
+		return (walls[cell >>> WORD_SHIFT] & (1L << cell)) != 0;
+	}
+	
+	/**
+	 * @param cell Index of the cell to move from
+	 * @return Mask of the directions, as given by Direction.bit(),
+	 *   that do not lead into a wall.
+	 */
+	public int legalMoves(int cell) {
+		return ~blocked[cell] & ALL_DIRECTIONS;
+	}
+	
+	/**
+	 * @param cell Index of the cell to move from
+	 * @param dir Direction to move into
+	 * @return True iff that direction does not lead into a wall.
+	 */
+	public boolean canMove(int cell, Direction dir) {
+		return (blocked[cell] & dir.bit()) == 0;
+	}
+}
@@ -0,0 +1,110 @@
+package org.jpacman.framework.model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Random 64-bit keys for Zobrist hashing of game states:
+ * one key per cell for the player, for each ghost, and for food,
+ * plus one key for the player being dead. The hash of a state is
+ * the exclusive or of the keys of everything in it, so a move
+ * updates the hash with a few exclusive ors.
+ * <p>
+ * Keys are generated from a fixed seed and shared between all
+ * games with the same number of cells and ghosts, so that the
+ * hashes of different games on the same maze can be compared.
+ * Only the most recently used key sets are kept; as keys follow from
+ * the seed, a set dropped and generated again holds the same keys.
+ */
+public final class ZobristKeys {
+	
+	private static final long SEED = 0x5EED5EEDL;
+	
+	/**
+	 * Number of key sets kept for reuse.
+	 */
+	public static final int CAPACITY = 16;
+	
+	/**
+	 * Key sets in least recently used order.
+	 */
+	private static final Map<Long, ZobristKeys> SHARED = 
+		new LinkedHashMap<Long, ZobristKeys>(CAPACITY, 1.0f, true);
+	
+	private final int cells;
+	
+	/**
+	 * Keys of the player, the ghosts, and the food, 
+	 * in consecutive blocks of one key per cell.
+	 */
+	private final long[] keys;
+	private final long deadKey;
+	
+	/**
+	 * Index of the block of food keys.
+	 */
+	private final int foodBlock;
+	
+	/**
+	 * Generate the keys for a board.
+	 * @param cells Number of cells on the board
+	 * @param ghosts Number of ghosts in the game.
+	 */
+	private ZobristKeys(int cells, int ghosts) {
+		this.cells = cells;
+		foodBlock = ghosts + 1;
+		keys = new long[(foodBlock + 1) * cells];
+		Random random = new Random(SEED);
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = random.nextLong();
+		}
+		deadKey = random.nextLong();
+	}
+	
+	/**
+	 * Obtain the keys for a given board size and number of ghosts.
+	 * @param cells Number of cells on the board
+	 * @param ghosts Number of ghosts in the game.
+	 * @return The keys shared by all such games.
+	 */
+	public static synchronized ZobristKeys forGame(int cells, int ghosts) {
+		Long size = ((long) ghosts << Integer.SIZE) | cells;
+		ZobristKeys result = SHARED.get(size);
+		if (result == null) {
+			result = new ZobristKeys(cells, ghosts);
+			SHARED.put(size, result);
+			Iterator<Long> eldest = SHARED.keySet().iterator();
+			while (SHARED.size() > CAPACITY) {
+				eldest.next();
+				eldest.remove();
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * @param mover MoveJournal.PLAYER, or the index of a ghost
+	 * @param cell Cell the mover is on
+	 * @return Key of the mover being on the cell.
+	 */
+	public long mover(int mover, int cell) {
+		return keys[(mover + 1) * cells + cell];
+	}
+	
+	/**
+	 * @param cell A cell
+	 * @return Key of food being on the cell.
+	 */
+	public long food(int cell) {
+		return keys[foodBlock * cells + cell];
+	}
+	
+	/**
+	 * @return Key of the player being dead.
+	 */
+	public long dead() {
+		return deadKey;
+	}
+}
@@ -12,8 +12,12 @@ import org.jpacman.framework.controller.IController;
 import org.jpacman.framework.controller.RandomGhostMover;
 import org.jpacman.framework.factory.FactoryException;
 import org.jpacman.framework.factory.IGameFactory;
+import org.jpacman.framework.model.GameEventBatch;
+import org.jpacman.framework.model.GameEventType;
+import org.jpacman.framework.model.IGameEventListener;
 import org.jpacman.framework.model.IGameInteractor;
 import org.jpacman.framework.model.Level;
+import org.jpacman.framework.model.RenderStatePublisher;
 import org.jpacman.framework.view.Animator;
 import org.jpacman.framework.view.BoardView;
 
@@ -22,7 +26,8 @@ import org.jpacman.framework.view.BoardView;
  * 
  * @author Arie van Deursen, TU Delft, Jan 14, 2012
  */
-public class MainUI extends JFrame implements Observer, IDisposable {
+public class MainUI extends JFrame 
+	implements Observer, IGameEventListener, IDisposable {
 	
     /**
      * Universal version ID for serialization.
@@ -49,6 +54,7 @@ public class MainUI extends JFrame implements Observer, IDisposable {
 	 */
 	private PointsPanel points;
 	private BoardView boardView;
+	private transient RenderStatePublisher renderStates;
 	private ButtonPanel buttonPanel;
 	private JTextField statusField;
 	private JPanel statusPanel;
@@ -93,7 +99,8 @@ public class MainUI extends JFrame implements Observer, IDisposable {
      	setFocusTraversalKeysEnabled(false);
       	
         addKeyListener(new PacmanKeyListener(pi));
-        getGame().attach(pi);
+        getGame().getEventBus().addListener(pi, 
+        		GameEventType.FOOD_EATEN, GameEventType.PLAYER_DIED);
 
     	createButtonPanel(pi).initialize();
     	createStatusPanel();
@@ -171,7 +178,7 @@ public class MainUI extends JFrame implements Observer, IDisposable {
     	
     	points = new PointsPanel();
     	points.initialize(getGame().getPointManager());
-    	getGame().attach(points);
+    	getGame().getEventBus().addListener(points, GameEventType.FOOD_EATEN);
     	
     	statusPanel.add(statusField);
     	statusPanel.add(points);
@@ -188,6 +195,19 @@ public class MainUI extends JFrame implements Observer, IDisposable {
 		statusField.setText(pi.getCurrentState().message());
     	boardView.repaint();
     }
+	
+	/**
+	 * Sprites moved: publish the new state of the game, and
+	 * repaint the board once for all of them.
+	 * @param events Ignored.
+	 */
+	@Override
+	public void eventsOccurred(GameEventBatch events) {
+		if (boardView != null) {
+			renderStates.publish(getGame());
+			boardView.repaint();
+		}
+	}
 
 	/**
 	 * Create the controllers.
@@ -196,7 +216,7 @@ public class MainUI extends JFrame implements Observer, IDisposable {
 	 */
     public MainUI initialize() throws FactoryException {
         theGame = createModel();
-        getGame().attach(this);
+        getGame().getEventBus().addListener(this);
 		return this;
 	}
 	
@@ -223,7 +243,8 @@ public class MainUI extends JFrame implements Observer, IDisposable {
 	}
 	
 	private BoardView createBoardView() throws FactoryException {
-		return new BoardView(getGame().getBoardInspector());
+		renderStates = new RenderStatePublisher(getGame());
+		return new BoardView(renderStates);
 	}
 	
 	/**
@@ -5,8 +5,12 @@ import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
 
+import javax.swing.SwingUtilities;
+
 import org.jpacman.framework.controller.IController;
 import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.GameEventBatch;
+import org.jpacman.framework.model.IGameEventListener;
 import org.jpacman.framework.model.IGameInteractor;
 
 /**
@@ -15,7 +19,8 @@ import org.jpacman.framework.model.IGameInteractor;
  * 
  * @author Arie van Deursen, TU Delft, Jan 30, 2012
  */
-public class PacmanInteraction extends Observable implements IPacmanInteraction, Observer {
+public class PacmanInteraction extends Observable 
+	implements IPacmanInteraction, Observer, IGameEventListener {
 	
 	/**
 	 * The states a match can be in.
@@ -66,6 +71,17 @@ public class PacmanInteraction extends Observable implements IPacmanInteraction,
 	private final List<IController> controllers =
 			new ArrayList<IController>();
 	
+	/**
+	 * Check of the outcome of the game, handed to the event dispatch
+	 * thread when the game changes on another thread.
+	 */
+	private final Runnable outcomeCheck = new Runnable() {
+		@Override
+		public void run() {
+			updateState();
+		}
+	};
+	
 
 	/**
 	 * Verify consistency with the state of the game.
@@ -84,27 +100,31 @@ public class PacmanInteraction extends Observable implements IPacmanInteraction,
 	
 	@Override
 	public void start() {
-		assert invariant();
-		if (currentState == MatchState.PAUSING) { 
-			startControllers();
-			updateState(MatchState.PLAYING);
+		synchronized (gameInteractor) {
+			checkOutcome();
+			if (currentState == MatchState.PAUSING) { 
+				startControllers();
+				updateState(MatchState.PLAYING);
+			}
+			assert invariant();
 		}
-		assert invariant();
 	}
 
 	@Override
 	public void stop() {
-		assert invariant() : "Unexpected state in " + currentState;
-		if (currentState == MatchState.PLAYING) {
-			stopControllers();
-			updateState(MatchState.PAUSING);
+		synchronized (gameInteractor) {
+			checkOutcome();
+			if (currentState == MatchState.PLAYING) {
+				stopControllers();
+				updateState(MatchState.PAUSING);
+			}
+			assert invariant();
 		}
-		assert invariant();
 	}
 
 	@Override
 	public void exit() {
-		assert invariant();
+		updateState();
 		stopControllers();
 		disposableWindow.dispose();
 	}
@@ -132,16 +152,19 @@ public class PacmanInteraction extends Observable implements IPacmanInteraction,
 	/**
 	 * Move the player in the given direction,
 	 * provided we are in the playing state.
+	 * The game is locked, as its ghosts are moved on another thread.
 	 * @param dir New direction.
 	 */
 	private void movePlayer(Direction dir) {
-		assert invariant() : currentState;
-		if (currentState == MatchState.PLAYING) {
-			gameInteractor.movePlayer(dir);
-			updateState();
+		synchronized (gameInteractor) {
+			checkOutcome();
+			if (currentState == MatchState.PLAYING) {
+				gameInteractor.movePlayer(dir);
+				updateState();
+			}
+			// else: ignore move event.
+			assert invariant();
 		}
-		// else: ignore move event.
-		assert invariant();
 	}
 	
 	/**
@@ -203,7 +226,30 @@ public class PacmanInteraction extends Observable implements IPacmanInteraction,
 
 	@Override
 	public void update(Observable o, Object arg) {
-		updateState();
+		updateStateOnEventThread();
+	}
+	
+	/**
+	 * Food was eaten or the player died, so the game may be over.
+	 * @param events Ignored.
+	 */
+	@Override
+	public void eventsOccurred(GameEventBatch events) {
+		updateStateOnEventThread();
+	}
+
+	/**
+	 * Update the state on the event dispatch thread, as our observers
+	 * are user interface components. The ghosts move on the threads of
+	 * the tick scheduler, so the game may change on any thread; the
+	 * actions of the user catch up with a check still underway.
+	 */
+	private void updateStateOnEventThread() {
+		if (SwingUtilities.isEventDispatchThread()) {
+			updateState();
+		} else {
+			SwingUtilities.invokeLater(outcomeCheck);
+		}
 	}
 	
 	/**
@@ -212,6 +258,15 @@ public class PacmanInteraction extends Observable implements IPacmanInteraction,
 	 * and if so update the state accordingly.
 	 */
 	public void updateState() {
+		synchronized (gameInteractor) {
+			checkOutcome();
+		}
+	}
+
+	/**
+	 * Update the state to the outcome of the game, if any.
+	 */
+	private void checkOutcome() {
 		// invariant may have been invalidated by outside world.
 		if (currentState == MatchState.PLAYING && gameInteractor.died()) {
 			updateState(MatchState.LOST);
@@ -1,13 +1,12 @@
 package org.jpacman.framework.ui;
 
-import java.util.Observable;
-import java.util.Observer;
-
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
 import javax.swing.SwingConstants;
 
+import org.jpacman.framework.model.GameEventBatch;
+import org.jpacman.framework.model.IGameEventListener;
 import org.jpacman.framework.model.IPointInspector;
 
 /**
@@ -15,7 +14,7 @@ import org.jpacman.framework.model.IPointInspector;
  * 
  * @author Arie van Deursen, TU Delft, Jan 23, 2012
  */
-public class PointsPanel extends JPanel implements Observer {
+public class PointsPanel extends JPanel implements IGameEventListener {
 
 	private static final long serialVersionUID = -6773251381947430351L;
 
@@ -51,8 +50,12 @@ public class PointsPanel extends JPanel implements Observer {
         displayPoints();
 	}
 
+	/**
+	 * Food was eaten: show the new points, once per batch.
+	 * @param events Ignored.
+	 */
 	@Override
-	public void update(Observable o, Object arg) {
+	public void eventsOccurred(GameEventBatch events) {
 		displayPoints();
 	}
 	
@@ -1,11 +1,9 @@
 package org.jpacman.framework.view;
 
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-
-import javax.swing.Timer;
+import javax.swing.SwingUtilities;
 
 import org.jpacman.framework.controller.IController;
+import org.jpacman.framework.controller.TickScheduler;
 
 /**
  * The primary responsibility of this class is
@@ -25,26 +23,37 @@ public class Animator implements IController {
     private final BoardView boardViewer;
 
     /**
-     * The timer used.
+     * The task of the shared scheduler used as timer.
      */
-    private final Timer timer;
+    private final TickScheduler.Task timer;
 
     /**
      * The delay between two animations.
      */
     private static final int DELAY = 200;
 
+    /**
+     * The animation step, which is handed to the event dispatch thread
+     * as it updates the view.
+     */
+    private final Runnable animation = new Runnable() {
+        @Override
+        public void run() {
+            doTick();
+        }
+    };
+
     /**
      * Create an animator for a particular board viewer.
      * @param bv The view to be animated.
      */
     public Animator(BoardView bv) {
         boardViewer = bv;
-        timer = new Timer(DELAY,
-                new ActionListener() {
+        timer = TickScheduler.shared().register(bv, DELAY,
+                new Runnable() {
             @Override
-			public void actionPerformed(ActionEvent e) {
-                doTick();
+			public void run() {
+                SwingUtilities.invokeLater(animation);
             }
         }
         );
@@ -16,11 +16,16 @@ import javax.swing.JPanel;
 import org.jpacman.framework.factory.FactoryException;
 import org.jpacman.framework.model.IBoardInspector;
 import org.jpacman.framework.model.IBoardInspector.SpriteType;
-import org.jpacman.framework.model.Player;
-import org.jpacman.framework.model.Sprite;
+import org.jpacman.framework.model.RenderState;
+import org.jpacman.framework.model.RenderStatePublisher;
 
 /**
  * Draw a full board.
+ * <p>
+ * The board is drawn from the latest render state published for it,
+ * so that the model can be advanced on another thread, at another rate.
+ * A view created for a board inspector captures the live board
+ * itself whenever it is painted.
  * 
  * @author Arie van Deursen, TU Delft, Jan 27, 2012
  */
@@ -52,10 +57,21 @@ public class BoardView extends JPanel {
     public static final int CELL_VGAP = 1;
 
     /**
-     * Representation of the actual board.
+     * Representation of the actual board, if it is to be captured
+     * by the view itself; null if someone else publishes its states.
      */
     private final IBoardInspector boardInspector;
     
+    /**
+     * The render states of the board.
+     */
+    private final RenderStatePublisher renderStates;
+    
+    /**
+     * The state being drawn.
+     */
+    private RenderState state;
+    
     /**
      * The area to draw the cells on.
      */
@@ -75,14 +91,14 @@ public class BoardView extends JPanel {
      * @return The board width measured in cells, >= 0.
      */
     private int worldWidth() {
-        return boardInspector.getWidth();
+        return state.getWidth();
     }
 
     /**
      * @return The board height measured in cells, >= 0.
      */
     private int worldHeight() {
-        return boardInspector.getHeight();
+        return state.getHeight();
     }
     
     /**
@@ -92,7 +108,30 @@ public class BoardView extends JPanel {
      * @throws FactoryException 
      */
     public BoardView(IBoardInspector board) throws FactoryException {
+    	this(board, new RenderStatePublisher(board));
+    }
+    
+    /**
+     * Create a new view drawing the render states published
+     * by the thread advancing the game. 
+     * Painting is the only reader of these states.
+     * @param states Publisher of the board's render states.
+     * @throws FactoryException 
+     */
+    public BoardView(RenderStatePublisher states) throws FactoryException {
+    	this(null, states);
+    }
+    
+    /**
+     * @param board Live board to be captured, or null.
+     * @param states Publisher of the board's render states.
+     * @throws FactoryException 
+     */
+    private BoardView(IBoardInspector board, RenderStatePublisher states)
+    	throws FactoryException {
     	boardInspector = board;
+    	renderStates = states;
+    	state = states.latest();
     	imageLoader = new ImageLoader(CELL_WIDTH, CELL_HEIGHT);
         setSize(windowWidth(), windowHeight());
         imageLoader.loadImages();
@@ -138,6 +177,10 @@ public class BoardView extends JPanel {
      */
     @Override
     public void paint(Graphics g) {
+    	if (boardInspector != null) {
+    		renderStates.publish(boardInspector);
+    	}
+    	state = renderStates.latest();
         Graphics2D g2 = createDrawArea();
         drawCells(g2);
         g2.dispose();
@@ -160,7 +203,8 @@ public class BoardView extends JPanel {
     }
 
 	private void drawCell(Graphics2D g2, int x, int y) {
-        Color fillColor = spriteColor(x, y);
+        SpriteType st = state.spriteTypeAt(x, y);
+        Color fillColor = spriteColor(st);
 
         int startx = 2 * CELL_HGAP + (CELL_WIDTH + CELL_HGAP) * x;
         int starty = 2 * CELL_VGAP + (CELL_HEIGHT + CELL_VGAP) * y;
@@ -171,7 +215,7 @@ public class BoardView extends JPanel {
         g2.setColor(fillColor);
         g2.fill(fullCell);
 
-        if (boardInspector.spriteTypeAt(x, y) == SpriteType.FOOD) {
+        if (st == SpriteType.FOOD) {
         	Rectangle centeredCell = centeredArea(startx, starty, 2);
         	g2.setColor(Color.black);
             g2.fill(fullCell);
@@ -179,9 +223,12 @@ public class BoardView extends JPanel {
             g2.fill(centeredCell);
         }
         
-        Image img = spriteImage(boardInspector.spriteAt(x, y));
-        if (img != null) {
-        	g2.drawImage(img, startx, starty, this);
+        // only moving sprites have an image; don't fetch the others.
+        if (st == SpriteType.PLAYER || st == SpriteType.GHOST) {
+        	Image img = spriteImage(st);
+        	if (img != null) {
+        		g2.drawImage(img, startx, starty, this);
+        	}
         }
  	}
 	
@@ -201,8 +248,7 @@ public class BoardView extends JPanel {
 	}
 	
 	
-	private Color spriteColor(int x, int y) {
-		SpriteType st = boardInspector.spriteTypeAt(x, y);
+	private Color spriteColor(SpriteType st) {
 		Color c = Color.yellow;
 		switch (st) {
 		case GHOST:
@@ -230,18 +276,18 @@ public class BoardView extends JPanel {
 	}
 	
 	/**
-	 * @param sprite
+	 * @param st Type of a moving sprite
 	 * @return An image for this sprite.
 	 */
-    private Image spriteImage(Sprite sprite) {
+    private Image spriteImage(SpriteType st) {
         Image img = null;
-        if (imageLoader != null && sprite != null) {
-            if (sprite instanceof Player) {
+        if (imageLoader != null) {
+            if (st == SpriteType.PLAYER) {
                 img = imageLoader.player(
-                		((Player) sprite).getDirection(),
+                		state.getPlayerDirection(),
                         animationCount);
             }
-            if (sprite.getSpriteType() == SpriteType.GHOST) { 
+            if (st == SpriteType.GHOST) { 
                  img = imageLoader.monster(animationCount);
             }
         }
@@ -0,0 +1,102 @@
+package org.jpacman.test.framework.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jpacman.framework.controller.BatchResult;
+import org.jpacman.framework.controller.BatchRunner;
+import org.jpacman.framework.controller.IController;
+import org.jpacman.framework.controller.IControllerFactory;
+import org.jpacman.framework.controller.IGameFactorySupplier;
+import org.jpacman.framework.controller.RandomGhostMover;
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.FlatBoardGameFactory;
+import org.jpacman.framework.factory.IGameFactory;
+import org.jpacman.framework.model.IGameInteractor;
+import org.junit.Test;
+
+/**
+ * Test playing batches of games headlessly.
+ */
+public class BatchRunnerTest {
+	
+	private final IControllerFactory randomGhosts = new IControllerFactory() {
+		@Override
+		public IController makeController(IGameInteractor game) {
+			return new RandomGhostMover(game);
+		}
+	};
+	
+	private final AtomicInteger factoriesMade = new AtomicInteger();
+	
+	private final IGameFactorySupplier flatGames = new IGameFactorySupplier() {
+		@Override
+		public IGameFactory makeFactory() {
+			factoriesMade.incrementAndGet();
+			return new FlatBoardGameFactory();
+		}
+	};
+	
+	/**
+	 * A map without food is won right away.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testImmediateWins() throws FactoryException {
+		final int games = 5;
+		IGameFactorySupplier defaultGames = new IGameFactorySupplier() {
+			@Override
+			public IGameFactory makeFactory() {
+				return new DefaultGameFactory();
+			}
+		};
+		BatchResult r = new BatchRunner("simplemap.txt", defaultGames, randomGhosts)
+			.run(games);
+		assertEquals(games, r.getGames());
+		assertEquals(games, r.getWins());
+		assertEquals(0, r.getTicks());
+	}
+	
+	/**
+	 * All games are played, on all threads, and each within the limit.
+	 * Every thread builds its games with a factory of its own.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testParallelGames() throws FactoryException {
+		final int games = 20;
+		final int maxTicks = 200;
+		final int threads = 4;
+		BatchResult r = new BatchRunner("board.txt", flatGames, randomGhosts)
+			.withMaxTicks(maxTicks)
+			.withThreads(threads)
+			.run(games);
+		assertEquals(games, r.getGames());
+		assertEquals(games, r.getWins() + r.getLosses() + r.getUnfinished());
+		assertTrue(r.getTicks() <= games * maxTicks);
+		assertTrue(r.gamesPerSecond() > 0);
+		assertEquals(threads + 1, factoriesMade.get());
+	}
+	
+	/**
+	 * A batch with a given seed plays the same games, however
+	 * many threads it is spread over.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testReproducibleFromSeed() throws FactoryException {
+		final int games = 12;
+		final int maxTicks = 300;
+		final long seed = 42;
+		BatchResult serial = new BatchRunner("board.txt", flatGames, randomGhosts)
+			.withMaxTicks(maxTicks).withSeed(seed).withThreads(1).run(games);
+		BatchResult parallel = new BatchRunner("board.txt", flatGames, randomGhosts)
+			.withMaxTicks(maxTicks).withSeed(seed).withThreads(4).run(games);
+		assertEquals(serial.getLosses(), parallel.getLosses());
+		assertEquals(serial.getTicks(), parallel.getTicks());
+		assertEquals(serial.getPoints(), parallel.getPoints());
+	}
+}
@@ -0,0 +1,79 @@
+package org.jpacman.test.framework.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.jpacman.framework.controller.ChasingGhostMover;
+import org.jpacman.framework.controller.TickEngine;
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.FlowField;
+import org.jpacman.framework.model.Game;
+import org.junit.Test;
+
+/**
+ * Test the flow field, and ghosts chasing the player along it.
+ */
+public class ChasingGhostMoverTest {
+	
+	private Game makeGame(String... map) throws FactoryException {
+		return new MapParser(new DefaultGameFactory()).parseMap(map);
+	}
+	
+	/**
+	 * Distances go around walls, and walled-off cells are unreachable.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testDistances() throws FactoryException {
+		Game g = makeGame(
+				"#####",
+				"#P# #",
+				"#   #",
+				"#####");
+		FlowField f = new FlowField(g.getBoardInspector());
+		assertTrue(f.update(f.cell(1, 1)));
+		assertFalse(f.update(f.cell(1, 1)));
+		assertEquals(0, f.distance(f.cell(1, 1)));
+		assertEquals(4, f.distance(f.cell(3, 1)));
+		assertEquals(FlowField.UNREACHABLE, f.distance(f.cell(2, 1)));
+		assertEquals(Direction.DOWN, f.towards(f.cell(3, 1)));
+		assertEquals(Direction.LEFT, f.towards(f.cell(3, 2)));
+		assertNull(f.towards(f.cell(1, 1)));
+	}
+	
+	/**
+	 * The field follows the player through tunnels at the border.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testTunnel() throws FactoryException {
+		Game g = makeGame("P    ");
+		FlowField f = new FlowField(g.getBoardInspector());
+		f.update(f.cell(0, 0));
+		assertEquals(1, f.distance(f.cell(4, 0)));
+		assertEquals(Direction.RIGHT, f.towards(f.cell(4, 0)));
+	}
+	
+	/**
+	 * All ghosts close in on a player standing still, and catch it.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testGhostsCatchPlayer() throws FactoryException {
+		Game g = makeGame(
+				"#######",
+				"#G   G#",
+				"# # #.#",
+				"#  P  #",
+				"#######");
+		TickEngine engine = new TickEngine(g).controlling(new ChasingGhostMover(g), 1);
+		final int maxTicks = 10;
+		assertTrue(engine.runTicks(maxTicks) < maxTicks);
+		assertTrue(g.died());
+	}
+}
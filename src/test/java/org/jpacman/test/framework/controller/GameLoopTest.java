@@ -0,0 +1,130 @@
+package org.jpacman.test.framework.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.jpacman.framework.controller.GameLoop;
+import org.jpacman.framework.controller.IGameCommand;
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.Food;
+import org.jpacman.framework.model.Game;
+import org.jpacman.framework.model.GameSnapshot;
+import org.jpacman.framework.model.IGameInteractor;
+import org.junit.Test;
+
+/**
+ * Test the single-writer game loop and its command queue.
+ */
+public class GameLoopTest {
+	
+	private Game makeGame(String... map) throws FactoryException {
+		return new MapParser(new DefaultGameFactory()).parseMap(map);
+	}
+	
+	/**
+	 * Commands are executed in order, and moves only while playing.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testCommandsInOrder() throws FactoryException {
+		Game g = makeGame("#P..#");
+		GameLoop loop = new GameLoop(g, 0);
+		loop.submitPlayerMove(Direction.RIGHT);
+		loop.start();
+		loop.submitPlayerMove(Direction.RIGHT);
+		loop.doTick();
+		assertTrue(loop.isPlaying());
+		GameSnapshot s = loop.getPublishedState();
+		assertEquals(2, s.getPlayerCell());
+		assertEquals(Food.DEFAULT_POINTS, s.getFoodEaten());
+		loop.stop();
+		loop.submitPlayerMove(Direction.RIGHT);
+		loop.doTick();
+		assertFalse(loop.isPlaying());
+		assertEquals(2, loop.getPublishedState().getPlayerCell());
+	}
+	
+	/**
+	 * Published snapshots cycle through three buffers, rather than
+	 * being allocated anew every tick.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testSnapshotsReused() throws FactoryException {
+		GameLoop loop = new GameLoop(makeGame("#P #"), 0);
+		Set<GameSnapshot> seen = 
+			Collections.newSetFromMap(new IdentityHashMap<GameSnapshot, Boolean>());
+		final int ticks = 10;
+		for (int i = 0; i < ticks; i++) {
+			loop.doTick();
+			seen.add(loop.getPublishedState());
+		}
+		assertTrue(seen.size() <= 2 + 1);
+	}
+	
+	/**
+	 * Commands submitted concurrently from many threads all get
+	 * executed by the single owner.
+	 * @throws FactoryException Never.
+	 * @throws InterruptedException If the test is interrupted.
+	 */
+	@Test
+	public void testConcurrentSubmitters() throws FactoryException, InterruptedException {
+		final GameLoop loop = new GameLoop(makeGame("#P #"), 0);
+		final int[] executed = new int[1];
+		final int threads = 4;
+		final int perThread = 1000;
+		Thread[] submitters = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			submitters[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < perThread; i++) {
+						loop.submit(new IGameCommand() {
+							@Override
+							public void execute(IGameInteractor game) {
+								executed[0]++;
+							}
+						});
+					}
+				}
+			});
+			submitters[t].start();
+		}
+		for (Thread t : submitters) {
+			t.join();
+		}
+		loop.doTick();
+		assertEquals(threads * perThread, executed[0]);
+	}
+	
+	/**
+	 * The writer thread plays the game, and readers see the
+	 * published state without locking.
+	 * @throws FactoryException Never.
+	 * @throws InterruptedException If the test is interrupted.
+	 */
+	@Test
+	public void testWriterThread() throws FactoryException, InterruptedException {
+		Game g = makeGame("#P..#");
+		GameLoop loop = new GameLoop(g, 0);
+		loop.launch();
+		loop.start();
+		loop.submitPlayerMove(Direction.RIGHT);
+		loop.submitPlayerMove(Direction.RIGHT);
+		while (loop.getPublishedState().getFoodEaten() < 2 * Food.DEFAULT_POINTS) {
+			Thread.sleep(1);
+		}
+		loop.shutdown();
+		assertTrue(g.won());
+		assertEquals(2 + 1, loop.getPublishedState().getPlayerCell());
+	}
+}
@@ -0,0 +1,110 @@
+package org.jpacman.test.framework.controller;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.jpacman.framework.controller.ScheduledGhostMover;
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.Game;
+import org.jpacman.framework.model.Ghost;
+import org.jpacman.framework.model.IGameInteractor;
+import org.junit.Test;
+
+/**
+ * Test moving all ghosts at their own speed.
+ */
+public class ScheduledGhostMoverTest {
+	
+	private static final int TICKS = 12;
+	
+	/**
+	 * Mover counting the moves per ghost, without actually moving.
+	 */
+	private static class CountingMover extends ScheduledGhostMover {
+		private final int[] count;
+		private final List<Ghost> all;
+		
+		CountingMover(IGameInteractor game) {
+			super(game);
+			all = game.getGhosts();
+			count = new int[all.size()];
+		}
+		
+		@Override
+		protected Direction chooseDirection(Ghost theGhost) {
+			count[all.indexOf(theGhost)]++;
+			return null;
+		}
+	}
+	
+	private Game makeGame(String... map) throws FactoryException {
+		return new MapParser(new DefaultGameFactory()).parseMap(map);
+	}
+	
+	/**
+	 * Every ghost moves once per period, all within the same ticks.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testPeriods() throws FactoryException {
+		CountingMover m = new CountingMover(makeGame("#GGG.P#"));
+		m.withPeriod(1, 2).withPeriod(2, 3);
+		for (int t = 0; t < TICKS; t++) {
+			m.doTick();
+		}
+		assertEquals(TICKS, m.count[0]);
+		assertEquals(TICKS / 2, m.count[1]);
+		assertEquals(TICKS / 3, m.count[2]);
+		assertEquals(TICKS + TICKS / 2 + TICKS / 3, m.getMoves());
+	}
+	
+	/**
+	 * A ghost moves equally often, no matter how many others there are.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testIndependentOfGhostCount() throws FactoryException {
+		CountingMover one = new CountingMover(makeGame("#G....P#"));
+		CountingMover many = new CountingMover(makeGame("#GGGGG.P#"));
+		for (int t = 0; t < TICKS; t++) {
+			one.doTick();
+			many.doTick();
+		}
+		assertEquals(one.count[0], many.count[0]);
+	}
+	
+	/**
+	 * Ghosts that are due actually move, here along the only open way.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testMovesGhosts() throws FactoryException {
+		Game g = makeGame("########", "#G  . P#", "########");
+		ScheduledGhostMover m = new ScheduledGhostMover(g);
+		m.doTick();
+		assertEquals(2, g.getGhosts().get(0).getTile().getX());
+	}
+	
+	/**
+	 * Restarting schedules the ghosts the game has by then.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testRestartReloadsGhosts() throws FactoryException {
+		Game g = makeGame("#G . P#");
+		ScheduledGhostMover m = new ScheduledGhostMover(g);
+		m.doTick();
+		assertEquals(1, m.getMoves());
+		Ghost extra = new Ghost();
+		g.getBoard().put(extra, 2, 0);
+		g.addGhost(extra);
+		m.start();
+		m.stop();
+		m.doTick();
+		assertEquals(1 + 2, m.getMoves());
+	}
+}
@@ -0,0 +1,108 @@
+package org.jpacman.test.framework.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.jpacman.framework.controller.IController;
+import org.jpacman.framework.controller.RandomGhostMover;
+import org.jpacman.framework.controller.TickEngine;
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.Game;
+import org.junit.Test;
+
+/**
+ * Test advancing games headlessly with the tick engine.
+ */
+public class TickEngineTest {
+	
+	/**
+	 * Controller just counting its ticks.
+	 */
+	private static class Counter implements IController {
+		private int count;
+		@Override
+		public void start() { }
+		@Override
+		public void stop() { }
+		@Override
+		public void doTick() {
+			count++;
+		}
+	}
+	
+	private Game makeGame(String... map) throws FactoryException {
+		return new MapParser(new DefaultGameFactory()).parseMap(map);
+	}
+	
+	/**
+	 * Queued player moves are applied, and the engine stops
+	 * as soon as the game is won.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testPlayerMovesUntilWon() throws FactoryException {
+		Game g = makeGame("#P..#");
+		TickEngine engine = new TickEngine(g);
+		engine.queuePlayerMove(Direction.RIGHT);
+		engine.queuePlayerMove(Direction.RIGHT);
+		final int max = 10;
+		assertEquals(1, engine.runTicks(max));
+		assertTrue(engine.isOver());
+		assertTrue(g.won());
+		assertEquals(0, engine.runTicks(max));
+	}
+	
+	/**
+	 * Controllers only act once per period.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testPeriods() throws FactoryException {
+		Counter every = new Counter();
+		Counter third = new Counter();
+		final int period = 3;
+		final int ticks = 9;
+		TickEngine engine = new TickEngine(makeGame("#P. #"))
+			.controlling(every)
+			.controlling(third, period);
+		assertEquals(ticks, engine.runTicks(ticks));
+		assertEquals(ticks, every.count);
+		assertEquals(ticks / period, third.count);
+		assertEquals(ticks * TickEngine.TICK_MILLIS, engine.getGameMillis());
+	}
+	
+	/**
+	 * Ghost movers can be ticked without starting their timers.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testHeadlessGhosts() throws FactoryException {
+		Game g = makeGame("#####", "#P.G#", "#. .#", "#####");
+		final int max = 1000;
+		long done = new TickEngine(g).controlling(new RandomGhostMover(g)).runTicks(max);
+		assertTrue(done == max || g.died());
+	}
+	
+	/**
+	 * The engine can run on its own thread until stopped.
+	 * @throws FactoryException Never.
+	 * @throws InterruptedException If the test is interrupted.
+	 */
+	@Test
+	public void testThread() throws FactoryException, InterruptedException {
+		TickEngine engine = new TickEngine(makeGame("#P. #"));
+		engine.start();
+		while (engine.getTicks() == 0) {
+			Thread.sleep(1);
+		}
+		engine.stop();
+		long ticks = engine.getTicks();
+		Thread.sleep(2);
+		assertEquals(ticks, engine.getTicks());
+		assertFalse(engine.isOver());
+	}
+}
@@ -0,0 +1,122 @@
+package org.jpacman.test.framework.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jpacman.framework.controller.TickScheduler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test running periodic tasks on the shared tick scheduler.
+ */
+public class TickSchedulerTest {
+
+	private static final int WORKERS = 3;
+	private static final int PERIOD = 20;
+	private static final long TIMEOUT = 5;
+
+	private TickScheduler scheduler;
+
+	/**
+	 * Create a scheduler of our own.
+	 */
+	@Before
+	public void setUp() {
+		scheduler = new TickScheduler(WORKERS);
+	}
+
+	/**
+	 * Stop its threads.
+	 */
+	@After
+	public void tearDown() {
+		scheduler.shutdown();
+	}
+
+	/**
+	 * A task only runs once started, and repeatedly so until stopped.
+	 * @throws InterruptedException Never.
+	 */
+	@Test
+	public void testStartStop() throws InterruptedException {
+		final int runs = 3;
+		final CountDownLatch done = new CountDownLatch(runs);
+		final AtomicInteger count = new AtomicInteger();
+		TickScheduler.Task task = scheduler.register(this, PERIOD, new Runnable() {
+			@Override
+			public void run() {
+				count.incrementAndGet();
+				done.countDown();
+			}
+		});
+		Thread.sleep(2 * PERIOD);
+		assertEquals(0, count.get());
+		assertFalse(task.isRunning());
+		task.start();
+		assertTrue(task.isRunning());
+		assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS));
+		task.stop();
+		assertFalse(task.isRunning());
+		Thread.sleep(2 * PERIOD);
+		int stopped = count.get();
+		Thread.sleep(2 * PERIOD);
+		assertEquals(stopped, count.get());
+	}
+
+	/**
+	 * Tasks of the same affinity never run concurrently.
+	 * @throws InterruptedException Never.
+	 */
+	@Test
+	public void testAffinity() throws InterruptedException {
+		final int tasks = 8;
+		final int runs = 40;
+		final CountDownLatch done = new CountDownLatch(runs);
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicInteger overlaps = new AtomicInteger();
+		Object game = new Object();
+		TickScheduler.Task[] all = new TickScheduler.Task[tasks];
+		for (int i = 0; i < tasks; i++) {
+			all[i] = scheduler.register(game, TickScheduler.RESOLUTION, new Runnable() {
+				@Override
+				public void run() {
+					if (active.incrementAndGet() > 1) {
+						overlaps.incrementAndGet();
+					}
+					Thread.yield();
+					active.decrementAndGet();
+					done.countDown();
+				}
+			});
+			all[i].start();
+		}
+		assertTrue(done.await(TIMEOUT, TimeUnit.SECONDS));
+		for (TickScheduler.Task t : all) {
+			t.stop();
+		}
+		assertEquals(0, overlaps.get());
+	}
+
+	/**
+	 * Periods are rounded to the resolution of the wheel, and tasks with
+	 * a period beyond a revolution of the wheel are accepted.
+	 */
+	@Test
+	public void testPeriod() {
+		Runnable idle = new Runnable() {
+			@Override
+			public void run() { }
+		};
+		assertEquals(TickScheduler.RESOLUTION, scheduler.register(this, 1, idle).getPeriod());
+		assertEquals(PERIOD, scheduler.register(this, PERIOD, idle).getPeriod());
+		long slow = (TickScheduler.WHEEL_SIZE + 1) * TickScheduler.RESOLUTION;
+		assertEquals(slow, scheduler.register(this, slow, idle).getPeriod());
+	}
+}
@@ -0,0 +1,181 @@
+package org.jpacman.test.framework.factory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+
+import org.jpacman.framework.factory.CompiledMap;
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Level;
+import org.jpacman.framework.model.LevelCache;
+import org.jpacman.framework.model.MazeTemplate;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test writing and loading maps in compiled form.
+ */
+public class CompiledMapTest {
+	
+	private static final String MAP = "#####\n#...#\n#GPG#\n#  .#\n#####";
+	
+	private MazeTemplate maze;
+	private File compiled;
+	
+	/**
+	 * Parse the map, and write it out in compiled form.
+	 * @throws IOException If the temporary file can't be created.
+	 * @throws FactoryException Never.
+	 */
+	@Before
+	public void setUp() throws IOException, FactoryException {
+		maze = new MapParser(new DefaultGameFactory()).parseTemplate(MAP.split("\n"));
+		compiled = File.createTempFile("map", ".jpm");
+		compiled.deleteOnExit();
+		CompiledMap.write(maze, compiled);
+	}
+	
+	private void assertSameMaze(MazeTemplate other) {
+		assertEquals(maze.getWidth(), other.getWidth());
+		assertEquals(maze.getHeight(), other.getHeight());
+		assertArrayEquals(maze.getPlayerCells(), other.getPlayerCells());
+		assertArrayEquals(maze.getGhostCells(), other.getGhostCells());
+		assertArrayEquals(maze.getWallMap().getBits(), other.getWallMap().getBits());
+		assertArrayEquals(maze.newFoodLayer().getBits(), other.newFoodLayer().getBits());
+		assertEquals(maze.getFoodPoints(), other.getFoodPoints());
+	}
+	
+	/**
+	 * A memory-mapped compiled map equals the original maze.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testMappedRoundTrip() throws FactoryException {
+		assertSameMaze(CompiledMap.read(compiled));
+	}
+	
+	/**
+	 * A compiled map read from a stream equals the original maze.
+	 * @throws IOException Never.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testStreamRoundTrip() throws IOException, FactoryException {
+		InputStream in = new BufferedInputStream(new FileInputStream(compiled));
+		assertTrue(CompiledMap.isCompiled(in));
+		assertSameMaze(CompiledMap.read(in));
+	}
+	
+	/**
+	 * Textual maps are not mistaken for compiled ones.
+	 * @throws IOException Never.
+	 */
+	@Test
+	public void testTextNotCompiled() throws IOException {
+		assertFalse(CompiledMap.isCompiled(new ByteArrayInputStream(MAP.getBytes())));
+		assertFalse(CompiledMap.isCompiled(new ByteArrayInputStream(new byte[0])));
+	}
+	
+	/**
+	 * Truncated compiled maps are reported.
+	 * @throws IOException Never.
+	 * @throws FactoryException Always.
+	 */
+	@Test(expected = FactoryException.class)
+	public void testTruncated() throws IOException, FactoryException {
+		byte[] bytes = new byte[(int) compiled.length() - 1];
+		InputStream in = new FileInputStream(compiled);
+		assertEquals(bytes.length, in.read(bytes));
+		in.close();
+		CompiledMap.read(new ByteArrayInputStream(bytes));
+	}
+	
+	/**
+	 * @param ints The contents of a compiled map, as ints.
+	 * @return The maze read from those contents.
+	 * @throws FactoryException If the contents are corrupt.
+	 */
+	private MazeTemplate readInts(int... ints) throws FactoryException {
+		ByteBuffer buffer = ByteBuffer.allocate(ints.length * Integer.SIZE / Byte.SIZE);
+		buffer.asIntBuffer().put(ints);
+		return CompiledMap.read(new ByteArrayInputStream(buffer.array()));
+	}
+	
+	/**
+	 * Sizes larger than the file are reported before allocating them.
+	 * @throws FactoryException Always.
+	 */
+	@Test(expected = FactoryException.class)
+	public void testHugeSize() throws FactoryException {
+		final int side = 1 << 16;
+		readInts(CompiledMap.MAGIC, CompiledMap.VERSION, side, side, 0, 0);
+	}
+	
+	/**
+	 * Negative cell counts are reported.
+	 * @throws FactoryException Always.
+	 */
+	@Test(expected = FactoryException.class)
+	public void testNegativeCellCount() throws FactoryException {
+		readInts(CompiledMap.MAGIC, CompiledMap.VERSION, 1, 1, -1, 0, 0, 0, 0, 0);
+	}
+	
+	/**
+	 * Wall bits beyond the last cell are reported.
+	 * @throws IOException Never.
+	 * @throws FactoryException Always.
+	 */
+	@Test(expected = FactoryException.class)
+	public void testWallBitsPastLastCell() throws IOException, FactoryException {
+		final int headerInts = 6;
+		byte[] bytes = new byte[(int) compiled.length()];
+		InputStream in = new FileInputStream(compiled);
+		assertEquals(bytes.length, in.read(bytes));
+		in.close();
+		int walls = (headerInts + maze.getPlayerCells().length + maze.getGhostCells().length)
+				* Integer.SIZE / Byte.SIZE;
+		ByteBuffer.wrap(bytes).putLong(walls, maze.getWallMap().getBits()[0] | Long.MIN_VALUE);
+		CompiledMap.read(new ByteArrayInputStream(bytes));
+	}
+	
+	/**
+	 * A level accepts compiled maps just like textual ones.
+	 * @throws URISyntaxException Never.
+	 * @throws FactoryException Never.
+	 * @throws IOException If the compiled file can't be written.
+	 */
+	@Test
+	public void testLevelLoadsCompiledMap() 
+			throws URISyntaxException, FactoryException, IOException {
+		File board = new File(getClass().getResource("/board.txt").toURI());
+		File target = new File(board.getParentFile(), "board-compiled.jpm");
+		try {
+			CompiledMap.compile("board.txt", target);
+			Level level = new Level();
+			level.setCache(new LevelCache(LevelCache.DEFAULT_CAPACITY));
+			level.setMapFile(target.getName());
+			level.parseMap();
+			Level text = new Level();
+			text.setCache(new LevelCache(LevelCache.DEFAULT_CAPACITY));
+			text.parseMap();
+			assertEquals(text.getGame().getPointManager().totalFoodInGame(),
+					level.getGame().getPointManager().totalFoodInGame());
+			assertEquals(text.getGame().getBoard().getWidth(),
+					level.getGame().getBoard().getWidth());
+		} finally {
+			assertTrue(target.delete());
+		}
+	}
+}
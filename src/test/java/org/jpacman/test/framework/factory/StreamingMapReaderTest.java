@@ -0,0 +1,84 @@
+package org.jpacman.test.framework.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.factory.StreamingMapReader;
+import org.jpacman.framework.model.Food;
+import org.jpacman.framework.model.MazeTemplate;
+import org.junit.Test;
+
+/**
+ * Test reading maps by streaming through them.
+ */
+public class StreamingMapReaderTest {
+	
+	private static final String MAP = "#####\n#...#\r\n#GPG#\n#   #\n#####";
+	
+	private InputStream stream(String contents) {
+		return new ByteArrayInputStream(contents.getBytes());
+	}
+	
+	/**
+	 * A map read from a stream yields the expected layout.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testReadStream() throws FactoryException {
+		MazeTemplate maze = new StreamingMapReader().read(stream(MAP));
+		final int size = 5;
+		final int foodCells = 3;
+		assertEquals(size, maze.getWidth());
+		assertEquals(size, maze.getHeight());
+		assertEquals(2, maze.getGhostCells().length);
+		assertEquals(foodCells * Food.DEFAULT_POINTS, maze.getFoodPoints());
+		assertTrue(maze.getWallMap().isWall(0));
+	}
+	
+	/**
+	 * Memory-mapped files give the same result.
+	 * @throws IOException If the temporary file can't be written.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testReadMappedFile() throws IOException, FactoryException {
+		File f = File.createTempFile("map", ".txt");
+		f.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(f);
+		out.write((MAP + "\n").getBytes());
+		out.close();
+		MazeTemplate maze = new StreamingMapReader(0).read(f);
+		assertEquals(1, maze.getPlayerCells().length);
+		assertEquals(maze.getNeighbours().cell(2, 2), maze.getPlayerCells()[0]);
+	}
+	
+	/**
+	 * Rows of the wrong length are reported.
+	 * @throws FactoryException Always.
+	 */
+	@Test(expected = FactoryException.class)
+	public void testRowLength() throws FactoryException {
+		new StreamingMapReader().read(stream("###\n##\n###"));
+	}
+	
+	/**
+	 * Classpath resources are read through the streaming reader.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testParseResource() throws FactoryException {
+		final int width = 23;
+		MazeTemplate maze = new MapParser(new DefaultGameFactory())
+			.parseTemplateFromFile("board.txt");
+		assertEquals(width, maze.getWidth());
+	}
+}
@@ -0,0 +1,177 @@
+package org.jpacman.test.framework.model;
+
+import java.util.Random;
+
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Board;
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.FlatBoard;
+import org.jpacman.framework.model.Game;
+import org.jpacman.framework.model.Tile;
+import org.jpacman.framework.model.Wall;
+
+/**
+ * Micro benchmark comparing moving around via the general
+ * <code>tileAtOffset</code> computation with moving via the
+ * precomputed neighbour table used by <code>tileAtDirection</code>.
+ * It also compares parsing a large maze with the shared flyweight
+ * wall against parsing it with a wall object per wall cell, in
+ * time and in heap retained by the game.
+ * <p>
+ * Not a unit test: run it explicitly, without assertions, e.g.
+ * <pre>
+ * java -da -cp target/classes:target/test-classes \
+ *   org.jpacman.test.framework.model.BoardMoveBenchmark
+ * </pre>
+ */
+public final class BoardMoveBenchmark {
+	
+	private static final int STEPS = 1 << 22;
+	private static final int WARMUP_ROUNDS = 5;
+	private static final int ROUNDS = 10;
+	private static final int LARGE = 1024;
+	private static final int HUGE = 2048;
+	private static final double NANOS_PER_MILLI = 1e6;
+	private static final double BYTES_PER_MB = 1 << 20;
+	private static final int MAZE = 1024;
+	private static final int PARSE_ROUNDS = 5;
+	private static final int GC_PASSES = 3;
+	
+	/**
+	 * Factory creating a wall object per wall cell, 
+	 * as walls were created before they were shared.
+	 */
+	private static final class WallPerCellFactory extends DefaultGameFactory {
+		@Override
+		public Wall makeWall() {
+			return new Wall();
+		}
+	}
+	
+	private final Direction[] walk = new Direction[STEPS];
+	
+	private BoardMoveBenchmark() {
+		Random r = new Random(1);
+		Direction[] all = Direction.values();
+		for (int i = 0; i < STEPS; i++) {
+			walk[i] = all[r.nextInt(all.length)];
+		}
+	}
+	
+	private int walkByOffset(Board b) {
+		Tile t = b.tileAt(0, 0);
+		for (Direction d : walk) {
+			t = b.tileAtOffset(t, d.getDx(), d.getDy());
+		}
+		return t.getX();
+	}
+
+	private int walkByDirection(Board b) {
+		Tile t = b.tileAt(0, 0);
+		for (Direction d : walk) {
+			t = b.tileAtDirection(t, d);
+		}
+		return t.getX();
+	}
+	
+	private void measure(String name, Board b) {
+		long offset = 0;
+		long direction = 0;
+		int check = 0;
+		for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+			long start = System.nanoTime();
+			check += walkByOffset(b);
+			long middle = System.nanoTime();
+			check += walkByDirection(b);
+			long end = System.nanoTime();
+			if (round >= WARMUP_ROUNDS) {
+				offset += middle - start;
+				direction += end - middle;
+			}
+		}
+		System.out.printf("%-22s tileAtOffset %8.1f ms, tileAtDirection %8.1f ms (%d)%n",
+				name, offset / NANOS_PER_MILLI / ROUNDS, 
+				direction / NANOS_PER_MILLI / ROUNDS, check);
+	}
+	
+	/**
+	 * @param side Width and height of the maze
+	 * @return Map of a maze with a wall on every other cell of every 
+	 *   other row, and the player in a corner.
+	 */
+	private static String[] maze(int side) {
+		String[] result = new String[side];
+		for (int y = 0; y < side; y++) {
+			StringBuilder row = new StringBuilder(side);
+			for (int x = 0; x < side; x++) {
+				char c = ' ';
+				if (x % 2 == 0 && y % 2 == 0) {
+					c = '#';
+				}
+				row.append(c);
+			}
+			result[y] = row.toString();
+		}
+		result[1] = "P" + result[1].substring(1);
+		return result;
+	}
+	
+	/**
+	 * @return Bytes in use after collecting garbage.
+	 */
+	private static long usedHeap() {
+		Runtime rt = Runtime.getRuntime();
+		for (int i = 0; i < GC_PASSES; i++) {
+			System.gc();
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+	
+	/**
+	 * Parse a map a few times, reporting the fastest parse and the
+	 * heap retained by the resulting game.
+	 * @param name Name of the variant measured
+	 * @param perCell Whether to create a wall object per wall cell
+	 * @param map The map to be parsed
+	 * @throws FactoryException Never.
+	 */
+	private static void measureParse(String name, boolean perCell, String[] map) 
+			throws FactoryException {
+		long best = Long.MAX_VALUE;
+		long retained = 0;
+		int check = 0;
+		for (int round = 0; round < PARSE_ROUNDS; round++) {
+			DefaultGameFactory factory = new DefaultGameFactory();
+			if (perCell) {
+				factory = new WallPerCellFactory();
+			}
+			long before = usedHeap();
+			long start = System.nanoTime();
+			Game g = new MapParser(factory).parseMap(map);
+			best = Math.min(best, System.nanoTime() - start);
+			retained = usedHeap() - before;
+			check += g.getBoard().getWidth();
+		}
+		System.out.printf("%-22s parse %8.1f ms, retained %6.1f MB (%d)%n",
+				name, best / NANOS_PER_MILLI, retained / BYTES_PER_MB, check);
+	}
+	
+	/**
+	 * Run the benchmark on the default board and on large empty boards.
+	 * @param args Ignored
+	 * @throws FactoryException If the default board can't be read.
+	 */
+	public static void main(String[] args) throws FactoryException {
+		BoardMoveBenchmark bench = new BoardMoveBenchmark();
+		Board small = new MapParser(new DefaultGameFactory())
+			.parseFromFile("board.txt").getBoard();
+		bench.measure("board.txt", small);
+		bench.measure("Board " + LARGE + "x" + LARGE, new Board(LARGE, LARGE));
+		bench.measure("FlatBoard " + HUGE + "x" + HUGE, new FlatBoard(HUGE, HUGE));
+		String[] map = maze(MAZE);
+		measureParse("Wall per cell " + MAZE, true, map);
+		measureParse("Shared wall " + MAZE, false, map);
+	}
+}
@@ -0,0 +1,70 @@
+package org.jpacman.test.framework.model;
+
+import static org.junit.Assert.assertEquals;
+
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Board;
+import org.jpacman.framework.model.DStarLite;
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.FlowField;
+import org.jpacman.framework.model.SplitRandom;
+import org.junit.Test;
+
+/**
+ * Test the incremental search against a full search.
+ */
+public class DStarLiteTest {
+	
+	private static final int STARTS = 8;
+	private static final int MOVES = 300;
+	
+	/**
+	 * While the target wanders around, the distances of the starts
+	 * agree with a full search, and their directions lead closer.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testAgreesWithFullSearch() throws FactoryException {
+		Board b = new MapParser(new DefaultGameFactory()).parseFromFile("board.txt").getBoard();
+		DStarLite incremental = new DStarLite(b);
+		FlowField full = new FlowField(b);
+		SplitRandom r = new SplitRandom(1);
+		int[] starts = new int[STARTS];
+		for (int i = 0; i < STARTS; i++) {
+			starts[i] = randomOpenCell(b, r);
+		}
+		int target = randomOpenCell(b, r);
+		for (int m = 0; m < MOVES; m++) {
+			incremental.update(target, starts, STARTS);
+			full.update(target);
+			for (int s : starts) {
+				assertEquals(full.distance(s), incremental.distance(s));
+				Direction d = incremental.towards(s);
+				if (d != null) {
+					int next = b.getNeighbours().neighbour(s, d);
+					assertEquals(full.distance(s) - 1, full.distance(next));
+				}
+			}
+			target = randomStep(b, target, r);
+		}
+	}
+	
+	private int randomOpenCell(Board b, SplitRandom r) {
+		int result = r.nextInt(b.getWidth() * b.getHeight());
+		while (b.getWallMap().isWall(result)) {
+			result = r.nextInt(b.getWidth() * b.getHeight());
+		}
+		return result;
+	}
+	
+	private int randomStep(Board b, int cell, SplitRandom r) {
+		Direction d = Direction.values()[r.nextInt(Direction.values().length)];
+		int result = cell;
+		if (b.getWallMap().canMove(cell, d)) {
+			result = b.getNeighbours().neighbour(cell, d);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,101 @@
+package org.jpacman.test.framework.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Board;
+import org.jpacman.framework.model.DistanceTable;
+import org.jpacman.framework.model.FlowField;
+import org.jpacman.framework.model.NeighbourTable;
+import org.jpacman.framework.model.WallMap;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the all-pairs distance table and its cache.
+ */
+public class DistanceTableTest {
+	
+	private Board parse(String... map) throws FactoryException {
+		return new MapParser(new DefaultGameFactory()).parseMap(map).getBoard();
+	}
+	
+	/**
+	 * Start every test with an empty cache.
+	 */
+	@Before
+	public void setUp() {
+		DistanceTable.clearCache();
+	}
+	
+	/**
+	 * Distances go around walls and through tunnels; walls are unreachable.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testSmallMaze() throws FactoryException {
+		Board b = parse(
+				"#####",
+				"  #  ",
+				"#   #",
+				"#####");
+		DistanceTable t = new DistanceTable(b.getWallMap(), 2);
+		final int walkable = 7;
+		assertEquals(walkable, t.getWalkableCount());
+		assertEquals(1, t.distance(b.cellOf(b.tileAt(0, 1)), b.cellOf(b.tileAt(4, 1))));
+		assertEquals(3, t.distance(b.cellOf(b.tileAt(0, 1)), b.cellOf(b.tileAt(3, 2))));
+		assertEquals(0, t.distance(b.cellOf(b.tileAt(2, 2)), b.cellOf(b.tileAt(2, 2))));
+		assertEquals(DistanceTable.UNREACHABLE, 
+				t.distance(b.cellOf(b.tileAt(0, 1)), b.cellOf(b.tileAt(0, 0))));
+	}
+	
+	/**
+	 * Mazes with more walkable cells than shorts can count are
+	 * refused up front, also when asked for through the cache.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLarge() {
+		final int side = 182;
+		WallMap open = new WallMap(new NeighbourTable(side, side));
+		DistanceTable.forMaze(open);
+	}
+	
+	/**
+	 * The parallel table agrees with a flow field from every cell.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testAgreesWithFlowField() throws FactoryException {
+		Board b = new MapParser(new DefaultGameFactory()).parseFromFile("board.txt").getBoard();
+		final int threads = 4;
+		DistanceTable t = new DistanceTable(b.getWallMap(), threads);
+		FlowField f = new FlowField(b);
+		int cells = b.getWidth() * b.getHeight();
+		for (int to = 0; to < cells; to++) {
+			if (!b.getWallMap().isWall(to)) {
+				f.update(to);
+				for (int from = 0; from < cells; from++) {
+					if (!b.getWallMap().isWall(from)) {
+						assertEquals(f.distance(from), t.distance(from, to));
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Mazes with the same walls share a table, even if parsed separately.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testCachedByContent() throws FactoryException {
+		String[] map = {"#P.#", "#  #"};
+		DistanceTable t = DistanceTable.forMaze(parse(map).getWallMap());
+		assertSame(t, DistanceTable.forMaze(parse(map).getWallMap()));
+		final int walkable = 4;
+		assertEquals(walkable, t.getWalkableCount());
+	}
+}
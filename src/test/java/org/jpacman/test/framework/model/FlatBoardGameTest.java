@@ -0,0 +1,16 @@
+package org.jpacman.test.framework.model;
+
+import org.jpacman.framework.factory.FlatBoardGameFactory;
+import org.jpacman.framework.factory.IGameFactory;
+
+/**
+ * Run the full game test suite on boards that store
+ * their content in flat arrays.
+ */
+public class FlatBoardGameTest extends GameTest {
+
+	@Override
+	public IGameFactory makeFactory() {
+		return new FlatBoardGameFactory();
+	}
+}
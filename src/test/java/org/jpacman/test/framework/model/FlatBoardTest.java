@@ -0,0 +1,97 @@
+package org.jpacman.test.framework.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.jpacman.framework.model.FlatBoard;
+import org.jpacman.framework.model.Food;
+import org.jpacman.framework.model.Ghost;
+import org.jpacman.framework.model.IBoardInspector.SpriteType;
+import org.jpacman.framework.model.Tile;
+import org.jpacman.framework.model.Wall;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that a flat board stores walls and food without tiles,
+ * and creates tiles on demand.
+ */
+public class FlatBoardTest {
+	
+	private FlatBoard board;
+	private final Wall wall = new Wall();
+	private final Food food = new Food();
+	
+	/**
+	 * Create a board with a wall and some food.
+	 */
+	@Before
+	public void setUp() {
+		board = new FlatBoard(2, 2);
+		board.put(wall, 0, 0);
+		food.setPoints(2);
+		board.put(food, 1, 0);
+	}
+
+	/**
+	 * Walls and food are recorded, but get no tile.
+	 */
+	@Test
+	public void testStoredWithoutTile() {
+		assertEquals(SpriteType.WALL, board.spriteTypeAt(0, 0));
+		assertEquals(SpriteType.FOOD, board.spriteTypeAt(1, 0));
+		assertEquals(SpriteType.EMPTY, board.spriteTypeAt(0, 1));
+		assertNull(wall.getTile());
+		assertNull(food.getTile());
+	}
+	
+	/**
+	 * Inspecting the food of a cell without tile creates no tile:
+	 * default food is the shared food.
+	 */
+	@Test
+	public void testSpriteAtWithoutTile() {
+		board.put(new Food(), 0, 1);
+		assertSame(Food.flyweight(), board.spriteAt(0, 1));
+		assertEquals(2, ((Food) board.spriteAt(1, 0)).getPoints());
+		assertNull(board.spriteAt(1, 0).getTile());
+		assertEquals(0, board.getTileCount());
+	}
+	
+	/**
+	 * Asking for a tile creates it, with the cell content on it.
+	 */
+	@Test
+	public void testTileOnDemand() {
+		Tile t = board.tileAt(1, 0);
+		assertEquals(SpriteType.FOOD, t.topSprite().getSpriteType());
+		assertEquals(2, ((Food) t.topSprite()).getPoints());
+		assertEquals(t, board.tileAt(1, 0));
+		assertEquals(SpriteType.WALL, board.spriteAt(0, 0).getSpriteType());
+		assertNull(board.spriteAt(1, 1));
+	}
+	
+	/**
+	 * Tiles left by their last mover are dropped, keeping their food.
+	 */
+	@Test
+	public void testTileDroppedWhenLeft() {
+		Ghost ghost = new Ghost();
+		board.put(ghost, 1, 1);
+		assertEquals(1, board.getTileCount());
+		Tile from = ghost.getTile();
+		ghost.deoccupy();
+		ghost.occupy(board.tileAt(1, 0));
+		board.vacated(from);
+		assertEquals(1, board.getTileCount());
+		assertEquals(SpriteType.EMPTY, board.spriteTypeAt(1, 1));
+		from = ghost.getTile();
+		ghost.deoccupy();
+		ghost.occupy(board.tileAt(1, 1));
+		board.vacated(from);
+		assertEquals(1, board.getTileCount());
+		assertEquals(SpriteType.FOOD, board.spriteTypeAt(1, 0));
+		assertEquals(2, ((Food) board.tileAt(1, 0).topSprite()).getPoints());
+	}
+}
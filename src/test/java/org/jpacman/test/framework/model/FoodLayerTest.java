@@ -0,0 +1,73 @@
+package org.jpacman.test.framework.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.FoodLayer;
+import org.jpacman.framework.model.Game;
+import org.junit.Test;
+
+/**
+ * Test the food layer, both in isolation and
+ * as kept in sync by the game.
+ */
+public class FoodLayerTest {
+	
+	private static final int CELLS = 200;
+	private static final int FAR = 130;
+
+	/**
+	 * Adding and removing food updates the count.
+	 */
+	@Test
+	public void testAddRemove() {
+		FoodLayer layer = new FoodLayer(CELLS);
+		layer.add(1);
+		layer.add(FAR);
+		layer.add(FAR);
+		assertEquals(2, layer.remaining());
+		assertTrue(layer.remove(1));
+		assertFalse(layer.remove(1));
+		assertEquals(1, layer.remaining());
+		assertTrue(layer.hasFood(FAR));
+	}
+	
+	/**
+	 * The next food is found across word boundaries.
+	 */
+	@Test
+	public void testNextFood() {
+		FoodLayer layer = new FoodLayer(CELLS);
+		layer.add(2);
+		layer.add(FAR);
+		assertEquals(2, layer.nextFood(0));
+		assertEquals(2, layer.nextFood(2));
+		assertEquals(FAR, layer.nextFood(2 + 1));
+		assertEquals(-1, layer.nextFood(FAR + 1));
+		assertEquals(-1, layer.nextFood(CELLS - 1));
+	}
+	
+	/**
+	 * Eating food in the game removes it from the layer.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testGameKeepsLayerInSync() throws FactoryException {
+		Game g = new MapParser(new DefaultGameFactory())
+			.parseMap(new String[] {"P..#"});
+		FoodLayer layer = g.getBoard().getFoodLayer();
+		assertEquals(2, layer.remaining());
+		assertEquals(1, layer.nextFood(0));
+		
+		g.movePlayer(Direction.RIGHT);
+		
+		assertEquals(1, layer.remaining());
+		assertEquals(2, layer.nextFood(0));
+		assertEquals(layer, g.getPointManager().getFoodLayer());
+	}
+}
@@ -0,0 +1,158 @@
+package org.jpacman.test.framework.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Observable;
+import java.util.Observer;
+
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.Game;
+import org.jpacman.framework.model.GameEventBatch;
+import org.jpacman.framework.model.GameEventType;
+import org.jpacman.framework.model.IGameEventListener;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the typed events published by games, and their batching.
+ */
+public class GameEventBusTest {
+	
+	/**
+	 * Listener recording how often it was called, and with what.
+	 */
+	private static class Recorder implements IGameEventListener, Observer {
+		private int batches;
+		private int events;
+		private int lastMask;
+		private int updates;
+		
+		@Override
+		public void eventsOccurred(GameEventBatch batch) {
+			batches++;
+			events += batch.size();
+			lastMask = batch.getTypeMask();
+		}
+
+		@Override
+		public void update(Observable o, Object arg) {
+			updates++;
+		}
+	}
+	
+	private Game game;
+	private Recorder all;
+	private Recorder food;
+	
+	/**
+	 * Create a game with listeners to all events and to food only.
+	 * @throws FactoryException Never.
+	 */
+	@Before
+	public void setUp() throws FactoryException {
+		game = new MapParser(new DefaultGameFactory()).parseMap(new String[] {"#P.. G#"});
+		all = new Recorder();
+		food = new Recorder();
+		game.getEventBus().addListener(all);
+		game.getEventBus().addListener(food, GameEventType.FOOD_EATEN);
+		game.attach(all);
+	}
+	
+	/**
+	 * Outside a tick, every move is delivered right away.
+	 */
+	@Test
+	public void testImmediateDelivery() {
+		game.movePlayer(Direction.RIGHT);
+		assertEquals(1, all.batches);
+		assertEquals(2, all.events);
+		assertEquals(GameEventType.PLAYER_MOVED.bit() | GameEventType.FOOD_EATEN.bit(), 
+				all.lastMask);
+		assertEquals(1, food.batches);
+		game.moveGhost(game.getGhosts().get(0), Direction.LEFT);
+		assertEquals(2, all.batches);
+		assertEquals(1, food.batches);
+		assertEquals(2, all.updates);
+	}
+	
+	/**
+	 * All events of a tick are delivered in one batch, 
+	 * and observers are notified once.
+	 */
+	@Test
+	public void testBatchedTick() {
+		game.beginTick();
+		game.movePlayer(Direction.RIGHT);
+		game.movePlayer(Direction.RIGHT);
+		game.moveGhost(game.getGhosts().get(0), Direction.LEFT);
+		game.moveGhost(game.getGhosts().get(0), Direction.LEFT);
+		assertEquals(0, all.batches);
+		assertEquals(0, all.updates);
+		game.endTick();
+		assertEquals(1, all.batches);
+		final int moves = 4;
+		assertEquals(moves + 2 + 1, all.events);
+		assertTrue((all.lastMask & GameEventType.PLAYER_DIED.bit()) != 0);
+		assertEquals(1, food.batches);
+		assertEquals(1, all.updates);
+	}
+	
+	/**
+	 * Removed listeners are no longer informed, and types nobody
+	 * listens to anymore are dropped.
+	 */
+	@Test
+	public void testRemoveListener() {
+		game.getEventBus().removeListener(food);
+		assertEquals(1, game.getEventBus().getListeners(GameEventType.FOOD_EATEN).length);
+		game.getEventBus().removeListener(all);
+		assertFalse(game.getEventBus().isListenedTo(GameEventType.PLAYER_MOVED));
+		game.movePlayer(Direction.RIGHT);
+		assertEquals(0, all.batches);
+		assertEquals(0, food.batches);
+	}
+	
+	/**
+	 * Event details identify the mover and the cells.
+	 */
+	@Test
+	public void testEventDetails() {
+		final int[] details = new int[2 + 1];
+		game.getEventBus().addListener(new IGameEventListener() {
+			@Override
+			public void eventsOccurred(GameEventBatch events) {
+				details[0] = events.getMover(0);
+				details[1] = events.getFrom(0);
+				details[2] = events.getTo(0);
+			}
+		}, GameEventType.GHOST_MOVED);
+		game.moveGhost(game.getGhosts().get(0), Direction.LEFT);
+		assertEquals(0, details[0]);
+		final int from = 5;
+		assertEquals(from, details[1]);
+		assertEquals(from - 1, details[2]);
+	}
+	
+	/**
+	 * Ghosts know their index, and a ghost killing the player is
+	 * published even if no one listens to ghost moves as such.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testDeathWithoutMoveListeners() throws FactoryException {
+		Game g = new MapParser(new DefaultGameFactory()).parseMap(new String[] {"#G PG#"});
+		assertEquals(1, g.getGhosts().get(1).getIndex());
+		Recorder deaths = new Recorder();
+		g.getEventBus().addListener(deaths, GameEventType.PLAYER_DIED);
+		g.moveGhost(g.getGhosts().get(0), Direction.RIGHT);
+		assertEquals(0, deaths.batches);
+		g.moveGhost(g.getGhosts().get(1), Direction.LEFT);
+		assertEquals(1, deaths.batches);
+		assertEquals(GameEventType.PLAYER_DIED.bit(), deaths.lastMask);
+	}
+}
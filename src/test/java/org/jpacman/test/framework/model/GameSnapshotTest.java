@@ -0,0 +1,161 @@
+package org.jpacman.test.framework.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.FlatBoardGameFactory;
+import org.jpacman.framework.factory.IGameFactory;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.FlatBoard;
+import org.jpacman.framework.model.Food;
+import org.jpacman.framework.model.Game;
+import org.jpacman.framework.model.GameSnapshot;
+import org.jpacman.framework.model.Ghost;
+import org.jpacman.framework.model.IBoardInspector.SpriteType;
+import org.jpacman.framework.model.MoveJournal;
+import org.junit.Test;
+
+/**
+ * Test taking and restoring snapshots of games.
+ */
+public class GameSnapshotTest {
+	
+	private Game makeGame(IGameFactory factory, String... map) throws FactoryException {
+		return new MapParser(factory).parseMap(map);
+	}
+	
+	/**
+	 * Restoring brings back eaten food, points, and positions.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testRestoreEatenFood() throws FactoryException {
+		Game g = makeGame(new DefaultGameFactory(), "#P..G#");
+		GameSnapshot start = g.snapshot();
+		g.movePlayer(Direction.RIGHT);
+		GameSnapshot oneEaten = g.snapshot();
+		g.movePlayer(Direction.RIGHT);
+		g.moveGhost(g.getGhosts().get(0), Direction.LEFT);
+		assertFalse(g.getPlayer().isAlive());
+		
+		g.restore(start);
+		assertTrue(g.getPlayer().isAlive());
+		assertEquals(0, g.getPlayer().getPoints());
+		assertEquals(SpriteType.PLAYER, g.getBoard().spriteTypeAt(1, 0));
+		assertEquals(SpriteType.FOOD, g.getBoard().spriteTypeAt(2, 0));
+		assertEquals(SpriteType.FOOD, g.getBoard().spriteTypeAt(3, 0));
+		assertEquals(SpriteType.GHOST, g.getBoard().spriteTypeAt(4, 0));
+		assertEquals(2, g.getBoard().getFoodLayer().remaining());
+		
+		g.restore(oneEaten);
+		assertEquals(Food.DEFAULT_POINTS, g.getPointManager().getFoodEaten());
+		assertEquals(SpriteType.PLAYER, g.getBoard().spriteTypeAt(2, 0));
+		assertEquals(SpriteType.FOOD, g.getBoard().spriteTypeAt(3, 0));
+		assertEquals(1, g.getBoard().getFoodLayer().remaining());
+	}
+	
+	/**
+	 * Restoring a flat board leaves tiles for the movers only, and
+	 * moves journaled before restoring can't be undone anymore.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testRestoreFlat() throws FactoryException {
+		final int journalSize = 4;
+		Game g = makeGame(new FlatBoardGameFactory(), "#P..G#");
+		FlatBoard board = (FlatBoard) g.getBoard();
+		g.setJournal(new MoveJournal(journalSize));
+		GameSnapshot start = g.snapshot();
+		g.movePlayer(Direction.RIGHT);
+		g.movePlayer(Direction.RIGHT);
+		GameSnapshot allEaten = g.snapshot();
+		
+		g.restore(start);
+		assertEquals(2, board.getTileCount());
+		g.restore(allEaten);
+		assertEquals(2, board.getTileCount());
+		assertEquals(0, board.getFoodLayer().remaining());
+		assertFalse(g.undo());
+		
+		g.restore(start);
+		assertEquals(SpriteType.FOOD, board.spriteTypeAt(2, 0));
+		assertEquals(2 * Food.DEFAULT_POINTS, g.getPointManager().totalFoodInGame());
+	}
+	
+	/**
+	 * Snapshots can be reused without allocating new ones.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testReuse() throws FactoryException {
+		Game g = makeGame(new DefaultGameFactory(), "#P..G#");
+		GameSnapshot s = g.snapshot();
+		g.movePlayer(Direction.RIGHT);
+		assertSame(s, g.snapshot(s));
+		assertEquals(2, s.getPlayerCell());
+		assertFalse(s.hasFood(2));
+	}
+	
+	private void assertSameState(GameSnapshot expected, GameSnapshot actual) {
+		assertEquals(expected.getPlayerCell(), actual.getPlayerCell());
+		assertEquals(expected.isPlayerAlive(), actual.isPlayerAlive());
+		assertEquals(expected.getPlayerPoints(), actual.getPlayerPoints());
+		assertEquals(expected.getFoodEaten(), actual.getFoodEaten());
+		for (int i = 0; i < expected.getGhostCount(); i++) {
+			assertEquals(expected.getGhostCell(i), actual.getGhostCell(i));
+		}
+	}
+	
+	/**
+	 * Play randomly from a snapshot many times over, and
+	 * check the game returns to the same state each time.
+	 * @param factory Factory creating the game.
+	 * @throws FactoryException Never.
+	 */
+	private void checkRandomBranches(IGameFactory factory) throws FactoryException {
+		Game g = makeGame(factory, "#######", "#P...G#", "#.# #.#", "#G...##", "#######");
+		Random random = new Random(1);
+		GameSnapshot root = g.snapshot();
+		GameSnapshot check = new GameSnapshot();
+		final int branches = 50;
+		final int depth = 20;
+		for (int b = 0; b < branches; b++) {
+			for (int d = 0; d < depth && g.getPlayer().isAlive(); d++) {
+				Direction dir = Direction.values()[random.nextInt(Direction.values().length)];
+				g.movePlayer(dir);
+				Ghost ghost = g.getGhosts().get(random.nextInt(g.getGhosts().size()));
+				g.moveGhost(ghost, dir.opposite());
+			}
+			g.restore(root);
+			assertSameState(root, g.snapshot(check));
+			for (int cell = 0; cell < g.getBoard().getNeighbours().size(); cell++) {
+				assertEquals(root.hasFood(cell), g.getBoard().getFoodLayer().hasFood(cell));
+			}
+		}
+	}
+	
+	/**
+	 * Random branches on an ordinary board.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testRandomBranches() throws FactoryException {
+		checkRandomBranches(new DefaultGameFactory());
+	}
+	
+	/**
+	 * Random branches on a flat board.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testRandomBranchesFlat() throws FactoryException {
+		checkRandomBranches(new FlatBoardGameFactory());
+	}
+}
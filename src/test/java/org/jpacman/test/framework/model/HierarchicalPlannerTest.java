@@ -0,0 +1,124 @@
+package org.jpacman.test.framework.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Board;
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.FlatBoard;
+import org.jpacman.framework.model.FlowField;
+import org.jpacman.framework.model.HierarchicalPlanner;
+import org.jpacman.framework.model.MazeTemplate;
+import org.jpacman.framework.model.SplitRandom;
+import org.jpacman.framework.model.Wall;
+import org.junit.Test;
+
+/**
+ * Test hierarchical path planning against full searches.
+ */
+public class HierarchicalPlannerTest {
+	
+	private static final int QUERIES = 200;
+	private static final long SEED = 7L;
+	
+	/**
+	 * Follow a path, checking that no move bumps into a wall.
+	 * @param b The board
+	 * @param from Cell to start from
+	 * @param moves The path
+	 * @return The cell reached.
+	 */
+	private int follow(Board b, int from, Direction[] moves) {
+		int cell = from;
+		for (Direction d : moves) {
+			assertTrue(b.getWallMap().canMove(cell, d));
+			cell = b.getNeighbours().neighbour(cell, d);
+		}
+		return cell;
+	}
+	
+	private int randomOpenCell(Board b, SplitRandom r) {
+		int result = r.nextInt(b.getWidth() * b.getHeight());
+		while (b.getWallMap().isWall(result)) {
+			result = r.nextInt(b.getWidth() * b.getHeight());
+		}
+		return result;
+	}
+	
+	/**
+	 * Paths lead to the goal, exist iff the goal can be reached,
+	 * and are no shorter than the shortest ones.
+	 * @param b The board to plan on
+	 * @param p The planner for that board.
+	 */
+	private void checkQueries(Board b, HierarchicalPlanner p) {
+		SplitRandom r = new SplitRandom(SEED);
+		FlowField f = new FlowField(b);
+		for (int q = 0; q < QUERIES; q++) {
+			int from = randomOpenCell(b, r);
+			int to = randomOpenCell(b, r);
+			f.update(to);
+			Direction[] path = p.path(from, to);
+			if (f.distance(from) == FlowField.UNREACHABLE) {
+				assertNull(path);
+			} else {
+				assertNotNull(path);
+				assertEquals(to, follow(b, from, path));
+				assertTrue(path.length >= f.distance(from));
+			}
+		}
+	}
+	
+	/**
+	 * Plan on the default board, with small clusters.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testDefaultBoard() throws FactoryException {
+		Board b = new MapParser(new DefaultGameFactory()).parseFromFile("board.txt").getBoard();
+		final int size = 5;
+		HierarchicalPlanner p = new HierarchicalPlanner(b.getWallMap(), size, 2);
+		assertTrue(p.getNodeCount() > 0);
+		checkQueries(b, p);
+		Direction[] path = p.path(b.tileAt(1, 1), b.tileAt(1, 1));
+		assertEquals(0, path.length);
+	}
+	
+	/**
+	 * Plan on a larger generated maze, including walled-off cells.
+	 */
+	@Test
+	public void testGeneratedMaze() {
+		final int size = 96;
+		final int odds = 4;
+		Board b = new FlatBoard(size, size);
+		SplitRandom r = new SplitRandom(SEED);
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				if (r.nextInt(odds) == 0) {
+					b.put(Wall.flyweight(), x, y);
+				}
+			}
+		}
+		final int threads = 4;
+		checkQueries(b, new HierarchicalPlanner(b.getWallMap(), 
+				HierarchicalPlanner.DEFAULT_CLUSTER_SIZE, threads));
+	}
+	
+	/**
+	 * Templates keep their planner, so it is cached along with them.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testCachedInTemplate() throws FactoryException {
+		MazeTemplate t = new MapParser(new DefaultGameFactory()).parseTemplate(
+				new String[] {"#P  #", "#   #"});
+		assertSame(t.getPlanner(), t.getPlanner());
+	}
+}
@@ -0,0 +1,108 @@
+package org.jpacman.test.framework.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Board;
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.FlowField;
+import org.jpacman.framework.model.JunctionGraph;
+import org.junit.Test;
+
+/**
+ * Test compressing mazes into junctions and corridors.
+ */
+public class JunctionGraphTest {
+	
+	private Board parse(String... map) throws FactoryException {
+		return new MapParser(new DefaultGameFactory()).parseMap(map).getBoard();
+	}
+	
+	/**
+	 * A T-junction with three dead ends has four nodes, and
+	 * corridors know their cells and directions.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testJunction() throws FactoryException {
+		Board b = parse(
+				"#######",
+				"#     #",
+				"### ###",
+				"### ###",
+				"#######");
+		JunctionGraph j = b.getJunctionGraph();
+		final int nodes = 4;
+		assertEquals(nodes, j.getNodeCount());
+		assertEquals(3, j.getCorridorCount());
+		int junction = j.nodeAt(b.cellOf(b.tileAt(3, 1)));
+		assertTrue(junction >= 0);
+		assertEquals(3, j.edgesFrom(junction + 1) - j.edgesFrom(junction));
+		for (int e = j.edgesFrom(junction); e < j.edgesFrom(junction + 1); e++) {
+			assertEquals(2, j.edgeLength(e));
+			Direction d = j.edgeDirection(e);
+			int first = b.getNeighbours().neighbour(b.cellOf(b.tileAt(3, 1)), d);
+			int corridor = j.edgeCorridor(e);
+			assertEquals(corridor, j.corridorAt(first));
+			int[] cells = j.corridorCells(corridor);
+			boolean fromA = j.corridorA(corridor) == junction;
+			if (fromA) {
+				assertEquals(first, cells[0]);
+			} else {
+				assertEquals(first, cells[cells.length - 1]);
+			}
+			assertEquals(d.opposite(), j.along(first, !fromA));
+		}
+	}
+	
+	/**
+	 * A ring without junctions still gets a node, and one corridor
+	 * leading back into it.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testRing() throws FactoryException {
+		Board b = parse(
+				"#####",
+				"#   #",
+				"# # #",
+				"#   #",
+				"#####");
+		JunctionGraph j = b.getJunctionGraph();
+		assertEquals(1, j.getNodeCount());
+		assertEquals(1, j.getCorridorCount());
+		final int ringLength = 8;
+		assertEquals(ringLength, j.corridorLength(0));
+		assertEquals(j.corridorA(0), j.corridorB(0));
+	}
+	
+	/**
+	 * On the default board, every walkable cell is a node or
+	 * in a corridor, and distances over the graph are those on the board.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testDefaultBoard() throws FactoryException {
+		Board b = new MapParser(new DefaultGameFactory()).parseFromFile("board.txt").getBoard();
+		JunctionGraph j = b.getJunctionGraph();
+		int cells = b.getWidth() * b.getHeight();
+		for (int c = 0; c < cells; c++) {
+			boolean node = j.nodeAt(c) >= 0;
+			boolean corridor = j.corridorAt(c) >= 0;
+			assertEquals(!b.getWallMap().isWall(c), node ^ corridor);
+		}
+		assertTrue(j.getNodeCount() < cells / 2);
+		FlowField f = new FlowField(b);
+		int[] dist = new int[j.getNodeCount()];
+		for (int n = 0; n < j.getNodeCount(); n++) {
+			j.distancesFrom(n, dist);
+			f.update(j.nodeCell(n));
+			for (int m = 0; m < j.getNodeCount(); m++) {
+				assertEquals(f.distance(j.nodeCell(m)), dist[m]);
+			}
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package org.jpacman.test.framework.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.FlatBoardGameFactory;
+import org.jpacman.framework.model.Level;
+import org.jpacman.framework.model.LevelCache;
+import org.jpacman.framework.model.MazeTemplate;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test caching, eviction and invalidation of parsed levels.
+ */
+public class LevelCacheTest {
+	
+	private static final String BOARD = "board.txt";
+	private static final String SIMPLE = "simplemap.txt";
+	
+	private LevelCache cache;
+	
+	/**
+	 * Start with a small, empty cache.
+	 */
+	@Before
+	public void setUp() {
+		cache = new LevelCache(2);
+	}
+
+	/**
+	 * A map is only parsed the first time it is requested.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testHitAfterMiss() throws FactoryException {
+		DefaultGameFactory factory = new DefaultGameFactory();
+		MazeTemplate first = cache.get(BOARD, factory);
+		MazeTemplate second = cache.get(BOARD, factory);
+		assertSame(first, second);
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+	}
+	
+	/**
+	 * Different factory types get their own entry, 
+	 * and the least recently used one is evicted.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testEviction() throws FactoryException {
+		MazeTemplate board = cache.get(BOARD, new DefaultGameFactory());
+		cache.get(BOARD, new FlatBoardGameFactory());
+		cache.get(BOARD, new DefaultGameFactory());
+		cache.get(SIMPLE, new DefaultGameFactory());
+		assertEquals(2, cache.size());
+		assertSame(board, cache.get(BOARD, new DefaultGameFactory()));
+		final int expectedMisses = 4;
+		cache.get(BOARD, new FlatBoardGameFactory());
+		assertEquals(expectedMisses, cache.getMisses());
+	}
+	
+	/**
+	 * Invalidated maps are parsed again.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testInvalidate() throws FactoryException {
+		MazeTemplate before = cache.get(BOARD, new DefaultGameFactory());
+		cache.invalidate(BOARD);
+		assertEquals(0, cache.size());
+		assertNotSame(before, cache.get(BOARD, new DefaultGameFactory()));
+	}
+	
+	/**
+	 * Concurrent requests for the same map share a single parse.
+	 * @throws InterruptedException Never.
+	 * @throws ExecutionException Never.
+	 */
+	@Test
+	public void testConcurrentMiss() throws InterruptedException, ExecutionException {
+		final int threads = 8;
+		final CountDownLatch go = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<MazeTemplate>> results = new ArrayList<Future<MazeTemplate>>();
+		for (int i = 0; i < threads; i++) {
+			results.add(pool.submit(new Callable<MazeTemplate>() {
+				@Override
+				public MazeTemplate call() throws Exception {
+					go.await();
+					return cache.get(BOARD, new DefaultGameFactory());
+				}
+			}));
+		}
+		go.countDown();
+		for (Future<MazeTemplate> r : results) {
+			assertSame(results.get(0).get(), r.get());
+		}
+		pool.shutdown();
+		assertEquals(1, cache.getMisses());
+		assertEquals(threads - 1, cache.getHits());
+	}
+	
+	/**
+	 * Maps that can't be parsed are not cached, but tried again.
+	 */
+	@Test
+	public void testFailureNotCached() {
+		final String missing = "no-such-map.txt";
+		for (int i = 0; i < 2; i++) {
+			try {
+				cache.get(missing, new DefaultGameFactory());
+				fail("Map should not be found");
+			} catch (FactoryException e) {
+				assertEquals(0, cache.size());
+			}
+		}
+		assertEquals(2, cache.getMisses());
+	}
+	
+	/**
+	 * A level restarted on a cached map yields a fresh game.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testLevelRestart() throws FactoryException {
+		Level level = new Level();
+		level.setCache(cache);
+		level.parseMap();
+		assertNotSame(level.getGame(), level.parseMap());
+		assertEquals(1, cache.getHits());
+	}
+}
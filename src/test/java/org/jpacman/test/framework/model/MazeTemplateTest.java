@@ -0,0 +1,110 @@
+package org.jpacman.test.framework.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.FlatBoardGameFactory;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.Food;
+import org.jpacman.framework.model.Game;
+import org.jpacman.framework.model.IBoardInspector.SpriteType;
+import org.jpacman.framework.model.MazeTemplate;
+import org.jpacman.framework.model.Sprite;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test that several games can share one maze template,
+ * each having its own food and sprites.
+ */
+public class MazeTemplateTest {
+	
+	private final String[] map = new String[] { 
+			"#####", 
+			"#...#", 
+			"#GPG#", 
+			"#   #",
+			"#####" 
+	};
+	
+	private MazeTemplate maze;
+	
+	/**
+	 * Parse the map into a template.
+	 * @throws FactoryException Never.
+	 */
+	@Before
+	public void setUp() throws FactoryException {
+		maze = new MapParser(new DefaultGameFactory()).parseTemplate(map);
+	}
+	
+	/**
+	 * The template records the layout of the map.
+	 */
+	@Test
+	public void testLayout() {
+		final int foodCells = 3;
+		assertEquals(map.length, maze.getHeight());
+		assertEquals(1, maze.getPlayerCells().length);
+		assertEquals(2, maze.getGhostCells().length);
+		assertEquals(foodCells * Food.DEFAULT_POINTS, maze.getFoodPoints());
+	}
+	
+	/**
+	 * Games on the same maze share walls, but not food.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testSharedWalls() throws FactoryException {
+		MapParser p = new MapParser(new FlatBoardGameFactory());
+		Game first = p.instantiate(maze);
+		Game second = p.instantiate(maze);
+		assertSame(first.getBoard().getWallMap(), second.getBoard().getWallMap());
+		
+		first.movePlayer(Direction.UP);
+		
+		assertEquals(SpriteType.PLAYER, first.getBoard().spriteTypeAt(2, 1));
+		assertEquals(SpriteType.FOOD, second.getBoard().spriteTypeAt(2, 1));
+		assertEquals(Food.DEFAULT_POINTS, first.getPointManager().getFoodEaten());
+		assertEquals(0, second.getPointManager().getFoodEaten());
+	}
+	
+	/**
+	 * The default factory gives each game walls and food of its own.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testDefaultFactory() throws FactoryException {
+		Game g = new MapParser(new DefaultGameFactory()).instantiate(maze);
+		assertEquals(SpriteType.WALL, g.getBoard().spriteTypeAt(0, 0));
+		assertEquals(SpriteType.GHOST, g.getBoard().spriteTypeAt(1, 2));
+		assertEquals(g.getPlayer(), g.getBoard().spriteAt(2, 2));
+		assertEquals(maze.getFoodPoints(), g.getPointManager().totalFoodInGame());
+	}
+	
+	/**
+	 * A parser overriding the sprite hooks fills the board through them.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testParserHooks() throws FactoryException {
+		MapParser noFood = new MapParser(new FlatBoardGameFactory()) {
+			@Override
+			protected Sprite getSprite(char spriteCode) throws FactoryException {
+				Sprite result = null;
+				if (spriteCode != MapParser.FOOD) {
+					result = super.getSprite(spriteCode);
+				}
+				return result;
+			}
+		};
+		Game g = noFood.instantiate(maze);
+		assertEquals(SpriteType.WALL, g.getBoard().spriteTypeAt(0, 0));
+		assertEquals(SpriteType.EMPTY, g.getBoard().spriteTypeAt(2, 1));
+		assertEquals(g.getPlayer(), g.getBoard().spriteAt(2, 2));
+		assertEquals(0, g.getPointManager().totalFoodInGame());
+	}
+}
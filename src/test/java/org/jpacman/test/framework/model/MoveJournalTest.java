@@ -0,0 +1,141 @@
+package org.jpacman.test.framework.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.FlatBoardGameFactory;
+import org.jpacman.framework.factory.IGameFactory;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.Food;
+import org.jpacman.framework.model.Game;
+import org.jpacman.framework.model.GameSnapshot;
+import org.jpacman.framework.model.Ghost;
+import org.jpacman.framework.model.IBoardInspector.SpriteType;
+import org.jpacman.framework.model.MoveJournal;
+import org.junit.Test;
+
+/**
+ * Test undoing moves recorded in a move journal.
+ */
+public class MoveJournalTest {
+	
+	private static final int CAPACITY = 64;
+	
+	private Game makeGame(IGameFactory factory, String... map) throws FactoryException {
+		Game g = new MapParser(factory).parseMap(map);
+		g.setJournal(new MoveJournal(CAPACITY));
+		return g;
+	}
+	
+	/**
+	 * Undoing a player move puts back the food and the points.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testUndoEating() throws FactoryException {
+		Game g = makeGame(new DefaultGameFactory(), "#P.G#");
+		g.movePlayer(Direction.RIGHT);
+		assertEquals(Food.DEFAULT_POINTS, g.getPlayer().getPoints());
+		assertEquals(Direction.RIGHT, g.getPlayer().getDirection());
+		assertTrue(g.undo());
+		assertEquals(0, g.getPlayer().getPoints());
+		assertEquals(0, g.getPointManager().getFoodEaten());
+		assertEquals(Direction.LEFT, g.getPlayer().getDirection());
+		assertEquals(SpriteType.FOOD, g.getBoard().spriteTypeAt(2, 0));
+		assertEquals(SpriteType.PLAYER, g.getBoard().spriteTypeAt(1, 0));
+		assertTrue(g.getBoard().getFoodLayer().hasFood(2));
+		assertFalse(g.undo());
+	}
+	
+	/**
+	 * Undoing a deadly ghost move revives the player.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testUndoKill() throws FactoryException {
+		Game g = makeGame(new DefaultGameFactory(), "#PG#");
+		Ghost ghost = g.getGhosts().get(0);
+		g.moveGhost(ghost, Direction.LEFT);
+		assertFalse(g.getPlayer().isAlive());
+		assertTrue(g.undo());
+		assertTrue(g.getPlayer().isAlive());
+		assertEquals(SpriteType.GHOST, g.getBoard().spriteTypeAt(2, 0));
+		assertEquals(SpriteType.PLAYER, g.getBoard().spriteTypeAt(1, 0));
+	}
+	
+	/**
+	 * Only the most recent moves up to the capacity can be undone.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testRingBuffer() throws FactoryException {
+		Game g = makeGame(new DefaultGameFactory(), "#P  #");
+		for (int i = 0; i < CAPACITY; i++) {
+			g.movePlayer(Direction.RIGHT);
+			g.movePlayer(Direction.LEFT);
+		}
+		assertEquals(CAPACITY, g.getJournal().size());
+		int undone = 0;
+		while (g.undo()) {
+			undone++;
+		}
+		assertEquals(CAPACITY, undone);
+		assertEquals(SpriteType.PLAYER, g.getBoard().spriteTypeAt(1, 0));
+	}
+	
+	/**
+	 * Make and unmake all move sequences up to a given depth,
+	 * checking each unmake returns to the state before.
+	 * @param g The game explored
+	 * @param depth Remaining depth
+	 * @return Number of positions visited.
+	 */
+	private int explore(Game g, int depth) {
+		int result = 1;
+		if (depth > 0 && g.getPlayer().isAlive()) {
+			GameSnapshot before = g.snapshot();
+			for (Direction d : Direction.values()) {
+				int size = g.getJournal().size();
+				g.movePlayer(d);
+				g.moveGhost(g.getGhosts().get(0), d.opposite());
+				result += explore(g, depth - 1);
+				while (g.getJournal().size() > size) {
+					g.undo();
+				}
+				assertSame(before, g.snapshot());
+			}
+		}
+		return result;
+	}
+	
+	private void assertSame(GameSnapshot expected, GameSnapshot actual) {
+		assertEquals(expected.getPlayerCell(), actual.getPlayerCell());
+		assertEquals(expected.getGhostCell(0), actual.getGhostCell(0));
+		assertEquals(expected.isPlayerAlive(), actual.isPlayerAlive());
+		assertEquals(expected.getPlayerPoints(), actual.getPlayerPoints());
+		assertEquals(expected.getFoodEaten(), actual.getFoodEaten());
+		assertEquals(expected.getPlayerDirection(), actual.getPlayerDirection());
+	}
+	
+	/**
+	 * Depth-first make/unmake on both kinds of boards.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testDepthFirst() throws FactoryException {
+		final int depth = 4;
+		String[] map = {"######", "#P..G#", "#.##.#", "#....#", "######"};
+		for (IGameFactory f : new IGameFactory[] {
+				new DefaultGameFactory(), new FlatBoardGameFactory()}) {
+			Game g = makeGame(f, map);
+			int food = g.getBoard().getFoodLayer().remaining();
+			assertTrue(explore(g, depth) > depth);
+			assertEquals(food, g.getBoard().getFoodLayer().remaining());
+			assertTrue(g.getJournal().isEmpty());
+		}
+	}
+}
@@ -0,0 +1,164 @@
+package org.jpacman.test.framework.model;
+
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Board;
+import org.jpacman.framework.model.DStarLite;
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.FlatBoard;
+import org.jpacman.framework.model.FlowField;
+import org.jpacman.framework.model.SplitRandom;
+import org.jpacman.framework.model.Wall;
+
+/**
+ * Benchmark comparing ghosts chasing a wandering player along a
+ * flow field searched anew whenever the player moves, with ghosts
+ * chasing it along incrementally repaired D* Lite distances.
+ * Reports ticks per second and cells expanded per tick.
+ * <p>
+ * Not a unit test: run it explicitly, without assertions, e.g.
+ * <pre>
+ * java -da -cp target/classes:target/test-classes \
+ *   org.jpacman.test.framework.model.PathfindingBenchmark
+ * </pre>
+ */
+public final class PathfindingBenchmark {
+	
+	private static final int GHOSTS = 32;
+	private static final int SMALL_TICKS = 20000;
+	private static final int LARGE_TICKS = 200;
+	private static final int LARGE = 1024;
+	private static final int WALL_ODDS = 6;
+	private static final long SEED = 2026L;
+	private static final double NANOS_PER_SECOND = 1e9;
+	
+	private static final Direction[] DIRECTIONS = Direction.values();
+	
+	private final Board board;
+	private final int ticks;
+	private final int[] ghosts = new int[GHOSTS];
+	private SplitRandom random;
+	private int player;
+	
+	private PathfindingBenchmark(Board b, int t) {
+		board = b;
+		ticks = t;
+	}
+	
+	/**
+	 * Generate a maze with a wall on every other cell of every other
+	 * row, and random extra walls elsewhere.
+	 * @param size Width and height of the maze.
+	 * @return The generated maze.
+	 */
+	private static Board generateMaze(int size) {
+		Board result = new FlatBoard(size, size);
+		SplitRandom r = new SplitRandom(SEED);
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				boolean pillar = x % 2 == 1 && y % 2 == 1;
+				if (pillar || r.nextInt(WALL_ODDS) == 0) {
+					result.put(Wall.flyweight(), x, y);
+				}
+			}
+		}
+		return result;
+	}
+	
+	private void reset() {
+		random = new SplitRandom(SEED);
+		player = randomOpenCell();
+		for (int i = 0; i < GHOSTS; i++) {
+			ghosts[i] = randomOpenCell();
+		}
+	}
+	
+	private int randomOpenCell() {
+		int cells = board.getWidth() * board.getHeight();
+		int result = random.nextInt(cells);
+		while (board.getWallMap().isWall(result)) {
+			result = random.nextInt(cells);
+		}
+		return result;
+	}
+	
+	/**
+	 * Move the player, and the ghosts in the given directions;
+	 * ghosts catching the player start anew elsewhere.
+	 * @param dirs Direction per ghost, or null to stay.
+	 */
+	private void step(Direction[] dirs) {
+		for (int i = 0; i < GHOSTS; i++) {
+			if (dirs[i] != null) {
+				ghosts[i] = board.getNeighbours().neighbour(ghosts[i], dirs[i]);
+			}
+			if (ghosts[i] == player) {
+				ghosts[i] = randomOpenCell();
+			}
+		}
+		Direction d = DIRECTIONS[random.nextInt(DIRECTIONS.length)];
+		if (board.getWallMap().canMove(player, d)) {
+			player = board.getNeighbours().neighbour(player, d);
+		}
+	}
+	
+	private long runFlowField() {
+		reset();
+		FlowField field = new FlowField(board);
+		Direction[] dirs = new Direction[GHOSTS];
+		for (int t = 0; t < ticks; t++) {
+			field.update(player);
+			for (int i = 0; i < GHOSTS; i++) {
+				dirs[i] = field.towards(ghosts[i]);
+			}
+			step(dirs);
+		}
+		return field.getExpansions();
+	}
+	
+	private long runDStarLite() {
+		reset();
+		DStarLite search = new DStarLite(board);
+		Direction[] dirs = new Direction[GHOSTS];
+		for (int t = 0; t < ticks; t++) {
+			search.update(player, ghosts, GHOSTS);
+			for (int i = 0; i < GHOSTS; i++) {
+				dirs[i] = search.towards(ghosts[i]);
+			}
+			step(dirs);
+		}
+		return search.getExpansions();
+	}
+	
+	private void measure(String name) {
+		runFlowField();
+		runDStarLite();
+		long start = System.nanoTime();
+		long bfs = runFlowField();
+		long middle = System.nanoTime();
+		long dstar = runDStarLite();
+		long end = System.nanoTime();
+		report(name, "full BFS", middle - start, bfs);
+		report(name, "D* Lite", end - middle, dstar);
+	}
+	
+	private void report(String name, String method, long nanos, long expansions) {
+		System.out.printf("%-14s %-9s %10.0f ticks/s %12.1f expanded/tick%n",
+				name, method, ticks * NANOS_PER_SECOND / nanos, 
+				(double) expansions / ticks);
+	}
+	
+	/**
+	 * Run the benchmark on the default board and on a large generated maze.
+	 * @param args Ignored
+	 * @throws FactoryException If the default board can't be read.
+	 */
+	public static void main(String[] args) throws FactoryException {
+		Board small = new MapParser(new DefaultGameFactory())
+			.parseFromFile("board.txt").getBoard();
+		new PathfindingBenchmark(small, SMALL_TICKS).measure("board.txt");
+		new PathfindingBenchmark(generateMaze(LARGE), LARGE_TICKS)
+			.measure("Maze " + LARGE + "x" + LARGE);
+	}
+}
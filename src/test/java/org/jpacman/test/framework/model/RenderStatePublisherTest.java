@@ -0,0 +1,93 @@
+package org.jpacman.test.framework.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.Food;
+import org.jpacman.framework.model.Game;
+import org.jpacman.framework.model.IBoardInspector.SpriteType;
+import org.jpacman.framework.model.RenderState;
+import org.jpacman.framework.model.RenderStatePublisher;
+import org.junit.Test;
+
+/**
+ * Test the capture and triple-buffered publication of render states.
+ */
+public class RenderStatePublisherTest {
+	
+	private Game makeGame(String... map) throws FactoryException {
+		return new MapParser(new DefaultGameFactory()).parseMap(map);
+	}
+	
+	/**
+	 * A render state holds the visible cells, the movers, and the points.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testCapture() throws FactoryException {
+		Game g = makeGame("#P.G#");
+		g.movePlayer(Direction.RIGHT);
+		RenderState s = new RenderStatePublisher(g).latest();
+		assertEquals(5, s.getWidth());
+		assertEquals(1, s.getHeight());
+		assertEquals(SpriteType.WALL, s.spriteTypeAt(0, 0));
+		assertEquals(SpriteType.EMPTY, s.spriteTypeAt(1, 0));
+		assertEquals(SpriteType.PLAYER, s.spriteTypeAt(2, 0));
+		assertEquals(SpriteType.GHOST, s.spriteTypeAt(3, 0));
+		assertEquals(2, s.getPlayerCell());
+		assertEquals(Direction.RIGHT, s.getPlayerDirection());
+		assertTrue(s.isPlayerAlive());
+		assertEquals(1, s.getGhostCount());
+		assertEquals(3, s.getGhostCell(0));
+		assertEquals(Food.DEFAULT_POINTS, s.getFoodEaten());
+		assertEquals(Food.DEFAULT_POINTS, s.getTotalFood());
+	}
+	
+	/**
+	 * The reader keeps its state until something newer is published,
+	 * and the three buffers are reused rather than reallocated.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testBuffersSwapped() throws FactoryException {
+		Game g = makeGame("#P   #");
+		RenderStatePublisher p = new RenderStatePublisher(g);
+		RenderState first = p.latest();
+		assertSame(first, p.latest());
+		Set<RenderState> buffers = new HashSet<RenderState>();
+		for (int x = 2; x < 5; x++) {
+			g.movePlayer(Direction.RIGHT);
+			p.publish(g);
+			RenderState s = p.latest();
+			assertEquals(x, s.getPlayerCell());
+			buffers.add(s);
+		}
+		assertTrue(buffers.size() <= 3);
+	}
+	
+	/**
+	 * A reader skipping ticks sees the latest state only, and the
+	 * states it reads are not touched by the writer.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testReaderSkipsTicks() throws FactoryException {
+		Game g = makeGame("#P   #");
+		RenderStatePublisher p = new RenderStatePublisher(g);
+		RenderState reading = p.latest();
+		for (int i = 0; i < 3; i++) {
+			g.movePlayer(Direction.RIGHT);
+			p.publish(g);
+			assertEquals(1, reading.getPlayerCell());
+		}
+		assertEquals(4, p.latest().getPlayerCell());
+	}
+}
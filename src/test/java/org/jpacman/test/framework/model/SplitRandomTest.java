@@ -0,0 +1,72 @@
+package org.jpacman.test.framework.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.jpacman.framework.model.SplitRandom;
+import org.junit.Test;
+
+/**
+ * Test the seedable, splittable random streams.
+ */
+public class SplitRandomTest {
+	
+	private static final long SEED = 2026L;
+	private static final int DRAWS = 1000;
+	
+	/**
+	 * Streams with the same seed yield the same numbers.
+	 */
+	@Test
+	public void testSameSeedSameStream() {
+		SplitRandom a = new SplitRandom(SEED);
+		SplitRandom b = new SplitRandom(a.getSeed());
+		for (int i = 0; i < DRAWS; i++) {
+			assertEquals(a.nextLong(), b.nextLong());
+		}
+	}
+	
+	/**
+	 * Numbered streams only depend on the master seed and their number,
+	 * and differ from each other.
+	 */
+	@Test
+	public void testNumberedStreams() {
+		SplitRandom late = SplitRandom.stream(SEED, 7);
+		SplitRandom.stream(SEED, 3).nextLong();
+		SplitRandom early = SplitRandom.stream(SEED, 7);
+		assertEquals(late.nextLong(), early.nextLong());
+		assertFalse(SplitRandom.stream(SEED, 7).nextLong() 
+				== SplitRandom.stream(SEED, 8).nextLong());
+	}
+	
+	/**
+	 * Split streams are reproducible, and differ from their parent.
+	 */
+	@Test
+	public void testSplit() {
+		SplitRandom a = new SplitRandom(SEED).split();
+		SplitRandom b = new SplitRandom(SEED).split();
+		assertEquals(a.getSeed(), b.getSeed());
+		assertFalse(a.nextLong() == new SplitRandom(SEED).nextLong());
+	}
+	
+	/**
+	 * Bounded ints stay within their bound, and reach all values.
+	 */
+	@Test
+	public void testBoundedInts() {
+		final int bound = 5;
+		SplitRandom r = new SplitRandom(SEED);
+		boolean[] seen = new boolean[bound];
+		for (int i = 0; i < DRAWS; i++) {
+			int x = r.nextInt(bound);
+			assertTrue(x >= 0 && x < bound);
+			seen[x] = true;
+		}
+		for (boolean s : seen) {
+			assertTrue(s);
+		}
+	}
+}
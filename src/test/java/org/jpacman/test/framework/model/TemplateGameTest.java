@@ -0,0 +1,25 @@
+package org.jpacman.test.framework.model;
+
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.FlatBoardGameFactory;
+import org.jpacman.framework.factory.IGameFactory;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Game;
+
+/**
+ * Run the full game test suite on games created from
+ * a shared maze template.
+ */
+public class TemplateGameTest extends GameTest {
+
+	@Override
+	public IGameFactory makeFactory() {
+		return new FlatBoardGameFactory();
+	}
+	
+	@Override
+	protected Game makePlay(String singleRow) throws FactoryException {
+		MapParser p = new MapParser(makeFactory());
+		return p.instantiate(p.parseTemplate(new String[] {singleRow}));
+	}
+}
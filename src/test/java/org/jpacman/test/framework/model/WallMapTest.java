@@ -0,0 +1,105 @@
+package org.jpacman.test.framework.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Board;
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.IBoardInspector;
+import org.jpacman.framework.model.Sprite;
+import org.jpacman.framework.model.Tile;
+import org.jpacman.framework.model.WallMap;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the wall bitboard and the legal move masks
+ * derived from it while parsing a map.
+ */
+public class WallMapTest {
+	
+	private Board board;
+	
+	/**
+	 * Parse a small map with walls and a tunnel.
+	 * @throws FactoryException Never.
+	 */
+	@Before
+	public void setUp() throws FactoryException {
+		MapParser p = new MapParser(new DefaultGameFactory());
+		board = p.parseMap(new String[] {
+				"###",
+				" P ",
+				"#.#"
+		}).getBoard();
+	}
+
+	/**
+	 * Walls end up in the bitboard.
+	 */
+	@Test
+	public void testWallBits() {
+		WallMap walls = board.getWallMap();
+		assertTrue(walls.isWall(board.getNeighbours().cell(0, 0)));
+		assertFalse(walls.isWall(board.getNeighbours().cell(1, 1)));
+	}
+	
+	/**
+	 * The player can go sideways and down, the latter through the bottom.
+	 */
+	@Test
+	public void testPlayerMoves() {
+		int expected = Direction.LEFT.bit() | Direction.RIGHT.bit() | Direction.DOWN.bit();
+		assertEquals(expected, board.legalMoves(1, 1));
+	}
+	
+	/**
+	 * From the tunnel, the only ways out are sideways.
+	 */
+	@Test
+	public void testTunnelMoves() {
+		int expected = Direction.LEFT.bit() | Direction.RIGHT.bit();
+		assertEquals(expected, board.legalMoves(0, 1));
+		assertTrue(board.canMove(board.tileAt(0, 1), Direction.LEFT));
+		assertFalse(board.canMove(board.tileAt(0, 1), Direction.UP));
+	}
+	
+	/**
+	 * The food can only be left upwards: going down wraps into the top wall.
+	 */
+	@Test
+	public void testFoodMoves() {
+		assertEquals(Direction.UP.bit(), board.legalMoves(1, 2));
+	}
+
+	/**
+	 * Searches on a board share its wall map; other inspectors get a
+	 * map of their own with the same moves.
+	 */
+	@Test
+	public void testWallsOfInspector() {
+		assertSame(board.getWallMap(), WallMap.of(board));
+		IBoardInspector view = new IBoardInspector() {
+			public int getWidth() { return board.getWidth(); }
+			public int getHeight() { return board.getHeight(); }
+			public Sprite spriteAt(int x, int y) { return board.spriteAt(x, y); }
+			public SpriteType spriteTypeAt(int x, int y) { return board.spriteTypeAt(x, y); }
+			public Tile tileAt(int x, int y) { return board.tileAt(x, y); }
+			public int legalMoves(int x, int y) { return board.legalMoves(x, y); }
+		};
+		WallMap copy = WallMap.of(view);
+		assertNotSame(board.getWallMap(), copy);
+		for (int y = 0; y < board.getHeight(); y++) {
+			for (int x = 0; x < board.getWidth(); x++) {
+				assertEquals(board.legalMoves(x, y), 
+						copy.legalMoves(copy.getNeighbours().cell(x, y)));
+			}
+		}
+	}
+}
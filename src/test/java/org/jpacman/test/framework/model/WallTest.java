@@ -0,0 +1,64 @@
+package org.jpacman.test.framework.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Board;
+import org.jpacman.framework.model.FlatBoard;
+import org.jpacman.framework.model.IBoardInspector.SpriteType;
+import org.jpacman.framework.model.Wall;
+import org.junit.Test;
+
+/**
+ * Test that walls are represented by a single shared wall,
+ * which never occupies a tile.
+ */
+public class WallTest {
+	
+	/**
+	 * The shared wall is only recorded in the wall map.
+	 * @param b Board to put the wall on.
+	 */
+	private void checkFlyweight(Board b) {
+		b.put(Wall.flyweight(), 1, 0);
+		assertTrue(b.getWallMap().isWall(1));
+		assertNull(Wall.flyweight().getTile());
+		assertNull(b.tileAt(1, 0).topSprite());
+		assertSame(Wall.flyweight(), b.spriteAt(1, 0));
+		assertEquals(SpriteType.WALL, b.spriteTypeAt(1, 0));
+		assertEquals(SpriteType.EMPTY, b.spriteTypeAt(0, 0));
+	}
+	
+	/**
+	 * Test the shared wall on an ordinary board.
+	 */
+	@Test
+	public void testBoard() {
+		checkFlyweight(new Board(2, 2));
+	}
+	
+	/**
+	 * Test the shared wall on a flat board.
+	 */
+	@Test
+	public void testFlatBoard() {
+		checkFlyweight(new FlatBoard(2, 2));
+	}
+	
+	/**
+	 * Parsed maps all share the same wall.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testParsedWallsShared() throws FactoryException {
+		Board b = new MapParser(new DefaultGameFactory())
+			.parseMap(new String[] {"##", "#P"}).getBoard();
+		assertSame(b.spriteAt(0, 0), b.spriteAt(1, 0));
+		assertSame(Wall.flyweight(), b.spriteAt(0, 1));
+	}
+}
@@ -0,0 +1,127 @@
+package org.jpacman.test.framework.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.jpacman.framework.factory.DefaultGameFactory;
+import org.jpacman.framework.factory.FactoryException;
+import org.jpacman.framework.factory.MapParser;
+import org.jpacman.framework.model.Direction;
+import org.jpacman.framework.model.Game;
+import org.jpacman.framework.model.GameSnapshot;
+import org.jpacman.framework.model.MoveJournal;
+import org.jpacman.framework.model.TranspositionTable;
+import org.jpacman.framework.model.ZobristKeys;
+import org.junit.Test;
+
+/**
+ * Test the incremental hashing of game states, and 
+ * storing search results by those hashes.
+ */
+public class ZobristHashTest {
+	
+	private static final String[] MAP = {"######", "#P..G#", "#.##.#", "#....#", "######"};
+	
+	private Game makeGame() throws FactoryException {
+		return new MapParser(new DefaultGameFactory()).parseMap(MAP);
+	}
+	
+	/**
+	 * The same state reached in different ways has the same hash,
+	 * and the incremental hash matches a fresh game's hash.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testSameStateSameHash() throws FactoryException {
+		Game g = makeGame();
+		long start = g.getHash();
+		g.moveGhost(g.getGhosts().get(0), Direction.DOWN);
+		assertFalse(start == g.getHash());
+		g.moveGhost(g.getGhosts().get(0), Direction.UP);
+		assertEquals(start, g.getHash());
+		assertEquals(start, makeGame().getHash());
+	}
+	
+	/**
+	 * Eating food changes the hash for good.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testEatingChangesHash() throws FactoryException {
+		Game g = makeGame();
+		long start = g.getHash();
+		g.movePlayer(Direction.RIGHT);
+		g.movePlayer(Direction.LEFT);
+		assertFalse(start == g.getHash());
+	}
+	
+	/**
+	 * Undo and restore bring back the hash as well.
+	 * @throws FactoryException Never.
+	 */
+	@Test
+	public void testUndoAndRestore() throws FactoryException {
+		final int capacity = 8;
+		Game g = makeGame();
+		g.setJournal(new MoveJournal(capacity));
+		long start = g.getHash();
+		GameSnapshot s = g.snapshot();
+		g.movePlayer(Direction.RIGHT);
+		g.moveGhost(g.getGhosts().get(0), Direction.LEFT);
+		g.moveGhost(g.getGhosts().get(0), Direction.LEFT);
+		assertFalse(g.getPlayer().isAlive());
+		long dead = g.getHash();
+		while (g.undo()) {
+			continue;
+		}
+		assertEquals(start, g.getHash());
+		g.movePlayer(Direction.DOWN);
+		g.restore(s);
+		assertEquals(start, g.getHash());
+		assertFalse(dead == start);
+	}
+	
+	/**
+	 * Results can be stored and found again; when the window
+	 * of a hash is full, the shallowest entry is replaced.
+	 */
+	@Test
+	public void testTranspositionTable() {
+		final int capacity = 16;
+		final int value = 42;
+		TranspositionTable tt = new TranspositionTable(capacity);
+		assertEquals(-1, tt.find(1));
+		int slot = tt.store(1, value, Direction.UP, 2);
+		assertEquals(slot, tt.find(1));
+		assertEquals(value, tt.getValue(slot));
+		assertEquals(Direction.UP, tt.getBestMove(slot));
+		tt.store(1, value + 1, null, 2 + 1);
+		assertEquals(1, tt.size());
+		assertNull(tt.getBestMove(tt.find(1)));
+		
+		// hashes with the same home slot.
+		for (long h = 2; h <= 2 + 2; h++) {
+			tt.store(h * capacity + 1, value, null, (int) h);
+		}
+		final long newcomer = 7 * capacity + 1;
+		tt.store(newcomer, value, null, 1);
+		assertTrue(tt.find(newcomer) >= 0);
+		assertEquals(-1, tt.find(2 * capacity + 1));
+		assertTrue(tt.find(1) >= 0);
+	}
+
+	/**
+	 * Key sets dropped from the bounded cache come back with the same keys.
+	 */
+	@Test
+	public void testKeysSurviveEviction() {
+		final int cells = 12;
+		long before = ZobristKeys.forGame(cells, 1).mover(0, 2);
+		for (int i = 0; i <= ZobristKeys.CAPACITY; i++) {
+			ZobristKeys.forGame(cells + 1 + i, 1);
+		}
+		assertEquals(before, ZobristKeys.forGame(cells, 1).mover(0, 2));
+	}
+}